@@ -1,9 +1,15 @@
 package com.chrono.task;
 
 import com.chrono.task.controller.MainController;
-import com.chrono.task.persistence.JsonStorageService;
+import com.chrono.task.persistence.ArchiveStore;
+import com.chrono.task.persistence.MappedDurationStore;
+import com.chrono.task.persistence.SessionStore;
+import com.chrono.task.persistence.StorageServiceFactory;
+import com.chrono.task.persistence.TextStore;
+import com.chrono.task.persistence.TimerCheckpointRing;
 import com.chrono.task.service.GitBackupService;
 import com.chrono.task.service.GitService;
+import com.chrono.task.service.SchedulerService;
 import com.chrono.task.service.TaskService;
 import com.chrono.task.service.TimerService;
 import javafx.application.Application;
@@ -13,11 +19,16 @@ import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 
 public class ChronoApp extends Application {
 
+    private SchedulerService scheduler;
     private TaskService taskService;
     private TimerService timerService;
+    private MappedDurationStore durationStore;
+    private SessionStore sessionStore;
+    private TimerCheckpointRing checkpointRing;
     private GitBackupService gitBackupService;
     private com.chrono.task.service.NotificationService notificationService;
     private com.chrono.task.service.JiraRefreshService jiraRefreshService;
@@ -38,30 +49,65 @@ public class ChronoApp extends Application {
         if (!dataDir.exists()) {
             dataDir.mkdirs();
         }
-        String dataFilePath = new File(dataDir, "data.json").getAbsolutePath();
 
         // 3. Initialize Core Services
-        var storageService = new JsonStorageService(dataFilePath);
-        taskService = new TaskService(storageService);
+        var storageService = StorageServiceFactory.createAndMigrate(settings.getStorageFormat(), dataDir);
+        // Background jobs of all services
+        scheduler = new SchedulerService();
+        taskService = new TaskService(storageService, scheduler);
         taskService.init();
+        taskService.setHistoryRetention(Duration.ofMinutes(settings.getMinDayMinutes()),
+                settings.isKeepShortDaysWithNotes());
 
-        timerService = new TimerService();
+        if (settings.isSeparateTexts()) {
+            taskService.useTextStore(TextStore.open(dataDir));
+        } else if (new File(dataDir, TextStore.TEXTS_DIR).isDirectory()) {
+            // Turned off since: the texts go back into the task documents
+            taskService.leaveTextStore(TextStore.open(dataDir));
+        }
+
+        // Time accrued after the last save survives a crash in the duration store
+        durationStore = MappedDurationStore.open(new File(dataDir, "durations.dat").toPath());
+        int recovered = taskService.useDurationStore(durationStore);
+        if (recovered > 0) {
+            System.out.println("Recovered unsaved time for " + recovered + " task days");
+        }
+        sessionStore = SessionStore.open(new File(dataDir, SessionStore.SESSIONS_FILE).toPath());
+        checkpointRing = TimerCheckpointRing.open(new File(dataDir, TimerCheckpointRing.RING_FILE).toPath());
+        timerService = new TimerService(durationStore, sessionStore, checkpointRing, scheduler);
+        // A session interrupted by a crash ran until its last heartbeat
+        Duration interrupted = timerService.recover(taskService::findTask);
+        if (!interrupted.isZero()) {
+            System.out.println("Recovered " + interrupted.toSeconds() + "s of an interrupted timer session");
+        }
+        timerService.setSleepLimit(Duration.ofMinutes(settings.getMaxSleepMinutes()));
+        // The running session reaches the tasks when they are saved
+        taskService.setBeforeSave(timerService::checkpoint);
+
+        int archived = taskService.useArchive(ArchiveStore.open(dataDir), settings.getArchiveAfterDays());
+        if (archived > 0) {
+            System.out.println("Archived " + archived + " DONE tasks");
+        }
 
         // 4. Initialize Git Backup
         notificationService = new com.chrono.task.service.NotificationService();
+        timerService.setOnSleepGap(gap -> notificationService.sendNotification("Timer",
+                "The computer slept " + gap.duration().toMinutes() + " min, not counted in the running task.",
+                java.awt.TrayIcon.MessageType.INFO));
         var gitService = new GitService();
-        gitBackupService = new GitBackupService(gitService, settings, notificationService);
+        gitBackupService = new GitBackupService(gitService, settings, notificationService, scheduler);
         gitBackupService.start();
 
         var jiraService = new com.chrono.task.service.JiraService();
-        jiraRefreshService = new com.chrono.task.service.JiraRefreshService(jiraService, taskService, settings);
+        jiraRefreshService = new com.chrono.task.service.JiraRefreshService(jiraService, taskService, settings,
+                scheduler);
         jiraRefreshService.start();
 
         // 5. Setup Loader with Controller Factory
         FXMLLoader loader = new FXMLLoader(ChronoApp.class.getResource("view/main_view.fxml"));
         loader.setControllerFactory(
                 param -> new MainController(taskService, timerService, settingsService, settings, getHostServices(),
-                        jiraService, gitBackupService, jiraRefreshService));
+                        jiraService, gitBackupService, jiraRefreshService, scheduler));
 
         // 6. Show UI
         Scene scene = new Scene(loader.load(), 1000, 700);
@@ -73,16 +119,25 @@ public class ChronoApp extends Application {
     @Override
     public void stop() throws Exception {
         super.stop();
-        if (taskService != null)
-            taskService.shutdown();
+        // The timer first, so that the last save has the running session
         if (timerService != null)
             timerService.shutdown();
+        if (taskService != null)
+            taskService.shutdown();
+        if (durationStore != null)
+            durationStore.close();
+        if (sessionStore != null)
+            sessionStore.close();
+        if (checkpointRing != null)
+            checkpointRing.close();
         if (gitBackupService != null)
             gitBackupService.stop();
         if (jiraRefreshService != null)
             jiraRefreshService.stop();
         if (notificationService != null)
             notificationService.shutdown();
+        if (scheduler != null)
+            scheduler.shutdown();
     }
 
     public static void main(String[] args) {
@@ -99,6 +99,18 @@ public class MainController {
     @FXML
     private TextField dataStoragePathField;
     @FXML
+    private ComboBox<com.chrono.task.model.StorageFormat> storageFormatComboBox;
+    @FXML
+    private TextField archiveAfterDaysField;
+    @FXML
+    private TextField minDayMinutesField;
+    @FXML
+    private javafx.scene.control.CheckBox keepShortDaysWithNotesCheckbox;
+    @FXML
+    private javafx.scene.control.CheckBox separateTextsCheckbox;
+    @FXML
+    private TextField maxSleepMinutesField;
+    @FXML
     private javafx.scene.control.CheckBox gitBackupEnabledCheckbox;
     @FXML
     private TextField gitBackupIntervalField;
@@ -126,6 +138,10 @@ public class MainController {
     private final com.chrono.task.service.JiraService jiraService;
     private final com.chrono.task.service.GitBackupService gitBackupService;
     private final com.chrono.task.service.JiraRefreshService jiraRefreshService;
+    private final com.chrono.task.service.SchedulerService scheduler;
+    // Cells of the task list, to show the changes of their task without refreshing the whole list
+    private final java.util.Set<TaskListCell> taskCells = java.util.Collections.newSetFromMap(
+            new java.util.WeakHashMap<>());
 
     private static final String totalTimerFormat = "Total: %02d:%02d";
     private static final String monthlyTimerFormat = "30d: %02d:%02d";
@@ -137,7 +153,8 @@ public class MainController {
             javafx.application.HostServices hostServices,
             com.chrono.task.service.JiraService jiraService,
             com.chrono.task.service.GitBackupService gitBackupService,
-            com.chrono.task.service.JiraRefreshService jiraRefreshService) {
+            com.chrono.task.service.JiraRefreshService jiraRefreshService,
+            com.chrono.task.service.SchedulerService scheduler) {
         this.taskService = taskService;
         this.timerService = timerService;
         this.settingsService = settingsService;
@@ -146,47 +163,63 @@ public class MainController {
         this.jiraService = jiraService;
         this.gitBackupService = gitBackupService;
         this.jiraRefreshService = jiraRefreshService;
+        this.scheduler = scheduler;
     }
 
     @FXML
     public void initialize() {
         // Bind Task List
         taskListView.getSelectionModel().setSelectionMode(SelectionMode.SINGLE);
-        taskListView.setItems(taskService.getTasks());
         taskListView.setCellFactory(param -> new TaskListCell());
 
-        // Filter
-        filterField.textProperty().addListener((obs, oldVal, newVal) -> {
-            if (newVal == null || newVal.isBlank()) {
-                taskListView.setItems(taskService.getTasks());
-            } else {
-                taskListView.setItems(javafx.collections.FXCollections.observableArrayList(taskService.filter(newVal)));
-            }
-        });
+        // Filter, searched in the background
+        TaskFilter taskFilter = new TaskFilter(taskService, scheduler);
+        taskListView.itemsProperty().bind(taskFilter.itemsProperty());
+        filterField.textProperty().addListener((obs, oldVal, newVal) -> taskFilter.setQuery(newVal));
 
         // Selection Listener
         taskListView.getSelectionModel().selectedItemProperty().addListener((obs, oldTask, newTask) -> {
             loadTaskDetails(newTask);
         });
 
+        // Timer labels tick every second while a task runs, otherwise they follow the time changes
+        Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> updateTimerLabel()));
+        timeline.setCycleCount(Timeline.INDEFINITE);
+
         // Active Task Header
         timerService.activeTaskProperty().addListener((obs, oldVal, newVal) -> {
             if (newVal != null) {
                 activeTaskLabel.setText("Active: " + newVal.getDescription());
+                timeline.play();
             } else {
                 activeTaskLabel.setText("No Active Task");
+                timeline.stop();
             }
+            updateTimerLabel();
         });
+        if (timerService.activeTaskProperty().get() != null) {
+            timeline.play();
+        }
 
-        // Periodic UI update for timer (1 second)
-        Timeline timeline = new Timeline(new KeyFrame(Duration.seconds(1), e -> updateTimerLabel()));
-        timeline.setCycleCount(Timeline.INDEFINITE);
-        timeline.play();
-
-        // Markdown Auto-Refresh (3 seconds)
-        Timeline markdownTimer = new Timeline(new KeyFrame(Duration.seconds(3), e -> refreshMarkdown()));
-        markdownTimer.setCycleCount(Timeline.INDEFINITE);
-        markdownTimer.play();
+        // Task changes, in batches on the FX thread
+        com.chrono.task.service.TaskEventBus events = taskService.getEvents();
+        events.subscribe(java.util.EnumSet.of(com.chrono.task.service.TaskEvent.FIELD_CHANGED,
+                com.chrono.task.service.TaskEvent.STATUS_CHANGED), java.time.Duration.ZERO,
+                javafx.application.Platform::runLater, batch -> java.util.List.copyOf(taskCells).forEach(cell -> {
+                    if (cell.getItem() != null && batch.tasks().contains(cell.getItem())) {
+                        cell.refreshItem();
+                    }
+                }));
+        events.subscribe(java.util.EnumSet.of(com.chrono.task.service.TaskEvent.TIME_ACCRUED), java.time.Duration.ZERO,
+                javafx.application.Platform::runLater, batch -> updateTimerLabel());
+        // Preview rendered at most twice a second while typing
+        events.subscribe(java.util.EnumSet.of(com.chrono.task.service.TaskEvent.TEXT_CHANGED,
+                com.chrono.task.service.TaskEvent.TIME_ACCRUED), java.time.Duration.ofMillis(500),
+                javafx.application.Platform::runLater, batch -> {
+                    if (batch.tasks().contains(taskListView.getSelectionModel().getSelectedItem())) {
+                        refreshMarkdown();
+                    }
+                });
 
         // Editor listeners to update model
         markdownEditor.textProperty().addListener((obs, o, n) -> {
@@ -215,7 +248,6 @@ public class MainController {
                     javafx.application.Platform.runLater(() -> descriptionField.setText(current.getDescription()));
                     return;
                 }
-                taskListView.refresh(); // Refresh list to show new name
 
                 // Jira Detection
                 if (jiraService.isJiraUrl(n)) {
@@ -240,7 +272,6 @@ public class MainController {
                                         // Update UI
                                         descriptionField.setText(current.getDescription());
                                         jiraUrlField.setText(current.getJiraUrl());
-                                        taskListView.refresh();
                                     });
                                 })
                                 .exceptionally(ex -> {
@@ -289,7 +320,6 @@ public class MainController {
             Task current = taskListView.getSelectionModel().getSelectedItem();
             if (current != null && newVal != null && current.getStatus() != newVal) {
                 current.setStatus(newVal);
-                taskListView.refresh();
             }
         });
 
@@ -334,6 +364,13 @@ public class MainController {
         // Custom Settings
         if (dataStoragePathField != null) {
             dataStoragePathField.setText(settings.getDataStoragePath());
+            storageFormatComboBox.getItems().setAll(com.chrono.task.model.StorageFormat.values());
+            storageFormatComboBox.setValue(settings.getStorageFormat());
+            archiveAfterDaysField.setText(String.valueOf(settings.getArchiveAfterDays()));
+            minDayMinutesField.setText(String.valueOf(settings.getMinDayMinutes()));
+            keepShortDaysWithNotesCheckbox.setSelected(settings.isKeepShortDaysWithNotes());
+            separateTextsCheckbox.setSelected(settings.isSeparateTexts());
+            maxSleepMinutesField.setText(String.valueOf(settings.getMaxSleepMinutes()));
             gitBackupEnabledCheckbox.setSelected(settings.isGitBackupEnabled());
             gitBackupIntervalField.setText(String.valueOf(settings.getGitBackupInterval()));
             gitBackupUnitComboBox.getItems().setAll(
@@ -363,6 +400,9 @@ public class MainController {
             if (newVal != null) {
                 lastSaveLabel.setText(
                         "Last save: " + newVal.format(java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss")));
+                lastSaveLabel.setTooltip(new javafx.scene.control.Tooltip(String.format(
+                        "Saves written: %d, skipped (no changes): %d",
+                        taskService.getSavesWritten(), taskService.getSavesSkipped()) + jobSummary()));
             }
         });
 
@@ -391,6 +431,30 @@ public class MainController {
         settings.setJiraApiToken(jiraApiTokenField.getText());
         settings.setJiraEmail(jiraEmailField.getText());
         settings.setDataStoragePath(dataStoragePathField.getText());
+        settings.setStorageFormat(storageFormatComboBox.getValue());
+        try {
+            settings.setArchiveAfterDays(Integer.parseInt(archiveAfterDaysField.getText()));
+        } catch (NumberFormatException e) {
+            showPopup("Validation Error", "Invalid Archive Delay: Must be a number of days.");
+            return;
+        }
+        try {
+            settings.setMinDayMinutes(Integer.parseInt(minDayMinutesField.getText()));
+        } catch (NumberFormatException e) {
+            showPopup("Validation Error", "Invalid Minimum Day: Must be a number of minutes.");
+            return;
+        }
+        settings.setKeepShortDaysWithNotes(keepShortDaysWithNotesCheckbox.isSelected());
+        settings.setSeparateTexts(separateTextsCheckbox.isSelected());
+        taskService.setHistoryRetention(java.time.Duration.ofMinutes(settings.getMinDayMinutes()),
+                settings.isKeepShortDaysWithNotes());
+        try {
+            settings.setMaxSleepMinutes(Integer.parseInt(maxSleepMinutesField.getText()));
+        } catch (NumberFormatException e) {
+            showPopup("Validation Error", "Invalid Sleep Limit: Must be a number of minutes.");
+            return;
+        }
+        timerService.setSleepLimit(java.time.Duration.ofMinutes(settings.getMaxSleepMinutes()));
         settings.setGitBackupEnabled(gitBackupEnabledCheckbox.isSelected());
         try {
             settings.setGitBackupInterval(Long.parseLong(gitBackupIntervalField.getText()));
@@ -439,6 +503,49 @@ public class MainController {
         }
     }
 
+    @FXML
+    public void onExportJson() {
+        javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
+        fileChooser.setTitle("Export Tasks as JSON");
+        fileChooser.setInitialFileName("chrono-export.json");
+        fileChooser.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("JSON", "*.json"));
+        java.io.File file = fileChooser.showSaveDialog(dataStoragePathField.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        try {
+            taskService.exportJson(file);
+            showPopup("Export", "Tasks exported to " + file.getAbsolutePath());
+        } catch (java.io.IOException e) {
+            e.printStackTrace();
+            showPopup("Error", "Could not export tasks: " + e.getMessage());
+        }
+    }
+
+    @FXML
+    public void onImportJson() {
+        javafx.stage.FileChooser fileChooser = new javafx.stage.FileChooser();
+        fileChooser.setTitle("Import Tasks from JSON");
+        fileChooser.getExtensionFilters().add(new javafx.stage.FileChooser.ExtensionFilter("JSON", "*.json"));
+        java.io.File file = fileChooser.showOpenDialog(dataStoragePathField.getScene().getWindow());
+        if (file == null) {
+            return;
+        }
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                "All current tasks will be replaced by the ones in " + file.getName() + ". Continue?");
+        confirm.setHeaderText(null);
+        if (confirm.showAndWait().filter(javafx.scene.control.ButtonType.OK::equals).isEmpty()) {
+            return;
+        }
+        try {
+            taskService.importJson(file);
+            showPopup("Import", "Imported " + taskService.getTasks().size() + " tasks.");
+        } catch (java.io.IOException e) {
+            e.printStackTrace();
+            showPopup("Error", "Could not import tasks: " + e.getMessage());
+        }
+    }
+
     private void updateGitStatusLabel() {
         if (gitStatusLabel == null)
             return;
@@ -515,6 +622,8 @@ public class MainController {
             String text = timeAdjustmentField.getText();
             try {
                 long minutes = Long.parseLong(text);
+                // The running session is part of the time being replaced
+                timerService.checkpoint();
                 current.setTime(LocalDate.now(), java.time.Duration.ofMinutes(minutes));
                 updateTimerLabel(); // Refresh view immediately
                 timeAdjustmentField.clear();
@@ -577,21 +686,18 @@ public class MainController {
     private void updateTimerLabel() {
         Task current = timerService.activeTaskProperty().get();
         if (current != null) {
-            // Re-calculate total time from history including ongoing session is implied by
-            // timerService tick
-            // Ideally TimerService provides "current session time" + "historical time"
-            // But TimerService ticks every second updating the model directly.
-            // So we can just read the model.
-            java.time.Duration d = current.getTotalTime();
+            // The model only has the running session up to its last accrual, the timer adds the rest
+            java.time.Duration d = timerService.liveTotal(current);
 
             activeTimerLabel.setText(String.format(totalTimerFormat,
                     d.toHours(), d.toMinutesPart(), d.toSecondsPart()));
 
-            java.time.Duration today = current.getDurationToday();
+            LocalDate now = LocalDate.now();
+            java.time.Duration today = timerService.liveDuration(current, now, now);
             todayTimerLabel.setText(String.format(dailyTimerFormat,
                     today.toHours(), today.toMinutesPart(), today.toSecondsPart()));
 
-            java.time.Duration month = current.getDurationLast30Days();
+            java.time.Duration month = timerService.liveDuration(current, now.minusDays(30), now);
             monthTimerLabel.setText(String.format(monthlyTimerFormat,
                     month.toHours(), month.toMinutesPart(), month.toSecondsPart()));
         } else {
@@ -600,11 +706,8 @@ public class MainController {
             monthTimerLabel.setText(String.format(monthlyTimerFormat, 0, 0));
         }
 
-        // Calculate total duration for today across all tasks
-        java.time.Duration totalToday = java.time.Duration.ZERO;
-        for (Task t : taskService.getTasks()) {
-            totalToday = totalToday.plus(t.getTimeForDate(LocalDate.now()));
-        }
+        // Total duration for today across the tasks worked on today
+        java.time.Duration totalToday = timerService.liveDayTotal(taskService::dayTotal, LocalDate.now());
         if (totalDailyLabel != null) {
             totalDailyLabel.setText(String.format("Day Total: %02dh %02dm",
                     totalToday.toHours(), totalToday.toMinutesPart()));
@@ -645,26 +748,186 @@ public class MainController {
         boolean showDuration = historyDurationCheckbox.isSelected();
         boolean showNotes = historyDailyNoteCheckbox.isSelected();
 
-        for (Task t : taskService.getTasks()) {
-            java.time.Duration d = t.getTimeForDate(date);
-            if (d.getSeconds() > 120
-                    || (showNotes && t.getDailyNote(date) != null && !t.getDailyNote(date).isBlank())) {
+        java.util.Map<String, com.chrono.task.persistence.WorkQueries.DayWork> work = new java.util.HashMap<>();
+        try {
+            taskService.workBetween(date, date).forEach(w -> work.put(w.taskId(), w));
+        } catch (java.io.IOException e) {
+            e.printStackTrace();
+            showPopup("Error", "Could not load history: " + e.getMessage());
+            return;
+        }
+
+        for (Task t : taskService.tasksWithIds(work.keySet())) {
+            com.chrono.task.persistence.WorkQueries.DayWork w = work.get(t.getId());
+            java.time.Duration d = w.duration();
+            String note = w.note();
+            if (d.getSeconds() > 120 || (showNotes && note != null && !note.isBlank())) {
                 sb.append("- ").append(t.getHistoryLabel());
                 if (showDuration) {
                     sb.append(String.format(" : %02dh %02dm", d.toHours(), d.toMinutesPart()));
                 }
                 sb.append("\n");
-                if (showNotes) {
-                    String note = t.getDailyNote(date);
-                    if (note != null && !note.isBlank()) {
-                        sb.append("  > ").append(note.replace("\n", "\n  > ")).append("\n");
-                    }
+                if (showNotes && note != null && !note.isBlank()) {
+                    sb.append("  > ").append(note.replace("\n", "\n  > ")).append("\n");
                 }
             }
         }
         historyTextArea.setText(sb.toString());
     }
 
+    /**
+     * Sessions of the start date, in the order they happened.
+     */
+    @FXML
+    public void onShowTimeline() {
+        LocalDate date = historyDatePicker.getValue();
+        if (date == null)
+            return;
+        java.time.ZoneId zone = java.time.ZoneId.systemDefault();
+        java.time.Instant dayStart = date.atStartOfDay(zone).toInstant();
+        java.time.Instant dayEnd = date.plusDays(1).atStartOfDay(zone).toInstant();
+        java.util.List<com.chrono.task.persistence.SessionStore.Session> sessions =
+                timerService.sessionsBetween(dayStart, dayEnd);
+        java.util.Map<String, String> labels = historyLabels(
+                sessions.stream().map(com.chrono.task.persistence.SessionStore.Session::taskId).toList());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Timeline for ").append(date).append("\n\n");
+        java.time.format.DateTimeFormatter time = java.time.format.DateTimeFormatter.ofPattern("HH:mm");
+        for (com.chrono.task.persistence.SessionStore.Session session : sessions) {
+            // Cut to the day, a session may run past midnight
+            java.time.Instant start = session.start().isBefore(dayStart) ? dayStart : session.start();
+            java.time.Instant end = session.end().isAfter(dayEnd) ? dayEnd : session.end();
+            java.time.Duration d = java.time.Duration.between(start, end);
+            sb.append(String.format("%s - %s  %02dh %02dm  %s\n", time.format(start.atZone(zone)),
+                    time.format(end.atZone(zone)), d.toHours(), d.toMinutesPart(),
+                    labels.getOrDefault(session.taskId(), session.taskId())));
+        }
+        if (sessions.isEmpty()) {
+            sb.append("No sessions recorded for this date.\n");
+        }
+        historyTextArea.setText(sb.toString());
+    }
+
+    /**
+     * Time per task and day of the week of the start date, with when each day started and ended.
+     */
+    @FXML
+    public void onShowTimesheet() {
+        LocalDate date = historyDatePicker.getValue();
+        if (date == null)
+            return;
+        LocalDate monday = date.with(java.time.temporal.TemporalAdjusters.previousOrSame(java.time.DayOfWeek.MONDAY));
+        LocalDate sunday = monday.plusDays(6);
+
+        // Day totals come from the task history, sessions only give the span of each day
+        java.util.Map<String, java.time.Duration[]> byTask = new java.util.LinkedHashMap<>();
+        try {
+            for (com.chrono.task.persistence.WorkQueries.DayWork w : taskService.workBetween(monday, sunday)) {
+                java.time.Duration[] days = byTask.computeIfAbsent(w.taskId(), id -> new java.time.Duration[7]);
+                int day = (int) java.time.temporal.ChronoUnit.DAYS.between(monday, w.date());
+                days[day] = days[day] == null ? w.duration() : days[day].plus(w.duration());
+            }
+        } catch (java.io.IOException e) {
+            e.printStackTrace();
+            showPopup("Error", "Could not load timesheet: " + e.getMessage());
+            return;
+        }
+        java.util.Map<String, String> labels = historyLabels(byTask.keySet());
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Timesheet ").append(monday).append(" - ").append(sunday).append("\n\n");
+        sb.append(String.format("%-30s", "Task"));
+        for (int day = 0; day < 7; day++) {
+            sb.append(String.format("%7s", monday.plusDays(day).getDayOfWeek()
+                    .getDisplayName(java.time.format.TextStyle.SHORT, java.util.Locale.getDefault())));
+        }
+        sb.append(String.format("%8s\n", "Total"));
+        java.time.Duration[] dayTotals = new java.time.Duration[7];
+        for (var entry : byTask.entrySet()) {
+            String label = labels.getOrDefault(entry.getKey(), entry.getKey());
+            sb.append(String.format("%-30.30s", label));
+            java.time.Duration total = java.time.Duration.ZERO;
+            for (int day = 0; day < 7; day++) {
+                java.time.Duration d = entry.getValue()[day];
+                sb.append(String.format("%7s", hoursMinutes(d)));
+                if (d != null) {
+                    total = total.plus(d);
+                    dayTotals[day] = dayTotals[day] == null ? d : dayTotals[day].plus(d);
+                }
+            }
+            sb.append(String.format("%8s\n", hoursMinutes(total)));
+        }
+        sb.append(String.format("%-30s", "Total"));
+        for (java.time.Duration d : dayTotals) {
+            sb.append(String.format("%7s", hoursMinutes(d)));
+        }
+
+        // When each day started and ended, from the sessions of the week
+        java.time.ZoneId zone = java.time.ZoneId.systemDefault();
+        java.time.format.DateTimeFormatter time = java.time.format.DateTimeFormatter.ofPattern("HH:mm");
+        java.time.Instant[] firstStarts = new java.time.Instant[7];
+        java.time.Instant[] lastEnds = new java.time.Instant[7];
+        for (com.chrono.task.persistence.SessionStore.Session session : timerService.sessionsBetween(
+                monday.atStartOfDay(zone).toInstant(), monday.plusDays(7).atStartOfDay(zone).toInstant())) {
+            for (int day = 0; day < 7; day++) {
+                java.time.Instant dayStart = monday.plusDays(day).atStartOfDay(zone).toInstant();
+                java.time.Instant dayEnd = monday.plusDays(day + 1).atStartOfDay(zone).toInstant();
+                if (session.start().isBefore(dayEnd) && session.end().isAfter(dayStart)) {
+                    java.time.Instant start = session.start().isBefore(dayStart) ? dayStart : session.start();
+                    java.time.Instant end = session.end().isAfter(dayEnd) ? dayEnd : session.end();
+                    firstStarts[day] = firstStarts[day] == null || start.isBefore(firstStarts[day]) ? start
+                            : firstStarts[day];
+                    lastEnds[day] = lastEnds[day] == null || end.isAfter(lastEnds[day]) ? end : lastEnds[day];
+                }
+            }
+        }
+        sb.append(String.format("\n%-30s", "Started"));
+        for (java.time.Instant start : firstStarts) {
+            sb.append(String.format("%7s", start == null ? "" : time.format(start.atZone(zone))));
+        }
+        sb.append(String.format("\n%-30s", "Ended"));
+        for (java.time.Instant end : lastEnds) {
+            sb.append(String.format("%7s", end == null ? "" : time.format(end.atZone(zone))));
+        }
+        sb.append("\n");
+        historyTextArea.setText(sb.toString());
+    }
+
+    private java.util.Map<String, String> historyLabels(java.util.Collection<String> taskIds) {
+        java.util.Map<String, String> labels = new java.util.HashMap<>();
+        taskService.tasksWithIds(new java.util.HashSet<>(taskIds))
+                .forEach(t -> labels.put(t.getId(), t.getHistoryLabel()));
+        return labels;
+    }
+
+    /**
+     * One line per background job: last run, its duration, runs and failures.
+     */
+    private String jobSummary() {
+        if (scheduler == null) {
+            return "";
+        }
+        StringBuilder summary = new StringBuilder();
+        var time = java.time.format.DateTimeFormatter.ofPattern("HH:mm:ss").withZone(java.time.ZoneId.systemDefault());
+        for (var job : scheduler.stats()) {
+            summary.append('\n').append(job.name()).append(": ");
+            if (job.paused()) {
+                summary.append("paused, ");
+            }
+            if (job.lastRun() != null) {
+                summary.append("last run ").append(time.format(job.lastRun()))
+                        .append(" (").append(job.lastDuration().toMillis()).append(" ms), ");
+            }
+            summary.append(job.runs()).append(" runs, ").append(job.failures()).append(" failed");
+        }
+        return summary.toString();
+    }
+
+    private static String hoursMinutes(java.time.Duration d) {
+        return d == null || d.isZero() ? "-" : String.format("%d:%02d", d.toHours(), d.toMinutesPart());
+    }
+
     @FXML
     public void onGenerateRangeHistory() {
         LocalDate start = historyDatePicker.getValue();
@@ -682,15 +945,23 @@ public class MainController {
 
         historyTextArea.setText("Generating history... please wait.");
 
-        java.util.List<Task> activeTasks = taskService.getTasks().stream()
-                .filter(t -> {
-                    for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-                        if (t.getTimeForDate(date).getSeconds() > 120) {
-                            return true;
-                        }
-                    }
-                    return false;
-                })
+        // One range query instead of probing every task for every date
+        java.util.Map<String, java.util.List<com.chrono.task.persistence.WorkQueries.DayWork>> workByTask =
+                new java.util.HashMap<>();
+        java.util.Map<String, java.time.Duration> tagTotals;
+        try {
+            taskService.workBetween(start, end).forEach(
+                    w -> workByTask.computeIfAbsent(w.taskId(), id -> new java.util.ArrayList<>()).add(w));
+            tagTotals = taskService.totalsByTag(start, end);
+        } catch (java.io.IOException e) {
+            e.printStackTrace();
+            showPopup("Error", "Failed to generate report: " + e.getMessage());
+            return;
+        }
+
+        java.util.List<Task> activeTasks = taskService.tasksWithIds(workByTask.keySet()).stream()
+                .filter(t -> workByTask.get(t.getId()).stream()
+                        .anyMatch(w -> w.duration().getSeconds() > 120))
                 .collect(java.util.stream.Collectors.toList());
 
         if (activeTasks.isEmpty()) {
@@ -708,14 +979,14 @@ public class MainController {
                 .map(t -> {
                     java.time.Duration totalRangeDuration = java.time.Duration.ZERO;
                     StringBuilder notesBuilder = new StringBuilder();
-                    for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
-                        totalRangeDuration = totalRangeDuration.plus(t.getTimeForDate(date));
+                    for (com.chrono.task.persistence.WorkQueries.DayWork w : workByTask.get(t.getId())) {
+                        totalRangeDuration = totalRangeDuration.plus(w.duration());
                         if (showNotes) {
-                            String note = t.getDailyNote(date);
+                            String note = w.note();
                             if (note != null && !note.isBlank()) {
                                 if (notesBuilder.length() > 0)
                                     notesBuilder.append("\n");
-                                notesBuilder.append("  > ").append(date).append(": ")
+                                notesBuilder.append("  > ").append(w.date()).append(": ")
                                         .append(note.replace("\n", "\n  > "));
                             }
                         }
@@ -740,11 +1011,18 @@ public class MainController {
                 })
                 .collect(java.util.stream.Collectors.toList());
 
-        java.util.concurrent.CompletableFuture.allOf(futures.toArray(new java.util.concurrent.CompletableFuture[0]))
+        java.util.concurrent.CompletableFuture.allOf(futures.toArray(new java.util.concurrent.CompletableFuture<?>[0]))
                 .thenApply(v -> {
-                    return futures.stream()
+                    String report = futures.stream()
                             .map(java.util.concurrent.CompletableFuture::join)
                             .collect(java.util.stream.Collectors.joining("\n"));
+                    if (showDuration && !tagTotals.isEmpty()) {
+                        StringBuilder byTag = new StringBuilder("\n\nBy tag:");
+                        tagTotals.forEach((tag, total) -> byTag.append(String.format("\n- %s : %02dh %02dm", tag,
+                                total.toHours(), total.toMinutesPart())));
+                        report += byTag;
+                    }
+                    return report;
                 })
                 .thenAccept(report -> javafx.application.Platform.runLater(() -> historyTextArea.setText(report)))
                 .exceptionally(ex -> {
@@ -764,6 +1042,7 @@ public class MainController {
         private final Button slackButton = new Button("💬");
 
         public TaskListCell() {
+            taskCells.add(this);
             hbox.setAlignment(javafx.geometry.Pos.CENTER_LEFT);
 
             // Layout configuration
@@ -823,7 +1102,6 @@ public class MainController {
                                         statusLabel.setText(showStatus ? newStatus.name() : "");
                                         statusLabel.setVisible(showStatus);
                                         statusLabel.setManaged(showStatus);
-                                        taskListView.refresh();
                                     });
                                 })
                                 .exceptionally(ex -> {
@@ -875,15 +1153,18 @@ public class MainController {
                 javafx.scene.input.Dragboard db = event.getDragboard();
                 boolean success = false;
                 if (db.hasString()) {
-                    javafx.collections.ObservableList<Task> items = getListView().getItems();
+                    // Moved in the whole list, the one shown may be filtered
+                    javafx.collections.ObservableList<Task> items = taskService.getTasks();
                     String draggedId = db.getString();
-                    Optional<Task> toMove = items.stream().filter(t -> t.getId().equals(draggedId)).findAny();
-
-                    if (toMove.isPresent()) {
-                        items.remove(toMove.get());
-                        items.add(getIndex(), toMove.get());
-                        taskService.updateOrder(items);
-                        taskListView.getSelectionModel().select(getIndex());
+                    Optional<Task> toMove = Optional.ofNullable(taskService.findTask(draggedId));
+                    int from = toMove.map(items::indexOf).orElse(-1);
+                    int target = items.indexOf(getItem());
+
+                    if (from >= 0 && target >= 0) {
+                        // Takes the place of the target, so goes after it when dragged down
+                        int before = from < target ? target + 1 : target;
+                        taskService.moveTask(draggedId, before < items.size() ? items.get(before).getId() : null);
+                        taskListView.getSelectionModel().select(toMove.get());
                         success = true;
 
                     }
@@ -895,6 +1176,15 @@ public class MainController {
             setOnDragDone(javafx.scene.input.DragEvent::consume);
         }
 
+        /**
+         * Shows the changes of the task of the cell.
+         */
+        void refreshItem() {
+            if (getItem() != null) {
+                updateItem(getItem(), false);
+            }
+        }
+
         @Override
         protected void updateItem(Task item, boolean empty) {
             super.updateItem(item, empty);
@@ -903,7 +1193,7 @@ public class MainController {
                 setGraphic(null);
             } else {
                 setText(null);
-                label.setText(item.getLabel());
+                label.setText(item.getLabel(taskService.positionOf(item)));
                 boolean showStatus = item.getStatus() != TaskStatus.NONE;
                 statusLabel.setText(showStatus ? item.getStatus().name() : "");
                 statusLabel.setVisible(showStatus);
@@ -0,0 +1,160 @@
+package com.chrono.task.controller;
+
+import com.chrono.task.model.Task;
+import com.chrono.task.service.SchedulerService;
+import com.chrono.task.service.SearchHit;
+import com.chrono.task.service.TaskEvent;
+import com.chrono.task.service.TaskService;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.transformation.FilteredList;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+/**
+ * The task list filtered by the query typed in, searched off the FX thread.
+ * <p>
+ * Keystrokes are debounced, and a newer query makes the one still pending or running stale: it stops early and is not
+ * shown. A query extending the shown one only checks the tasks found for it. The list shown is a live
+ * {@link FilteredList} of the tasks: tasks added or edited later are checked on their own against the query, without
+ * searching again. Archived tasks found are listed after them.
+ */
+class TaskFilter {
+
+    static final String FILTER_JOB = "filter";
+    static final long DEBOUNCE_MILLIS = 150;
+
+    private final TaskService taskService;
+    private final SchedulerService scheduler;
+    private final FilteredList<Task> listed;
+    private final ReadOnlyObjectWrapper<ObservableList<Task>> items = new ReadOnlyObjectWrapper<>();
+    private final AtomicLong generation = new AtomicLong();
+    // FX thread only. Lower-case query shown, null when not filtering, and its hits by task id
+    private String shownQuery;
+    private Map<String, SearchHit> hits = new LinkedHashMap<>();
+    private List<Task> archived = List.of();
+
+    TaskFilter(TaskService taskService, SchedulerService scheduler) {
+        this.taskService = taskService;
+        this.scheduler = scheduler;
+        this.listed = new FilteredList<>(taskService.getTasks());
+        items.set(listed);
+        taskService.getTasks().addListener((ListChangeListener<Task>) this::onTasksChanged);
+        // Time accrued changes no text, a replaced history comes as a text change too
+        taskService.getEvents().subscribe(EnumSet.of(TaskEvent.FIELD_CHANGED, TaskEvent.TEXT_CHANGED), Duration.ZERO,
+                Platform::runLater, batch -> batch.tasks().forEach(this::recheck));
+    }
+
+    /**
+     * The tasks to show, replaced when archived tasks come in or out of the results.
+     */
+    ReadOnlyObjectProperty<ObservableList<Task>> itemsProperty() {
+        return items.getReadOnlyProperty();
+    }
+
+    /**
+     * Filters by {@code text} shortly, unless typing goes on. FX thread only.
+     */
+    void setQuery(String text) {
+        long id = generation.incrementAndGet();
+        BooleanSupplier stale = () -> generation.get() != id;
+        if (text == null || text.isBlank()) {
+            scheduler.cancel(FILTER_JOB);
+            show(null, List.of());
+            return;
+        }
+        String query = text.toLowerCase();
+        String previous = shownQuery;
+        List<SearchHit> previousHits = List.copyOf(hits.values());
+        // The list is only read on the FX thread
+        List<Task> snapshot = List.copyOf(taskService.getTasks());
+        scheduler.scheduleOnce(FILTER_JOB, Duration.ofMillis(DEBOUNCE_MILLIS), () -> {
+            List<SearchHit> found = previous != null && query.contains(previous)
+                    ? taskService.refine(previousHits, query, stale)
+                    : taskService.search(query, snapshot, stale);
+            if (!stale.getAsBoolean()) {
+                Platform.runLater(() -> {
+                    if (!stale.getAsBoolean()) {
+                        show(query, found);
+                    }
+                });
+            }
+        });
+    }
+
+    private void show(String query, List<SearchHit> found) {
+        shownQuery = query;
+        hits = new LinkedHashMap<>();
+        found.forEach(hit -> hits.put(hit.task().getId(), hit));
+        archived = notListed(found.stream().map(SearchHit::task).toList());
+        refresh();
+    }
+
+    /**
+     * Checks an added or edited task against the query shown.
+     */
+    private void recheck(Task task) {
+        if (shownQuery == null) {
+            return;
+        }
+        SearchHit hit = taskService.match(task, shownQuery);
+        boolean shown = hits.containsKey(task.getId());
+        if (hit != null) {
+            hits.put(task.getId(), hit);
+        } else {
+            hits.remove(task.getId());
+        }
+        if (shown != (hit != null)) {
+            refresh();
+        }
+    }
+
+    private void onTasksChanged(ListChangeListener.Change<? extends Task> change) {
+        if (shownQuery == null) {
+            return;
+        }
+        boolean restored = false;
+        while (change.next()) {
+            for (Task task : change.getAddedSubList()) {
+                // An archived task edited comes back to the list
+                restored |= archived.contains(task);
+                recheck(task);
+            }
+        }
+        if (restored) {
+            archived = notListed(archived);
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        if (shownQuery == null) {
+            listed.setPredicate(null);
+        } else {
+            Map<String, SearchHit> shown = hits;
+            listed.setPredicate(task -> shown.containsKey(task.getId()));
+        }
+        if (archived.isEmpty()) {
+            items.set(listed);
+        } else {
+            List<Task> all = new ArrayList<>(listed);
+            all.addAll(archived);
+            items.set(FXCollections.observableArrayList(all));
+        }
+    }
+
+    private List<Task> notListed(List<Task> tasks) {
+        return tasks.stream().filter(task -> taskService.findTask(task.getId()) != task).toList();
+    }
+}
@@ -0,0 +1,578 @@
+package com.chrono.task.model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * History of a task, one entry per day, held in parallel primitive arrays sorted by epoch day.
+ * <p>
+ * Days are found by binary search. Time is a nanosecond counter per day that {@link #addNanos} and {@link #setNanos}
+ * update in place, statuses are ordinals and notes are only referenced for the days that have one.
+ * <p>
+ * A Fenwick tree over the days answers {@link #nanosBetween} in logarithmic time, and the total is kept up to date.
+ * Updating a day or appending one after the last keeps the tree in step in logarithmic time; inserting a day before
+ * the last one, or removing one, rebuilds it in linear time on the next range query. The {@link Map} view
+ * serializes like the map of {@link TaskDailyWork} it replaces, in date order. Its values are copies: changing one
+ * changes nothing until it is {@link #put} back.
+ */
+public final class DayHistory extends AbstractMap<LocalDate, TaskDailyWork> {
+
+    private static final int INITIAL_CAPACITY = 4;
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    private static final byte DEFAULT_STATUS = (byte) (TaskStatus.TODO.ordinal() + 1);
+
+    // Flags of a day
+    private static final byte DIRTY = 1;
+    private static final byte DURATION_NULL = 2;
+    private static final byte NOTE_NULL = 4;
+    private static final byte NOTE_RELEASED = 8;
+
+    private int size;
+    private int[] days;
+    private long[] nanos;
+    private byte[] flags;
+    // Ordinal plus one, 0 being null
+    private byte[] statuses;
+    // Allocated with the first note; an empty slot is an empty note, a released one may hold its own loader
+    private Object[] notes;
+    // Where the released notes without a loader of their own are read from
+    private TextSource textSource;
+    private String taskId;
+
+    // 1-based Fenwick tree over the time of the days, usable only when valid
+    private long[] tree;
+    private boolean treeValid;
+    private long total;
+
+    public DayHistory() {
+        this(INITIAL_CAPACITY);
+    }
+
+    private DayHistory(int capacity) {
+        days = new int[capacity];
+        nanos = new long[capacity];
+        flags = new byte[capacity];
+        statuses = new byte[capacity];
+        tree = new long[capacity + 1];
+        treeValid = true;
+    }
+
+    /**
+     * Copies {@code entries}; a {@link DayHistory} is copied with its dirty days and released notes.
+     */
+    public DayHistory(Map<LocalDate, TaskDailyWork> entries) {
+        this(Math.max(INITIAL_CAPACITY, entries.size()));
+        if (entries instanceof DayHistory other) {
+            size = other.size;
+            System.arraycopy(other.days, 0, days, 0, size);
+            System.arraycopy(other.nanos, 0, nanos, 0, size);
+            System.arraycopy(other.flags, 0, flags, 0, size);
+            System.arraycopy(other.statuses, 0, statuses, 0, size);
+            notes = other.notes == null ? null : Arrays.copyOf(other.notes, days.length);
+            textSource = other.textSource;
+            taskId = other.taskId;
+            System.arraycopy(other.tree, 0, tree, 0, size + 1);
+            treeValid = other.treeValid;
+            total = other.total;
+        } else {
+            entries.forEach(this::put);
+        }
+    }
+
+    // --- Primitive access ---
+
+    /**
+     * Time of {@code date} in nanoseconds, 0 when the day is missing or has no duration.
+     */
+    public long getNanos(LocalDate date) {
+        int i = indexOf((int) date.toEpochDay());
+        return i < 0 || (flags[i] & DURATION_NULL) != 0 ? 0 : nanos[i];
+    }
+
+    /**
+     * Adds time to {@code date}, creating the day if needed, without allocating unless it is created.
+     */
+    public void addNanos(LocalDate date, long delta) {
+        int i = slot((int) date.toEpochDay());
+        setValue(i, value(i) + delta, false);
+        flags[i] |= DIRTY;
+    }
+
+    public void setNanos(LocalDate date, long value) {
+        int i = slot((int) date.toEpochDay());
+        setValue(i, value, false);
+        flags[i] |= DIRTY;
+    }
+
+    public long totalNanos() {
+        return total;
+    }
+
+    /**
+     * Time between {@code from} and {@code to}, both included, in nanoseconds.
+     */
+    public long nanosBetween(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return 0;
+        }
+        if (!treeValid) {
+            rebuildTree();
+        }
+        return prefixSum(lowerBound((int) to.toEpochDay() + 1)) - prefixSum(lowerBound((int) from.toEpochDay()));
+    }
+
+    /**
+     * Calls {@code action} for the days between {@code from} and {@code to}, both included, in date order.
+     */
+    public void forEachBetween(LocalDate from, LocalDate to, BiConsumer<LocalDate, TaskDailyWork> action) {
+        int end = lowerBound((int) to.toEpochDay() + 1);
+        for (int i = lowerBound((int) from.toEpochDay()); i < end; i++) {
+            action.accept(LocalDate.ofEpochDay(days[i]), snapshot(i));
+        }
+    }
+
+    /**
+     * Note of {@code date}, empty when the day is missing.
+     */
+    public String getNote(LocalDate date) {
+        int i = indexOf((int) date.toEpochDay());
+        return i < 0 ? "" : note(i);
+    }
+
+    // --- Used by Task ---
+
+    void setNote(LocalDate date, String note) {
+        int i = slot((int) date.toEpochDay());
+        holdNote(i, note);
+        flags[i] |= DIRTY;
+    }
+
+    void markDirty(LocalDate date) {
+        int i = indexOf((int) date.toEpochDay());
+        if (i >= 0) {
+            flags[i] |= DIRTY;
+        }
+    }
+
+    /**
+     * Whether a day from {@code date} on is in the history.
+     */
+    boolean hasDayFrom(LocalDate date) {
+        return size > 0 && days[size - 1] >= (int) date.toEpochDay();
+    }
+
+    void markClean() {
+        for (int i = 0; i < size; i++) {
+            flags[i] &= ~DIRTY;
+        }
+    }
+
+    /**
+     * Reads the notes from {@code source} from now on, except the empty ones.
+     *
+     * @return whether a note written in full so far was released, such days being marked dirty
+     */
+    boolean releaseNotes(TextSource source, String taskId) {
+        this.textSource = source;
+        this.taskId = taskId;
+        boolean changed = false;
+        for (int i = 0; i < size; i++) {
+            changed |= releaseNote(i);
+        }
+        return changed;
+    }
+
+    /**
+     * Releases the note of {@code date} to the source given to {@link #releaseNotes}, if any.
+     */
+    void releaseNote(LocalDate date) {
+        int i = indexOf((int) date.toEpochDay());
+        if (i >= 0 && textSource != null) {
+            releaseNote(i);
+        }
+    }
+
+    void holdNotes() {
+        for (int i = 0; i < size; i++) {
+            if ((flags[i] & NOTE_RELEASED) != 0) {
+                holdNote(i, note(i));
+            }
+        }
+        textSource = null;
+    }
+
+    Map<LocalDate, TaskDailyWork> removeBefore(LocalDate date) {
+        int end = lowerBound((int) date.toEpochDay());
+        Map<LocalDate, TaskDailyWork> removed = new HashMap<>();
+        for (int i = 0; i < end; i++) {
+            removed.put(LocalDate.ofEpochDay(days[i]), snapshot(i));
+        }
+        removeRange(0, end);
+        return removed;
+    }
+
+    /**
+     * Removes the days before {@code today} shorter than {@code minNanos}, unless {@code keepNoted} and they have a
+     * note.
+     *
+     * @return whether a day was removed
+     */
+    boolean removeShortDays(long minNanos, boolean keepNoted, LocalDate today) {
+        int todayDay = (int) today.toEpochDay();
+        int kept = 0;
+        for (int i = 0; i < size; i++) {
+            boolean remove = days[i] < todayDay && (flags[i] & DURATION_NULL) == 0 && nanos[i] < minNanos
+                    && !(keepNoted && !isBlank(note(i)));
+            if (!remove) {
+                move(i, kept++);
+            }
+        }
+        boolean removed = kept < size;
+        if (removed) {
+            clearFrom(kept);
+            invalidateTree();
+        }
+        return removed;
+    }
+
+    /**
+     * Removes {@code date} if shorter than {@code minNanos}, unless {@code keepNoted} and it has a note.
+     *
+     * @return whether the day was removed
+     */
+    boolean removeShortDay(LocalDate date, long minNanos, boolean keepNoted) {
+        int i = indexOf((int) date.toEpochDay());
+        if (i < 0 || (flags[i] & DURATION_NULL) != 0 || nanos[i] >= minNanos || keepNoted && !isBlank(note(i))) {
+            return false;
+        }
+        removeRange(i, i + 1);
+        return true;
+    }
+
+    // --- Map view ---
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof LocalDate date && indexOf((int) date.toEpochDay()) >= 0;
+    }
+
+    @Override
+    public TaskDailyWork get(Object key) {
+        int i = key instanceof LocalDate date ? indexOf((int) date.toEpochDay()) : -1;
+        return i < 0 ? null : snapshot(i);
+    }
+
+    @Override
+    public TaskDailyWork put(LocalDate date, TaskDailyWork work) {
+        Objects.requireNonNull(work, "work");
+        int day = (int) date.toEpochDay();
+        int i = indexOf(day);
+        TaskDailyWork previous = i < 0 ? null : snapshot(i);
+        if (i < 0) {
+            i = insert(-i - 1, day);
+        }
+        Duration duration = work.getDuration();
+        setValue(i, duration == null ? 0 : duration.toNanos(), duration == null);
+        statuses[i] = work.getStatus() == null ? 0 : (byte) (work.getStatus().ordinal() + 1);
+        flags[i] = (byte) (flags[i] & DURATION_NULL | (work.isDirty() ? DIRTY : 0));
+        if (work.isNoteReleased()) {
+            flags[i] |= NOTE_RELEASED;
+            notes()[i] = work.noteLoader();
+        } else {
+            holdNote(i, work.getStoredNote());
+        }
+        return previous;
+    }
+
+    @Override
+    public TaskDailyWork remove(Object key) {
+        int i = key instanceof LocalDate date ? indexOf((int) date.toEpochDay()) : -1;
+        if (i < 0) {
+            return null;
+        }
+        TaskDailyWork previous = snapshot(i);
+        removeRange(i, i + 1);
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        clearFrom(0);
+        invalidateTree();
+    }
+
+    @Override
+    public Set<Entry<LocalDate, TaskDailyWork>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Iterator<Entry<LocalDate, TaskDailyWork>> iterator() {
+                return new Iterator<>() {
+                    private int next;
+                    private boolean canRemove;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<LocalDate, TaskDailyWork> next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        canRemove = true;
+                        int i = next++;
+                        return new SimpleImmutableEntry<>(LocalDate.ofEpochDay(days[i]), snapshot(i));
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (!canRemove) {
+                            throw new IllegalStateException();
+                        }
+                        canRemove = false;
+                        removeRange(--next, next + 1);
+                    }
+                };
+            }
+        };
+    }
+
+    // --- Internals ---
+
+    private TaskDailyWork snapshot(int i) {
+        Duration duration = (flags[i] & DURATION_NULL) != 0 ? null : Duration.ofNanos(nanos[i]);
+        TaskStatus status = statuses[i] == 0 ? null : STATUSES[statuses[i] - 1];
+        boolean dirty = (flags[i] & DIRTY) != 0;
+        if ((flags[i] & NOTE_RELEASED) == 0) {
+            return new TaskDailyWork(duration, heldNote(i), status, dirty);
+        }
+        return new TaskDailyWork(duration, null, status, dirty, noteLoader(i));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Supplier<String> noteLoader(int i) {
+        if (notes != null && notes[i] instanceof Supplier<?> own) {
+            return (Supplier<String>) own;
+        }
+        TextSource source = textSource;
+        String id = taskId;
+        LocalDate date = LocalDate.ofEpochDay(days[i]);
+        return () -> source.note(id, date);
+    }
+
+    private String note(int i) {
+        return (flags[i] & NOTE_RELEASED) != 0 ? noteLoader(i).get() : heldNote(i);
+    }
+
+    private String heldNote(int i) {
+        if ((flags[i] & NOTE_NULL) != 0) {
+            return null;
+        }
+        return notes == null || notes[i] == null ? "" : (String) notes[i];
+    }
+
+    private void holdNote(int i, String note) {
+        flags[i] &= ~(NOTE_RELEASED | NOTE_NULL);
+        if (note == null) {
+            flags[i] |= NOTE_NULL;
+        }
+        if (note != null && !note.isEmpty()) {
+            notes()[i] = note;
+        } else if (notes != null) {
+            notes[i] = null;
+        }
+    }
+
+    private boolean releaseNote(int i) {
+        byte f = flags[i];
+        boolean empty = (f & NOTE_NULL) == 0 && (notes == null || notes[i] == null);
+        if ((f & NOTE_RELEASED) != 0 || empty) {
+            return false;
+        }
+        flags[i] = (byte) (f & ~NOTE_NULL | NOTE_RELEASED);
+        if (notes != null) {
+            notes[i] = null;
+        }
+        if ((f & NOTE_NULL) != 0) {
+            return false;
+        }
+        flags[i] |= DIRTY;
+        return true;
+    }
+
+    private static boolean isBlank(String note) {
+        return note == null || note.isBlank();
+    }
+
+    private Object[] notes() {
+        if (notes == null) {
+            notes = new Object[days.length];
+        }
+        return notes;
+    }
+
+    /**
+     * Time of the day at {@code i}, a missing duration counting as zero.
+     */
+    private long value(int i) {
+        return (flags[i] & DURATION_NULL) != 0 ? 0 : nanos[i];
+    }
+
+    private void setValue(int i, long value, boolean durationNull) {
+        long delta = (durationNull ? 0 : value) - value(i);
+        nanos[i] = value;
+        flags[i] = (byte) (durationNull ? flags[i] | DURATION_NULL : flags[i] & ~DURATION_NULL);
+        total += delta;
+        if (treeValid && delta != 0) {
+            for (int k = i + 1; k <= size; k += k & -k) {
+                tree[k] += delta;
+            }
+        }
+    }
+
+    /**
+     * Time of the days before index {@code end}.
+     */
+    private long prefixSum(int end) {
+        long sum = 0;
+        for (int k = end; k > 0; k -= k & -k) {
+            sum += tree[k];
+        }
+        return sum;
+    }
+
+    private void rebuildTree() {
+        for (int k = 1; k <= size; k++) {
+            tree[k] = value(k - 1);
+        }
+        for (int k = 1; k <= size; k++) {
+            int parent = k + (k & -k);
+            if (parent <= size) {
+                tree[parent] += tree[k];
+            }
+        }
+        treeValid = true;
+    }
+
+    private void invalidateTree() {
+        treeValid = false;
+        total = 0;
+        for (int i = 0; i < size; i++) {
+            total += value(i);
+        }
+    }
+
+    private int indexOf(int day) {
+        // Today is the last day most of the time
+        if (size > 0 && days[size - 1] == day) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(days, 0, size, day);
+    }
+
+    /**
+     * Index of the first day not before {@code day}.
+     */
+    private int lowerBound(int day) {
+        int i = Arrays.binarySearch(days, 0, size, day);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private int slot(int day) {
+        int i = indexOf(day);
+        return i >= 0 ? i : insert(-i - 1, day);
+    }
+
+    private int insert(int i, int day) {
+        if (size == days.length) {
+            int capacity = size + (size >> 1) + 1;
+            days = Arrays.copyOf(days, capacity);
+            nanos = Arrays.copyOf(nanos, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            tree = Arrays.copyOf(tree, capacity + 1);
+            if (notes != null) {
+                notes = Arrays.copyOf(notes, capacity);
+            }
+        }
+        int moved = size - i;
+        if (moved > 0) {
+            System.arraycopy(days, i, days, i + 1, moved);
+            System.arraycopy(nanos, i, nanos, i + 1, moved);
+            System.arraycopy(flags, i, flags, i + 1, moved);
+            System.arraycopy(statuses, i, statuses, i + 1, moved);
+            if (notes != null) {
+                System.arraycopy(notes, i, notes, i + 1, moved);
+            }
+        }
+        days[i] = day;
+        nanos[i] = 0;
+        flags[i] = 0;
+        statuses[i] = DEFAULT_STATUS;
+        if (notes != null) {
+            notes[i] = null;
+        }
+        size++;
+        if (moved > 0) {
+            treeValid = false;
+        } else if (treeValid) {
+            // An empty day appended: its node covers the days (size - lowbit(size), size - 1]
+            tree[size] = prefixSum(size - 1) - prefixSum(size - (size & -size));
+        }
+        return i;
+    }
+
+    private void removeRange(int from, int to) {
+        int moved = size - to;
+        System.arraycopy(days, to, days, from, moved);
+        System.arraycopy(nanos, to, nanos, from, moved);
+        System.arraycopy(flags, to, flags, from, moved);
+        System.arraycopy(statuses, to, statuses, from, moved);
+        if (notes != null) {
+            System.arraycopy(notes, to, notes, from, moved);
+        }
+        clearFrom(size - (to - from));
+        invalidateTree();
+    }
+
+    private void move(int from, int to) {
+        if (from != to) {
+            days[to] = days[from];
+            nanos[to] = nanos[from];
+            flags[to] = flags[from];
+            statuses[to] = statuses[from];
+            if (notes != null) {
+                notes[to] = notes[from];
+            }
+        }
+    }
+
+    private void clearFrom(int newSize) {
+        if (notes != null) {
+            Arrays.fill(notes, newSize, size, null);
+        }
+        size = newSize;
+    }
+}
@@ -0,0 +1,18 @@
+package com.chrono.task.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.util.function.Supplier;
+
+/**
+ * A part of a task left in the JSON it was read from and parsed the first time it is needed. Until then, writing the
+ * task copies that JSON instead of parsing it.
+ */
+public interface DeferredJson<T> extends Supplier<T> {
+
+    /**
+     * Writes the part as it was read: a value for the markdown content, the fields of the days for the history.
+     */
+    void writeTo(JsonGenerator gen) throws IOException;
+}
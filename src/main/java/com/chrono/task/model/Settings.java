@@ -13,6 +13,16 @@ public class Settings {
     private String jiraEmail;
 
     private String dataStoragePath = System.getProperty("user.home") + java.io.File.separator + ".chrono-task-ai";
+    private StorageFormat storageFormat = StorageFormat.JSON;
+    // DONE tasks idle for that long and older history move to the archive, 0 disables it
+    private int archiveAfterDays = 0;
+    // Markdown and daily notes kept in the texts directory rather than in the task documents, moved back when off
+    private boolean separateTexts = false;
+    // Past days with less time are dropped from the history, unless they have a note and keepShortDaysWithNotes
+    private int minDayMinutes = 2;
+    private boolean keepShortDaysWithNotes = true;
+    // Sleep of the computer longer than that is cut out of the running timer, 0 counts it all
+    private int maxSleepMinutes = 5;
     private long gitBackupInterval = 1;
     private ChronoUnit gitBackupUnit = ChronoUnit.HOURS;
     private boolean gitBackupEnabled = false;
@@ -0,0 +1,9 @@
+package com.chrono.task.model;
+
+public enum StorageFormat {
+    JSON,
+    JOURNAL,
+    SHARDED,
+    BINARY,
+    H2;
+}
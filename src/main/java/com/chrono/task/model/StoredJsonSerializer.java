@@ -0,0 +1,43 @@
+package com.chrono.task.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Writes the parts of a {@link Task} that may still be deferred without loading them.
+ */
+class StoredJsonSerializer extends StdSerializer<Object> {
+
+    /**
+     * A history whose days before the loaded ones are still deferred.
+     */
+    record PartlyDeferredHistory(DeferredJson<?> deferred, Map<LocalDate, TaskDailyWork> loaded) {
+    }
+
+    StoredJsonSerializer() {
+        super(Object.class);
+    }
+
+    @Override
+    public void serialize(Object value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        if (value instanceof DeferredJson<?> deferred) {
+            deferred.writeTo(gen);
+        } else if (value instanceof PartlyDeferredHistory history) {
+            gen.writeStartObject();
+            // The deferred days are the oldest ones
+            history.deferred().writeTo(gen);
+            for (Map.Entry<LocalDate, TaskDailyWork> entry : history.loaded().entrySet()) {
+                gen.writeFieldName(entry.getKey().toString());
+                provider.defaultSerializeValue(entry.getValue(), gen);
+            }
+            gen.writeEndObject();
+        } else {
+            provider.defaultSerializeValue(value, gen);
+        }
+    }
+}
@@ -2,27 +2,41 @@ package com.chrono.task.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import lombok.AllArgsConstructor;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.Duration;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 
 @Data
-@Builder
 @NoArgsConstructor
-@AllArgsConstructor
 @JsonIgnoreProperties(ignoreUnknown = true)
+// Equal by id: comparing or hashing the history and texts is costly, and they change while the timer runs
+@EqualsAndHashCode(onlyExplicitlyIncluded = true)
 public class Task {
 
-    @Builder.Default
+    /**
+     * Room left between the order keys of neighbouring tasks, so that a task moved between two others takes a key in
+     * between without renumbering them.
+     */
+    public static final int ORDER_GAP = 1 << 10;
+
+    @EqualsAndHashCode.Include
     private String id = UUID.randomUUID().toString();
 
     private int order;
@@ -35,61 +49,599 @@ public class Task {
 
     private boolean isJira;
 
-    @Builder.Default
     private TaskStatus status = TaskStatus.TODO;
 
-    @Builder.Default
     private List<String> tags = new ArrayList<>();
 
-    @Builder.Default
-    private Map<LocalDate, TaskDailyWork> taskHistory = new HashMap<>();
+    private DayHistory taskHistory = new DayHistory();
 
-    @Builder.Default
     private String markdownContent = "";
 
+    // Parts of the task still held in their serialized form, see deferMarkdown and deferHistory
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient DeferredJson<String> markdownLoader;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient DeferredJson<Map<LocalDate, TaskDailyWork>> historyLoader;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient LocalDate historyDeferredFrom;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient LocalDate historyLoadedFrom;
+
+    // Time of the deferred history entries, known before they are loaded
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient long deferredNanos;
+
+    // Incremented on every change; the task is dirty until a save covers its latest modCount
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient long modCount;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient long savedModCount;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient TaskChangeListener changeListener;
+
+    // Time of the history moved to the archive, still part of the total
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Duration archivedTime;
+
+    // Set while the markdown content and the non-empty daily notes are read from it, see releaseTexts
+    @JsonIgnore
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient TextSource textSource;
+
     /**
-     * Helper to add time to a specific date.
+     * Builds a task from its persisted fields only: the dirty state, the listener and the deferred, archived and
+     * released parts are set through the methods that manage them.
      */
-    public void addTime(LocalDate date, Duration duration) {
-        taskHistory.compute(date, (d, work) -> {
-            if (work == null) {
-                return TaskDailyWork.builder().duration(duration).build();
+    @Builder
+    private Task(String id, int order, String description, String jiraUrl, String slackUrl, boolean isJira,
+            TaskStatus status, List<String> tags, Map<LocalDate, TaskDailyWork> taskHistory, String markdownContent) {
+        this.id = id;
+        this.order = order;
+        this.description = description;
+        this.jiraUrl = jiraUrl;
+        this.slackUrl = slackUrl;
+        this.isJira = isJira;
+        this.status = status;
+        this.tags = tags;
+        this.taskHistory = toDayHistory(taskHistory);
+        this.markdownContent = markdownContent;
+    }
+
+    /**
+     * Defaults of a new task; Lombok generates the rest of the builder around these fields.
+     */
+    public static class TaskBuilder {
+        private String id = UUID.randomUUID().toString();
+        private TaskStatus status = TaskStatus.TODO;
+        private List<String> tags = new ArrayList<>();
+        private Map<LocalDate, TaskDailyWork> taskHistory = new DayHistory();
+        private String markdownContent = "";
+    }
+
+    public synchronized void setChangeListener(TaskChangeListener changeListener) {
+        this.changeListener = changeListener;
+    }
+
+    @JsonIgnore
+    public synchronized long getModCount() {
+        return modCount;
+    }
+
+    @JsonIgnore
+    public synchronized boolean isDirty() {
+        return modCount != savedModCount;
+    }
+
+    /**
+     * Records that a save covered every change up to {@code version}, as returned by {@link #getModCount()}. Days
+     * are only marked clean when nothing changed since.
+     */
+    public synchronized void markSaved(long version) {
+        savedModCount = version;
+        if (modCount == version) {
+            if (taskHistory != null) {
+                taskHistory.markClean();
             }
-            work.setDuration(work.getDuration().plus(duration));
-            return work;
-        });
+        }
     }
 
-    public void setTime(LocalDate date, Duration duration) {
-        taskHistory.compute(date, (d, work) -> {
-            if (work == null) {
-                return TaskDailyWork.builder().duration(duration).build();
+    @JsonIgnore
+    public synchronized Duration getArchivedTime() {
+        return archivedTime == null ? Duration.ZERO : archivedTime;
+    }
+
+    public synchronized void setArchivedTime(Duration archivedTime) {
+        this.archivedTime = archivedTime;
+    }
+
+    /**
+     * Removes the history before {@code date}, loading deferred entries first.
+     *
+     * @return the removed entries
+     */
+    public Map<LocalDate, TaskDailyWork> detachHistoryBefore(LocalDate date) {
+        Map<LocalDate, TaskDailyWork> detached;
+        synchronized (this) {
+            loadHistory();
+            DayHistory history = taskHistory;
+            if (history == null) {
+                return Map.of();
+            }
+            detached = history.removeBefore(date);
+        }
+        if (!detached.isEmpty()) {
+            changed(TaskChange.TIME);
+        }
+        return detached;
+    }
+
+    private void changed(TaskChange change) {
+        changed(change, null);
+    }
+
+    private void changed(TaskChange change, LocalDate date) {
+        TaskChangeListener listener;
+        synchronized (this) {
+            modCount++;
+            listener = changeListener;
+        }
+        if (listener == null) {
+            return;
+        }
+        if (date == null) {
+            listener.onTaskChanged(this, change);
+        } else {
+            listener.onDayChanged(this, date, change);
+        }
+    }
+
+    public void setOrder(int order) {
+        if (this.order != order) {
+            this.order = order;
+            changed(TaskChange.ORDER);
+        }
+    }
+
+    public void setDescription(String description) {
+        if (!Objects.equals(this.description, description)) {
+            this.description = description;
+            changed(TaskChange.FIELD);
+        }
+    }
+
+    public void setJiraUrl(String jiraUrl) {
+        if (!Objects.equals(this.jiraUrl, jiraUrl)) {
+            this.jiraUrl = jiraUrl;
+            changed(TaskChange.FIELD);
+        }
+    }
+
+    public void setSlackUrl(String slackUrl) {
+        if (!Objects.equals(this.slackUrl, slackUrl)) {
+            this.slackUrl = slackUrl;
+            changed(TaskChange.FIELD);
+        }
+    }
+
+    public void setJira(boolean isJira) {
+        if (this.isJira != isJira) {
+            this.isJira = isJira;
+            changed(TaskChange.FIELD);
+        }
+    }
+
+    public void setStatus(TaskStatus status) {
+        if (this.status != status) {
+            this.status = status;
+            changed(TaskChange.STATUS);
+        }
+    }
+
+    public void setTags(List<String> tags) {
+        if (!Objects.equals(this.tags, tags)) {
+            this.tags = tags;
+            changed(TaskChange.FIELD);
+        }
+    }
+
+    /**
+     * Loads the markdown content with {@code loader} the first time it is read.
+     */
+    public synchronized void deferMarkdown(DeferredJson<String> loader) {
+        this.markdownLoader = loader;
+    }
+
+    /**
+     * Loads the history entries before {@code loadedFrom} with {@code loader} the first time one of them is needed.
+     * Entries from {@code loadedFrom} onwards must already be in the history.
+     *
+     * @param deferredFrom  first day of the deferred entries
+     * @param deferredNanos total time of the deferred entries
+     */
+    public synchronized void deferHistory(LocalDate deferredFrom, LocalDate loadedFrom, long deferredNanos,
+            DeferredJson<Map<LocalDate, TaskDailyWork>> loader) {
+        this.historyDeferredFrom = deferredFrom;
+        this.historyLoadedFrom = loadedFrom;
+        this.deferredNanos = deferredNanos;
+        this.historyLoader = loader;
+    }
+
+    @JsonIgnore
+    public synchronized boolean isMarkdownLoaded() {
+        return markdownLoader == null;
+    }
+
+    @JsonIgnore
+    public synchronized boolean isHistoryLoaded() {
+        return historyLoader == null;
+    }
+
+    /**
+     * First day of the loaded history entries while older ones are deferred, {@code null} once all are loaded.
+     */
+    @JsonIgnore
+    public synchronized LocalDate getHistoryLoadedFrom() {
+        return historyLoader == null ? null : historyLoadedFrom;
+    }
+
+    @JsonIgnore
+    public synchronized boolean areTextsReleased() {
+        return textSource != null;
+    }
+
+    /**
+     * Drops the markdown content and the non-empty daily notes from memory, reading them from {@code source} from now
+     * on. Nothing happens if the task changed since {@code version}, as {@code source} may not have its latest texts.
+     * <p>
+     * The storage formats then write these texts as {@code null}. When they were written in full so far, the task is
+     * changed without notifying its listener, the caller being about to save it.
+     *
+     * @return whether the task changed
+     */
+    public synchronized boolean releaseTexts(TextSource source, long version) {
+        if (modCount != version || textSource != null) {
+            return false;
+        }
+        boolean changed = markdownLoader != null || markdownContent != null;
+        markdownLoader = null;
+        markdownContent = null;
+        textSource = source;
+        if (taskHistory != null) {
+            changed |= taskHistory.releaseNotes(source, id);
+        }
+        if (changed) {
+            modCount++;
+        }
+        return changed;
+    }
+
+    /**
+     * Takes the markdown content and the daily notes kept in {@code source} back into memory, {@code source} no longer
+     * being used. The task is changed without notifying its listener, the caller being about to save it.
+     */
+    public synchronized void restoreTexts(TextSource source) {
+        releaseTexts(source, modCount);
+        holdTexts();
+        modCount++;
+    }
+
+    /**
+     * Reads back the texts released by {@link #releaseTexts(TextSource, long)}, before they are edited.
+     */
+    private synchronized void holdTexts() {
+        if (textSource != null) {
+            // Deferred entries are released as they load, they must all be read back now
+            loadHistory();
+            markdownContent = textSource.markdown(id);
+            if (taskHistory != null) {
+                taskHistory.holdNotes();
+            }
+            textSource = null;
+        }
+    }
+
+    @JsonIgnore
+    public String getMarkdownContent() {
+        TextSource source;
+        synchronized (this) {
+            if (textSource == null) {
+                loadMarkdown();
+                return markdownContent;
+            }
+            source = textSource;
+        }
+        return source.markdown(id);
+    }
+
+    /**
+     * The markdown content as written by the storage formats: {@code null} once released. Deferred content is read
+     * without being kept, so that writing the task leaves it as loaded.
+     */
+    @JsonIgnore
+    public synchronized String getStoredMarkdownContent() {
+        return markdownLoader != null ? markdownLoader.get() : markdownContent;
+    }
+
+    @JsonProperty("markdownContent")
+    @JsonSerialize(using = StoredJsonSerializer.class)
+    private synchronized Object getJsonMarkdownContent() {
+        return markdownLoader != null ? markdownLoader : markdownContent;
+    }
+
+    @JsonProperty("markdownContent")
+    public void setMarkdownContent(String markdownContent) {
+        synchronized (this) {
+            holdTexts();
+            if (markdownLoader == null && Objects.equals(this.markdownContent, markdownContent)) {
+                return;
+            }
+            this.markdownLoader = null;
+            this.markdownContent = markdownContent;
+        }
+        changed(TaskChange.NOTE);
+    }
+
+    /**
+     * The whole history, read-only: days change through {@link #putDay}, {@link #removeDay} and the other Task
+     * methods, which mark them for the next save and notify the listener.
+     */
+    @JsonIgnore
+    public Map<LocalDate, TaskDailyWork> getTaskHistory() {
+        loadHistory();
+        return readOnly(taskHistory);
+    }
+
+    /**
+     * The whole history as written by the storage formats, read-only. Deferred entries are read for the caller without
+     * being kept, so that writing the task leaves it as loaded.
+     */
+    @JsonIgnore
+    public synchronized Map<LocalDate, TaskDailyWork> getStoredHistory() {
+        return historyLoader == null ? readOnly(taskHistory) : withDeferred();
+    }
+
+    /**
+     * The days before {@code date}, read-only. Deferred entries are read for the caller without being kept, and only
+     * when some of them are before {@code date}.
+     */
+    public synchronized Map<LocalDate, TaskDailyWork> getHistoryBefore(LocalDate date) {
+        if (taskHistory == null) {
+            return Map.of();
+        }
+        DayHistory history = historyLoader != null && date.isAfter(historyDeferredFrom)
+                ? withDeferred()
+                : new DayHistory(taskHistory);
+        return Collections.unmodifiableMap(history.removeBefore(date));
+    }
+
+    /**
+     * Whether the history has a day from {@code date} on. Deferred entries are only read when the loaded ones cannot
+     * tell.
+     */
+    public synchronized boolean hasHistoryFrom(LocalDate date) {
+        if (taskHistory == null) {
+            return false;
+        }
+        if (taskHistory.hasDayFrom(date) || historyLoader != null && !date.isAfter(historyDeferredFrom)) {
+            return true;
+        }
+        return historyLoader != null && withDeferred().hasDayFrom(date);
+    }
+
+    /**
+     * Copy of the loaded history with the deferred entries added, their notes released like {@link #loadHistory()}
+     * does.
+     */
+    private DayHistory withDeferred() {
+        DayHistory all = new DayHistory(taskHistory);
+        historyLoader.get().forEach((date, work) -> {
+            if (date.isBefore(historyLoadedFrom) && all.putIfAbsent(date, work) == null) {
+                all.releaseNote(date);
             }
-            work.setDuration(duration);
-            return work;
         });
+        return all;
+    }
+
+    @JsonProperty("taskHistory")
+    @JsonSerialize(using = StoredJsonSerializer.class)
+    private synchronized Object getJsonTaskHistory() {
+        return historyLoader == null ? taskHistory
+                : new StoredJsonSerializer.PartlyDeferredHistory(historyLoader, taskHistory);
+    }
+
+    @JsonProperty("taskHistory")
+    public void setTaskHistory(Map<LocalDate, TaskDailyWork> taskHistory) {
+        synchronized (this) {
+            this.historyLoader = null;
+            this.historyLoadedFrom = null;
+            this.taskHistory = toDayHistory(taskHistory);
+        }
+        changed(TaskChange.TIME);
+    }
+
+    /**
+     * The history entries loaded so far, without triggering the deferred ones, read-only.
+     */
+    @JsonIgnore
+    public Map<LocalDate, TaskDailyWork> getLoadedHistory() {
+        return readOnly(taskHistory);
+    }
+
+    private static DayHistory toDayHistory(Map<LocalDate, TaskDailyWork> history) {
+        return history == null || history instanceof DayHistory ? (DayHistory) history : new DayHistory(history);
+    }
+
+    private static Map<LocalDate, TaskDailyWork> readOnly(DayHistory history) {
+        return history == null ? null : Collections.unmodifiableMap(history);
+    }
+
+    /**
+     * Deep copy of the task, dirty as the task is. Deferred parts stay deferred in both tasks.
+     */
+    public synchronized Task copy() {
+        Task copy = Task.builder()
+                .id(id)
+                .order(order)
+                .description(description)
+                .jiraUrl(jiraUrl)
+                .slackUrl(slackUrl)
+                .isJira(isJira)
+                .status(status)
+                .tags(tags == null ? new ArrayList<>() : new ArrayList<>(tags))
+                .taskHistory(taskHistory == null ? null : new DayHistory(taskHistory))
+                .markdownContent(markdownContent)
+                .build();
+        copy.markdownLoader = markdownLoader;
+        copy.historyLoader = historyLoader;
+        copy.historyDeferredFrom = historyDeferredFrom;
+        copy.historyLoadedFrom = historyLoadedFrom;
+        copy.deferredNanos = deferredNanos;
+        copy.archivedTime = archivedTime;
+        copy.textSource = textSource;
+        copy.modCount = modCount;
+        copy.savedModCount = savedModCount;
+        return copy;
+    }
+
+    /**
+     * Whether {@code other} has the same content as this task: all the persisted fields, history and markdown
+     * included. Deferred parts of both are loaded.
+     */
+    public boolean contentEquals(Task other) {
+        if (other == this) {
+            return true;
+        }
+        return other != null
+                && Objects.equals(getId(), other.getId())
+                && getOrder() == other.getOrder()
+                && Objects.equals(getDescription(), other.getDescription())
+                && Objects.equals(getJiraUrl(), other.getJiraUrl())
+                && Objects.equals(getSlackUrl(), other.getSlackUrl())
+                && isJira() == other.isJira()
+                && getStatus() == other.getStatus()
+                && Objects.equals(getTags(), other.getTags())
+                && Objects.equals(getMarkdownContent(), other.getMarkdownContent())
+                && Objects.equals(getTaskHistory(), other.getTaskHistory());
+    }
+
+    /**
+     * Deep copy holding all its texts, for a file that must be complete on its own.
+     */
+    public Task copyWithTexts() {
+        Task copy = copy();
+        copy.holdTexts();
+        return copy;
+    }
+
+    private synchronized void loadMarkdown() {
+        if (markdownLoader != null) {
+            markdownContent = markdownLoader.get();
+            markdownLoader = null;
+        }
+    }
+
+    private synchronized void loadHistory() {
+        if (historyLoader != null) {
+            // Entries from historyLoadedFrom onwards were loaded eagerly and may have changed since
+            historyLoader.get().forEach((date, work) -> {
+                if (date.isBefore(historyLoadedFrom) && taskHistory.putIfAbsent(date, work) == null) {
+                    taskHistory.releaseNote(date);
+                }
+            });
+            historyLoader = null;
+            historyLoadedFrom = null;
+        }
     }
 
+    /**
+     * The history, loaded far enough back to contain {@code date}.
+     */
+    private DayHistory historyFor(LocalDate date) {
+        synchronized (this) {
+            if (historyLoader != null && date.isBefore(historyLoadedFrom)) {
+                loadHistory();
+            }
+        }
+        return taskHistory;
+    }
+
+    /**
+     * Helper to add time to a specific date. Allocation-free once the day exists, as the timer accrues time often.
+     */
+    public void addTime(LocalDate date, Duration duration) {
+        long nanos = duration.toNanos();
+        synchronized (this) {
+            historyFor(date).addNanos(date, nanos);
+        }
+        changed(TaskChange.TIME, date);
+    }
+
+    public void setTime(LocalDate date, Duration duration) {
+        long nanos = duration.toNanos();
+        synchronized (this) {
+            historyFor(date).setNanos(date, nanos);
+        }
+        changed(TaskChange.TIME, date);
+    }
+
+    /**
+     * Total time, without loading the deferred history.
+     */
     @JsonIgnore
-    public Duration getTotalTime() {
-        return taskHistory.values().stream()
-                .map(TaskDailyWork::getDuration)
-                .reduce(Duration.ZERO, Duration::plus);
+    public synchronized Duration getTotalTime() {
+        long loaded = taskHistory == null ? 0 : taskHistory.totalNanos();
+        return getArchivedTime().plusNanos(loaded).plusNanos(historyLoader == null ? 0 : deferredNanos);
     }
 
-    public Duration getTimeForDate(LocalDate date) {
-        TaskDailyWork work = taskHistory.get(date);
-        return work != null ? work.getDuration() : Duration.ZERO;
+    public synchronized Duration getTimeForDate(LocalDate date) {
+        return Duration.ofNanos(historyFor(date).getNanos(date));
+    }
+
+    /**
+     * Time spent between {@code from} and {@code to}, both included, in logarithmic time.
+     */
+    public synchronized Duration getDuration(LocalDate from, LocalDate to) {
+        return Duration.ofNanos(historyFor(from).nanosBetween(from, to));
     }
 
     @JsonIgnore
     public Duration getDurationLast30Days() {
         LocalDate today = LocalDate.now();
-        LocalDate start = today.minusDays(30);
-        return taskHistory.entrySet().stream()
-                .filter(entry -> !entry.getKey().isBefore(start) && !entry.getKey().isAfter(today))
-                .map(entry -> entry.getValue().getDuration())
-                .reduce(Duration.ZERO, Duration::plus);
+        return getDuration(today.minusDays(30), today);
     }
 
     @JsonIgnore
@@ -97,19 +649,54 @@ public class Task {
         return getTimeForDate(LocalDate.now());
     }
 
+    /**
+     * Replaces the day {@code date} with {@code work}, or adds it. The day is marked for the next save.
+     */
+    public void putDay(LocalDate date, TaskDailyWork work) {
+        synchronized (this) {
+            DayHistory history = historyFor(date);
+            history.put(date, work);
+            history.markDirty(date);
+        }
+        changed(TaskChange.TIME, date);
+    }
+
+    /**
+     * Removes the day {@code date} from the history, if there.
+     */
+    public void removeDay(LocalDate date) {
+        boolean removed;
+        synchronized (this) {
+            removed = historyFor(date).remove(date) != null;
+        }
+        if (removed) {
+            changed(TaskChange.TIME, date);
+        }
+    }
+
+    /**
+     * Note of {@code date}, empty when the day is missing. Its slot is found under the lock, as the timer inserts days
+     * meanwhile; a released note is then read from its source outside of it.
+     */
     public String getDailyNote(LocalDate date) {
-        TaskDailyWork work = taskHistory.get(date);
-        return work != null ? work.getNote() : "";
+        TaskDailyWork work;
+        synchronized (this) {
+            work = historyFor(date).get(date);
+        }
+        return work == null ? "" : work.getNote();
     }
 
     public void setDailyNote(LocalDate date, String note) {
-        taskHistory.compute(date, (d, work) -> {
-            if (work == null) {
-                return TaskDailyWork.builder().note(note).build();
+        synchronized (this) {
+            holdTexts();
+            DayHistory history = historyFor(date);
+            if (history.containsKey(date) ? Objects.equals(history.getNote(date), note)
+                    : note == null || note.isEmpty()) {
+                return;
             }
-            work.setNote(note);
-            return work;
-        });
+            history.setNote(date, note);
+        }
+        changed(TaskChange.NOTE, date);
     }
 
     @JsonIgnore
@@ -123,10 +710,14 @@ public class Task {
         return sb.toString();
     }
 
-    @JsonIgnore
-    public String getLabel() {
+    /**
+     * Label of the task at {@code position} in the list, or out of it when negative.
+     */
+    public String getLabel(int position) {
         StringBuilder sb = new StringBuilder();
-        sb.append(this.getOrder()).append(" - ");
+        if (position >= 0) {
+            sb.append(position).append(" - ");
+        }
         if (isJira) {
             sb.append(this.getJiraUrl().substring(this.getJiraUrl().lastIndexOf('/') + 1));
             sb.append(": ");
@@ -135,13 +726,42 @@ public class Task {
         return sb.toString();
     }
 
-    public void cleanupHistory() {
-        taskHistory.entrySet().removeIf(entry -> {
-            TaskDailyWork work = entry.getValue();
-            boolean isShort = work.getDuration().compareTo(Duration.ofMinutes(2)) < 0; // Strictly less than 2 minutes
-            boolean hasNoNote = work.getNote() == null || work.getNote().isBlank();
-            boolean isToday = entry.getKey().equals(LocalDate.now());
-            return !isToday && isShort && hasNoNote;
-        });
+    /**
+     * Drops the given days shorter than {@code minDuration}, unless {@code keepNoted} and they have a note. Days from
+     * {@code today} on are not over yet and are left alone.
+     *
+     * @return the days left alone
+     */
+    public List<LocalDate> compactDays(Collection<LocalDate> days, Duration minDuration, boolean keepNoted,
+            LocalDate today) {
+        List<LocalDate> notOver = new ArrayList<>();
+        boolean removed = false;
+        synchronized (this) {
+            for (LocalDate date : days) {
+                if (!date.isBefore(today)) {
+                    notOver.add(date);
+                } else {
+                    removed |= historyFor(date).removeShortDay(date, minDuration.toNanos(), keepNoted);
+                }
+            }
+        }
+        if (removed) {
+            changed(TaskChange.TIME);
+        }
+        return notOver;
+    }
+
+    /**
+     * Drops all the loaded days before {@code today} shorter than {@code minDuration}, unless {@code keepNoted} and
+     * they have a note, in one pass. Deferred entries are left alone.
+     */
+    public void compactLoadedHistory(Duration minDuration, boolean keepNoted, LocalDate today) {
+        boolean removed;
+        synchronized (this) {
+            removed = taskHistory != null && taskHistory.removeShortDays(minDuration.toNanos(), keepNoted, today);
+        }
+        if (removed) {
+            changed(TaskChange.TIME);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package com.chrono.task.model;
+
+/**
+ * Kind of change made to a task, from the least to the most noticeable for the user.
+ */
+public enum TaskChange {
+    TIME,
+    NOTE,
+    FIELD,
+    STATUS,
+    ORDER;
+}
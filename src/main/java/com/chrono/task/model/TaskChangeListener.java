@@ -0,0 +1,15 @@
+package com.chrono.task.model;
+
+import java.time.LocalDate;
+
+@FunctionalInterface
+public interface TaskChangeListener {
+    void onTaskChanged(Task task, TaskChange change);
+
+    /**
+     * Called instead of {@link #onTaskChanged} when the change is the time or the note of a single day.
+     */
+    default void onDayChanged(Task task, LocalDate date, TaskChange change) {
+        onTaskChanged(task, change);
+    }
+}
@@ -1,24 +1,87 @@
 package com.chrono.task.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.Duration;
+import java.util.function.Supplier;
 
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
+@ToString(doNotUseGetters = true)
+@EqualsAndHashCode(doNotUseGetters = true)
 public class TaskDailyWork {
 
     @Builder.Default
     private Duration duration = Duration.ZERO;
 
+    // Null while the note is released, see getStoredNote
     @Builder.Default
     private String note = "";
 
     @Builder.Default
     private TaskStatus status = TaskStatus.TODO;
+
+    // Set by the Task methods that change this day, cleared once a save covers it, see DayHistory
+    @ToString.Exclude
+    @Setter(AccessLevel.NONE)
+    private transient boolean dirty;
+
+    @ToString.Exclude
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private transient Supplier<String> noteLoader;
+
+    public TaskDailyWork(Duration duration, String note, TaskStatus status, boolean dirty) {
+        this(duration, note, status, dirty, null);
+    }
+
+    @JsonIgnore
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    @JsonIgnore
+    public String getNote() {
+        Supplier<String> loader = noteLoader;
+        return loader != null ? loader.get() : note;
+    }
+
+    @JsonProperty("note")
+    public void setNote(String note) {
+        this.noteLoader = null;
+        this.note = note;
+    }
+
+    /**
+     * The note as written by the storage formats: {@code null} once released to a text store.
+     */
+    @JsonProperty("note")
+    public String getStoredNote() {
+        return noteLoader != null ? null : note;
+    }
+
+    @JsonIgnore
+    boolean isNoteReleased() {
+        return noteLoader != null;
+    }
+
+    Supplier<String> noteLoader() {
+        return noteLoader;
+    }
+
+    public TaskDailyWork copy() {
+        return new TaskDailyWork(duration, note, status, dirty, noteLoader);
+    }
 }
@@ -0,0 +1,14 @@
+package com.chrono.task.model;
+
+import java.time.LocalDate;
+
+/**
+ * Where the markdown content and the daily notes of a task are read from once they are no longer held in memory, see
+ * {@link Task#releaseTexts(TextSource, long)}.
+ */
+public interface TextSource {
+
+    String markdown(String taskId);
+
+    String note(String taskId, LocalDate date);
+}
@@ -0,0 +1,306 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.DayHistory;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskDailyWork;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for DONE tasks and old history, kept out of the task list and the regular saves.
+ * <p>
+ * Each archiving pass writes one gzip-compressed segment under {@code archive/}. A segment holds whole tasks and
+ * history-only parts of tasks still in the list. The small {@code index.json} says which task is in which segment,
+ * the dates each segment covers and how much archived time each task has, so segments are only read when a report or
+ * a search reaches into them.
+ */
+public class ArchiveStore {
+
+    public static final String ARCHIVE_DIR = "archive";
+    private static final String INDEX_FILE = "index.json";
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.json\\.gz");
+
+    private record Entry(String taskId, boolean whole, Duration archivedTime) {
+    }
+
+    private record Segment(String file, LocalDate from, LocalDate to, List<Entry> entries) {
+
+        boolean overlaps(LocalDate start, LocalDate end) {
+            return from != null && !from.isAfter(end) && !to.isBefore(start);
+        }
+    }
+
+    private final Path dir;
+    private final ObjectMapper mapper;
+    private final AtomicFileWriter writer = new AtomicFileWriter();
+    private final List<Segment> segments = new ArrayList<>();
+    // Segments read so far, by file name
+    private final Map<String, Map<String, Task>> loaded = new HashMap<>();
+
+    private ArchiveStore(Path dir) {
+        this.dir = dir;
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+    }
+
+    public static ArchiveStore open(File dataDir) throws IOException {
+        ArchiveStore store = new ArchiveStore(dataDir.toPath().resolve(ARCHIVE_DIR));
+        Path index = store.dir.resolve(INDEX_FILE);
+        if (Files.exists(index)) {
+            for (JsonNode segment : store.mapper.readTree(index.toFile()).path("segments")) {
+                List<Entry> entries = new ArrayList<>();
+                for (JsonNode entry : segment.path("entries")) {
+                    entries.add(new Entry(entry.path("id").asText(), entry.path("whole").asBoolean(),
+                            Duration.ofSeconds(entry.path("seconds").asLong(), entry.path("nanos").asInt())));
+                }
+                store.segments.add(new Segment(segment.path("file").asText(), date(segment.path("from")),
+                        date(segment.path("to")), entries));
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Total archived history of a task still in the list.
+     */
+    public synchronized Duration archivedTime(String taskId) {
+        Duration total = Duration.ZERO;
+        for (Segment segment : segments) {
+            for (Entry entry : segment.entries()) {
+                if (!entry.whole() && entry.taskId().equals(taskId)) {
+                    total = total.plus(entry.archivedTime());
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Writes a new segment with {@code tasks} moved out of the list and {@code histories} moved out of the tasks left
+     * in it.
+     */
+    public synchronized void write(List<Task> tasks, Map<String, Map<LocalDate, TaskDailyWork>> histories)
+            throws IOException {
+        List<Task> content = new ArrayList<>();
+        List<Entry> entries = new ArrayList<>();
+        LocalDate from = null;
+        LocalDate to = null;
+        for (Task task : tasks) {
+            content.add(task);
+            entries.add(new Entry(task.getId(), true, Duration.ZERO));
+        }
+        for (var history : histories.entrySet()) {
+            Task part = new Task();
+            part.setId(history.getKey());
+            part.setTaskHistory(new DayHistory(history.getValue()));
+            content.add(part);
+            entries.add(new Entry(history.getKey(), false, total(history.getValue())));
+        }
+        for (Task task : content) {
+            if (task.getTaskHistory() == null) {
+                continue;
+            }
+            for (LocalDate date : task.getTaskHistory().keySet()) {
+                from = from == null || date.isBefore(from) ? date : from;
+                to = to == null || date.isAfter(to) ? date : to;
+            }
+        }
+
+        Files.createDirectories(dir);
+        String file = nextSegmentFile();
+        DataStore data = new DataStore(content);
+        writer.write(dir.resolve(file), out -> {
+            GZIPOutputStream gzip = new GZIPOutputStream(out);
+            mapper.writeValue(gzip, data);
+            gzip.finish();
+        });
+        segments.add(new Segment(file, from, to, entries));
+        writeIndex();
+    }
+
+    /**
+     * Whole tasks currently archived, reading the segments not read yet.
+     */
+    public synchronized List<Task> archivedTasks() throws IOException {
+        Map<String, Task> tasks = new LinkedHashMap<>();
+        for (Segment segment : segments) {
+            for (Entry entry : segment.entries()) {
+                Task task = entry.whole() ? read(segment).get(entry.taskId()) : null;
+                // An entry whose task is missing from its segment is skipped
+                if (task != null) {
+                    tasks.put(entry.taskId(), task);
+                }
+            }
+        }
+        tasks.values().forEach(task -> task.setArchivedTime(archivedTime(task.getId())));
+        return new ArrayList<>(tasks.values());
+    }
+
+    /**
+     * Archived daily work between {@code from} and {@code to}, both included. Only the segments covering these dates
+     * are read.
+     *
+     * @param restored tasks back in the list whose whole-task entries are not forgotten yet
+     */
+    public synchronized List<WorkQueries.DayWork> workBetween(LocalDate from, LocalDate to,
+            Collection<String> restored) throws IOException {
+        List<WorkQueries.DayWork> work = new ArrayList<>();
+        for (Segment segment : segments) {
+            if (!segment.overlaps(from, to)) {
+                continue;
+            }
+            Map<String, Task> tasks = read(segment);
+            for (Entry entry : segment.entries()) {
+                if (entry.whole() && restored.contains(entry.taskId())) {
+                    continue;
+                }
+                Task task = tasks.get(entry.taskId());
+                Map<LocalDate, TaskDailyWork> history = task == null ? null : task.getTaskHistory();
+                if (history == null) {
+                    continue;
+                }
+                history.forEach((date, day) -> {
+                    if (!date.isBefore(from) && !date.isAfter(to)) {
+                        work.add(new WorkQueries.DayWork(entry.taskId(), date,
+                                day.getDuration() == null ? Duration.ZERO : day.getDuration(), day.getNote()));
+                    }
+                });
+            }
+        }
+        work.sort((a, b) -> a.date().compareTo(b.date()));
+        return work;
+    }
+
+    /**
+     * Drops the whole-task entries of {@code taskIds}, once these tasks are back in the list.
+     */
+    public synchronized void forget(Collection<String> taskIds) throws IOException {
+        boolean changed = false;
+        for (Segment segment : segments) {
+            changed |= segment.entries().removeIf(entry -> entry.whole() && taskIds.contains(entry.taskId()));
+        }
+        if (changed) {
+            writeIndex();
+        }
+    }
+
+    /**
+     * Drops the history-only entries of the last segment whose days are all still in their task, a crash having kept
+     * the tasks from being saved without them. Only the last segment can be in that state, as archiving again starts
+     * with this check.
+     *
+     * @param listed tasks of the list by id
+     */
+    public synchronized void forgetUnsavedHistories(Map<String, Task> listed) throws IOException {
+        if (segments.isEmpty()) {
+            return;
+        }
+        Segment last = segments.get(segments.size() - 1);
+        List<Entry> unsaved = new ArrayList<>();
+        for (Entry entry : last.entries()) {
+            Task task = entry.whole() ? null : listed.get(entry.taskId());
+            if (task == null) {
+                continue;
+            }
+            Task part = read(last).get(entry.taskId());
+            Map<LocalDate, TaskDailyWork> archived = part == null ? null : part.getTaskHistory();
+            if (archived != null && !archived.isEmpty()
+                    && task.getHistoryBefore(last.to().plusDays(1)).keySet().containsAll(archived.keySet())) {
+                unsaved.add(entry);
+            }
+        }
+        if (!unsaved.isEmpty()) {
+            last.entries().removeAll(unsaved);
+            writeIndex();
+        }
+    }
+
+    public synchronized boolean isEmpty() {
+        return segments.stream().allMatch(segment -> segment.entries().isEmpty());
+    }
+
+    /**
+     * Name of a segment after all the ones on disk, including those a crash left out of the index, so that none of
+     * them is overwritten.
+     */
+    private String nextSegmentFile() throws IOException {
+        int last = 0;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Matcher matcher = SEGMENT_FILE.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    last = Math.max(last, Integer.parseInt(matcher.group(1)));
+                }
+            }
+        }
+        return String.format("segment-%05d.json.gz", last + 1);
+    }
+
+    private Map<String, Task> read(Segment segment) throws IOException {
+        Map<String, Task> tasks = loaded.get(segment.file());
+        if (tasks == null) {
+            tasks = new HashMap<>();
+            try (InputStream in = new GZIPInputStream(Files.newInputStream(dir.resolve(segment.file())))) {
+                for (Task task : mapper.readValue(in, DataStore.class).getTasks()) {
+                    tasks.put(task.getId(), task);
+                }
+            }
+            loaded.put(segment.file(), tasks);
+        }
+        return tasks;
+    }
+
+    private void writeIndex() throws IOException {
+        ObjectNode index = mapper.createObjectNode();
+        ArrayNode segmentNodes = index.putArray("segments");
+        for (Segment segment : segments) {
+            ObjectNode node = segmentNodes.addObject();
+            node.put("file", segment.file());
+            node.put("from", segment.from() == null ? null : segment.from().toString());
+            node.put("to", segment.to() == null ? null : segment.to().toString());
+            ArrayNode entries = node.putArray("entries");
+            for (Entry entry : segment.entries()) {
+                entries.addObject()
+                        .put("id", entry.taskId())
+                        .put("whole", entry.whole())
+                        .put("seconds", entry.archivedTime().getSeconds())
+                        .put("nanos", entry.archivedTime().getNano());
+            }
+        }
+        writer.write(dir.resolve(INDEX_FILE), mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(index));
+    }
+
+    private static Duration total(Map<LocalDate, TaskDailyWork> history) {
+        return history.values().stream()
+                .map(TaskDailyWork::getDuration)
+                .filter(duration -> duration != null)
+                .reduce(Duration.ZERO, Duration::plus);
+    }
+
+    private static LocalDate date(JsonNode node) {
+        return node.isTextual() ? LocalDate.parse(node.asText()) : null;
+    }
+}
@@ -0,0 +1,77 @@
+package com.chrono.task.persistence;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Replaces files so that a crash leaves either the old or the new content, never a mix of both.
+ * <p>
+ * Content is serialized into a buffer reused across writes, written to a temporary sibling file, forced to disk and
+ * then atomically renamed over the target.
+ */
+public class AtomicFileWriter {
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final ReusableBuffer buffer = new ReusableBuffer();
+
+    @FunctionalInterface
+    public interface Content {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    public synchronized void write(Path target, Content content) throws IOException {
+        buffer.reset();
+        content.writeTo(buffer);
+        write(target, buffer.asByteBuffer());
+    }
+
+    public synchronized void write(Path target, byte[] bytes) throws IOException {
+        write(target, ByteBuffer.wrap(bytes));
+    }
+
+    private void write(Path target, ByteBuffer bytes) throws IOException {
+        Path tmp = target.resolveSibling(target.getFileName() + TMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Makes the rename itself durable. Not every platform allows opening a directory, which is fine to ignore.
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Best effort
+        }
+    }
+
+    /**
+     * Exposes the written bytes without the copy made by {@link ByteArrayOutputStream#toByteArray()}.
+     */
+    private static class ReusableBuffer extends ByteArrayOutputStream {
+
+        ReusableBuffer() {
+            super(64 * 1024);
+        }
+
+        ByteBuffer asByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
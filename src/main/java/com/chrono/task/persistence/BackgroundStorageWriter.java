@@ -0,0 +1,154 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Saves snapshots on a dedicated thread so callers never wait for the disk.
+ * <p>
+ * Only the latest snapshot matters: when several are submitted while a save is running, the older ones are dropped
+ * and the next save covers them. Their callbacks run with the outcome of that save.
+ */
+public class BackgroundStorageWriter {
+
+    private final StorageService storageService;
+    private final ExecutorService executor;
+
+    private final Object lock = new Object();
+    private DataStore pending;
+    private final List<Callback> pendingCallbacks = new ArrayList<>();
+    private boolean draining;
+    private long submitted;
+    private long completed;
+    private long superseded;
+
+    private record Callback(Runnable onWritten, Consumer<IOException> onFailed) {
+    }
+
+    public BackgroundStorageWriter(StorageService storageService) {
+        this.storageService = storageService;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Storage-Writer");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void submit(DataStore snapshot, Runnable onWritten, Consumer<IOException> onFailed) {
+        synchronized (lock) {
+            if (pending != null) {
+                superseded++;
+            }
+            pending = snapshot;
+            pendingCallbacks.add(new Callback(onWritten, onFailed));
+            submitted++;
+            if (!draining) {
+                draining = true;
+                executor.execute(this::drain);
+            }
+        }
+    }
+
+    /**
+     * Waits until every snapshot submitted so far is written or dropped in favor of a newer one.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (lock) {
+            long target = submitted;
+            while (completed < target) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+
+    public long getSupersededCount() {
+        synchronized (lock) {
+            return superseded;
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void drain() {
+        boolean idle = false;
+        try {
+            while (!idle) {
+                idle = drainOne();
+            }
+        } finally {
+            if (!idle) {
+                // Something escaped a save, the next submit starts draining again
+                synchronized (lock) {
+                    draining = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the pending snapshot and runs its callbacks.
+     *
+     * @return true once nothing is pending, draining being over
+     */
+    private boolean drainOne() {
+        DataStore snapshot;
+        List<Callback> callbacks;
+        long sequence;
+        synchronized (lock) {
+            if (pending == null) {
+                draining = false;
+                return true;
+            }
+            snapshot = pending;
+            pending = null;
+            callbacks = new ArrayList<>(pendingCallbacks);
+            pendingCallbacks.clear();
+            sequence = submitted;
+        }
+
+        try {
+            IOException failure = null;
+            try {
+                storageService.save(snapshot);
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException("Save failed", e);
+            }
+            for (Callback callback : callbacks) {
+                try {
+                    if (failure == null) {
+                        callback.onWritten().run();
+                    } else {
+                        callback.onFailed().accept(failure);
+                    }
+                } catch (RuntimeException e) {
+                    e.printStackTrace(); // The other callbacks and the later saves still run
+                }
+            }
+        } finally {
+            synchronized (lock) {
+                completed = sequence;
+                lock.notifyAll();
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,298 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.DayHistory;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskDailyWork;
+import com.chrono.task.model.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.BufferUnderflowException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stores tasks in a compact binary file.
+ * <p>
+ * Numbers are variable-length integers, history dates are deltas between epoch days of the sorted entries, durations
+ * are second counts (plus nanoseconds only when present) and statuses are indexes into a table of names stored once
+ * in the header. The file is written atomically, like {@code data.json}.
+ */
+public class BinaryStorageService implements StorageService {
+
+    private static final int MAGIC = 0x43485242; // "CHRB"
+    private static final int VERSION = 1;
+
+    // Flags of a history entry
+    private static final int DURATION_NULL = 1;
+    private static final int HAS_NANOS = 2;
+    private static final int NOTE_NULL = 4;
+    private static final int HAS_NOTE = 8;
+
+    private final File file;
+    private final AtomicFileWriter writer = new AtomicFileWriter();
+
+    public BinaryStorageService(String filePath) {
+        this.file = new File(filePath);
+    }
+
+    @Override
+    public DataStore load() throws IOException {
+        if (!file.exists()) {
+            return new DataStore();
+        }
+        try {
+            return read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Corrupted binary data file " + file, e);
+        }
+    }
+
+    @Override
+    public void save(DataStore data) throws IOException {
+        writer.write(file.toPath(), out -> write(data, out));
+    }
+
+    private static void write(DataStore data, OutputStream stream) throws IOException {
+        Encoder out = new Encoder(stream);
+        out.writeInt(MAGIC);
+        out.writeVarInt(VERSION);
+
+        TaskStatus[] statuses = TaskStatus.values();
+        out.writeVarInt(statuses.length);
+        for (TaskStatus status : statuses) {
+            out.writeString(status.name());
+        }
+
+        List<Task> tasks = data.getTasks();
+        out.writeVarInt(tasks.size());
+        for (Task task : tasks) {
+            out.writeString(task.getId());
+            out.writeSignedVarLong(task.getOrder());
+            out.writeString(task.getDescription());
+            out.writeString(task.getJiraUrl());
+            out.writeString(task.getSlackUrl());
+            out.writeVarInt(task.isJira() ? 1 : 0);
+            out.writeStatus(task.getStatus());
+
+            List<String> tags = task.getTags();
+            out.writeVarInt(tags == null ? 0 : tags.size() + 1);
+            if (tags != null) {
+                for (String tag : tags) {
+                    out.writeString(tag);
+                }
+            }
+
+            out.writeString(task.getStoredMarkdownContent());
+
+            Map<LocalDate, TaskDailyWork> history = task.getStoredHistory();
+            out.writeVarInt(history == null ? 0 : history.size() + 1);
+            if (history != null) {
+                // Days come in date order
+                long previousDay = 0;
+                for (Map.Entry<LocalDate, TaskDailyWork> entry : history.entrySet()) {
+                    TaskDailyWork work = entry.getValue();
+                    long epochDay = entry.getKey().toEpochDay();
+                    out.writeSignedVarLong(epochDay - previousDay);
+                    previousDay = epochDay;
+                    writeDay(out, work);
+                }
+            }
+        }
+    }
+
+    private static void writeDay(Encoder out, TaskDailyWork work) throws IOException {
+        Duration duration = work.getDuration();
+        String note = work.getStoredNote();
+        int flags = 0;
+        if (duration == null) {
+            flags |= DURATION_NULL;
+        } else if (duration.getNano() != 0) {
+            flags |= HAS_NANOS;
+        }
+        if (note == null) {
+            flags |= NOTE_NULL;
+        } else if (!note.isEmpty()) {
+            flags |= HAS_NOTE;
+        }
+        out.writeVarInt(flags);
+        if (duration != null) {
+            out.writeSignedVarLong(duration.getSeconds());
+            if (duration.getNano() != 0) {
+                out.writeVarInt(duration.getNano());
+            }
+        }
+        if ((flags & HAS_NOTE) != 0) {
+            out.writeString(note);
+        }
+        out.writeStatus(work.getStatus());
+    }
+
+    private static DataStore read(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC) {
+            throw new IOException("Not a binary data file");
+        }
+        int version = readVarInt(in);
+        if (version != VERSION) {
+            throw new IOException("Unsupported binary data file version " + version);
+        }
+
+        TaskStatus[] statuses = new TaskStatus[readVarInt(in)];
+        for (int i = 0; i < statuses.length; i++) {
+            statuses[i] = TaskStatus.valueOf(readString(in));
+        }
+
+        int taskCount = readVarInt(in);
+        List<Task> tasks = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            Task task = new Task();
+            task.setId(readString(in));
+            task.setOrder((int) readSignedVarLong(in));
+            task.setDescription(readString(in));
+            task.setJiraUrl(readString(in));
+            task.setSlackUrl(readString(in));
+            task.setJira(readVarInt(in) != 0);
+            task.setStatus(readStatus(in, statuses));
+
+            int tagCount = readVarInt(in) - 1;
+            if (tagCount < 0) {
+                task.setTags(null);
+            } else {
+                List<String> tags = new ArrayList<>(tagCount);
+                for (int t = 0; t < tagCount; t++) {
+                    tags.add(readString(in));
+                }
+                task.setTags(tags);
+            }
+
+            task.setMarkdownContent(readString(in));
+
+            int dayCount = readVarInt(in) - 1;
+            if (dayCount < 0) {
+                task.setTaskHistory(null);
+            } else {
+                DayHistory history = new DayHistory();
+                long epochDay = 0;
+                for (int d = 0; d < dayCount; d++) {
+                    epochDay += readSignedVarLong(in);
+                    history.put(LocalDate.ofEpochDay(epochDay), readDay(in, statuses));
+                }
+                task.setTaskHistory(history);
+            }
+            tasks.add(task);
+        }
+        return new DataStore(tasks);
+    }
+
+    private static TaskDailyWork readDay(ByteBuffer in, TaskStatus[] statuses) {
+        int flags = readVarInt(in);
+        Duration duration = null;
+        if ((flags & DURATION_NULL) == 0) {
+            long seconds = readSignedVarLong(in);
+            int nanos = (flags & HAS_NANOS) != 0 ? readVarInt(in) : 0;
+            duration = Duration.ofSeconds(seconds, nanos);
+        }
+        String note = (flags & NOTE_NULL) != 0 ? null : (flags & HAS_NOTE) != 0 ? readString(in) : "";
+        return new TaskDailyWork(duration, note, readStatus(in, statuses), false);
+    }
+
+    private static TaskStatus readStatus(ByteBuffer in, TaskStatus[] statuses) {
+        int index = readVarInt(in);
+        return index == 0 ? null : statuses[index - 1];
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = readVarInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        long value = readVarLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid length or index " + value);
+        }
+        return (int) value;
+    }
+
+    private static long readSignedVarLong(ByteBuffer in) {
+        long value = readVarLong(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed variable-length integer");
+    }
+
+    /**
+     * Writes varints and length-prefixed strings. Lengths and counts are stored plus one, so that zero means null.
+     */
+    private static final class Encoder {
+
+        private final OutputStream out;
+        private final byte[] scratch = new byte[10];
+
+        Encoder(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeInt(int value) throws IOException {
+            out.write(value >>> 24);
+            out.write(value >>> 16);
+            out.write(value >>> 8);
+            out.write(value);
+        }
+
+        void writeVarInt(int value) throws IOException {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeSignedVarLong(long value) throws IOException {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeVarLong(long value) throws IOException {
+            int length = 0;
+            while ((value & ~0x7FL) != 0) {
+                scratch[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            scratch[length++] = (byte) value;
+            out.write(scratch, 0, length);
+        }
+
+        void writeString(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarInt(bytes.length + 1);
+            out.write(bytes);
+        }
+
+        void writeStatus(TaskStatus status) throws IOException {
+            writeVarInt(status == null ? 0 : status.ordinal() + 1);
+        }
+    }
+}
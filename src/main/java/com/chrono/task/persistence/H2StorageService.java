@@ -0,0 +1,321 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.DayHistory;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskDailyWork;
+import com.chrono.task.model.TaskStatus;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Stores tasks in an embedded H2 database, with tables for tasks, tags and daily work indexed by date and tag.
+ * <p>
+ * A save only writes the tasks and days that changed, in one transaction. Date range and per-tag reports are answered
+ * by SQL through {@link WorkQueries} instead of probing every task for every date.
+ */
+public class H2StorageService implements StorageService, WorkQueries {
+
+    /**
+     * Database file written by H2 for a {@code data} database.
+     */
+    public static final String DATABASE_FILE = "data.mv.db";
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS tasks (id VARCHAR PRIMARY KEY, ord INT NOT NULL, description VARCHAR, "
+                    + "jira_url VARCHAR, slack_url VARCHAR, is_jira BOOLEAN NOT NULL, status VARCHAR, markdown CLOB)",
+            "CREATE TABLE IF NOT EXISTS task_tags (task_id VARCHAR NOT NULL, position INT NOT NULL, "
+                    + "tag VARCHAR NOT NULL, PRIMARY KEY (task_id, position))",
+            "CREATE INDEX IF NOT EXISTS task_tags_tag ON task_tags (tag)",
+            "CREATE TABLE IF NOT EXISTS daily_work (task_id VARCHAR NOT NULL, work_date DATE NOT NULL, seconds BIGINT, "
+                    + "nanos INT, note VARCHAR, status VARCHAR, PRIMARY KEY (task_id, work_date))",
+            "CREATE INDEX IF NOT EXISTS daily_work_date ON daily_work (work_date)"
+    };
+
+    private final String url;
+    private Connection connection;
+    // Days stored per task, to find the days a save has to delete
+    private final Map<String, Set<LocalDate>> persistedDays = new HashMap<>();
+
+    /**
+     * @param databasePath path of the database without the {@code .mv.db} extension
+     */
+    public H2StorageService(String databasePath) {
+        this.url = "jdbc:h2:file:" + databasePath + ";DB_CLOSE_ON_EXIT=FALSE";
+    }
+
+    @Override
+    public synchronized DataStore load() throws IOException {
+        try {
+            Connection conn = connection();
+            Map<String, Task> tasks = new LinkedHashMap<>();
+            // Filled in before the tasks are handed out
+            Map<String, DayHistory> histories = new HashMap<>();
+            try (Statement st = conn.createStatement()) {
+                try (ResultSet rs = st.executeQuery("SELECT id, ord, description, jira_url, slack_url, is_jira, "
+                        + "status, markdown FROM tasks ORDER BY ord")) {
+                    while (rs.next()) {
+                        Task task = new Task();
+                        task.setId(rs.getString(1));
+                        task.setOrder(rs.getInt(2));
+                        task.setDescription(rs.getString(3));
+                        task.setJiraUrl(rs.getString(4));
+                        task.setSlackUrl(rs.getString(5));
+                        task.setJira(rs.getBoolean(6));
+                        task.setStatus(status(rs.getString(7)));
+                        task.setMarkdownContent(rs.getString(8));
+                        task.setTags(new ArrayList<>());
+                        DayHistory history = new DayHistory();
+                        task.setTaskHistory(history);
+                        tasks.put(task.getId(), task);
+                        histories.put(task.getId(), history);
+                    }
+                }
+                try (ResultSet rs = st.executeQuery("SELECT task_id, tag FROM task_tags ORDER BY task_id, position")) {
+                    while (rs.next()) {
+                        Task task = tasks.get(rs.getString(1));
+                        if (task != null) {
+                            task.getTags().add(rs.getString(2));
+                        }
+                    }
+                }
+                try (ResultSet rs = st.executeQuery("SELECT task_id, work_date, seconds, nanos, note, status "
+                        + "FROM daily_work")) {
+                    while (rs.next()) {
+                        DayHistory history = histories.get(rs.getString(1));
+                        if (history != null) {
+                            history.put(rs.getObject(2, LocalDate.class), new TaskDailyWork(
+                                    duration(rs, 3), rs.getString(5), status(rs.getString(6)), false));
+                        }
+                    }
+                }
+            }
+            persistedDays.clear();
+            tasks.values().forEach(task -> persistedDays.put(task.getId(),
+                    new HashSet<>(task.getLoadedHistory().keySet())));
+            return new DataStore(new ArrayList<>(tasks.values()));
+        } catch (SQLException e) {
+            throw new IOException("Failed to load tasks from " + url, e);
+        }
+    }
+
+    @Override
+    public synchronized void save(DataStore data) throws IOException {
+        try {
+            Connection conn = connection();
+            Map<String, Set<LocalDate>> written = new HashMap<>(persistedDays);
+            try {
+                Set<String> seen = new HashSet<>();
+                for (Task task : data.getTasks()) {
+                    seen.add(task.getId());
+                    if (!persistedDays.containsKey(task.getId()) || task.isDirty()) {
+                        written.put(task.getId(), writeTask(conn, task, persistedDays.get(task.getId())));
+                    }
+                }
+                for (String id : persistedDays.keySet()) {
+                    if (!seen.contains(id)) {
+                        deleteTask(conn, id);
+                        written.remove(id);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+            persistedDays.clear();
+            persistedDays.putAll(written);
+        } catch (SQLException e) {
+            throw new IOException("Failed to save tasks to " + url, e);
+        }
+    }
+
+    @Override
+    public synchronized List<DayWork> workBetween(LocalDate from, LocalDate to) throws IOException {
+        List<DayWork> work = new ArrayList<>();
+        try (PreparedStatement ps = connection().prepareStatement("SELECT d.task_id, d.work_date, d.seconds, "
+                + "d.nanos, d.note FROM daily_work d JOIN tasks t ON t.id = d.task_id "
+                + "WHERE d.work_date BETWEEN ? AND ? ORDER BY t.ord, d.work_date")) {
+            ps.setObject(1, from);
+            ps.setObject(2, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    Duration duration = duration(rs, 3);
+                    work.add(new DayWork(rs.getString(1), rs.getObject(2, LocalDate.class),
+                            duration == null ? Duration.ZERO : duration, rs.getString(5)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to query work between " + from + " and " + to, e);
+        }
+        return work;
+    }
+
+    @Override
+    public synchronized Map<String, Duration> totalsByTag(LocalDate from, LocalDate to) throws IOException {
+        Map<String, Duration> totals = new LinkedHashMap<>();
+        // A tag given twice to a task counts its time once
+        try (PreparedStatement ps = connection().prepareStatement("SELECT g.tag, SUM(d.seconds), SUM(d.nanos) "
+                + "FROM (SELECT DISTINCT task_id, tag FROM task_tags) g "
+                + "JOIN daily_work d ON d.task_id = g.task_id "
+                + "WHERE d.work_date BETWEEN ? AND ? GROUP BY g.tag ORDER BY g.tag")) {
+            ps.setObject(1, from);
+            ps.setObject(2, to);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getString(1), Duration.ofSeconds(rs.getLong(2)).plusNanos(rs.getLong(3)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IOException("Failed to query tag totals between " + from + " and " + to, e);
+        }
+        return totals;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            throw new IOException("Failed to close " + url, e);
+        } finally {
+            connection = null;
+        }
+    }
+
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            connection = DriverManager.getConnection(url, "sa", "");
+            try (Statement st = connection.createStatement()) {
+                for (String ddl : SCHEMA) {
+                    st.execute(ddl);
+                }
+            }
+            connection.setAutoCommit(false);
+        }
+        return connection;
+    }
+
+    /**
+     * Writes a changed task, only touching the days that changed when the task is already stored.
+     *
+     * @return the days now stored for the task
+     */
+    private Set<LocalDate> writeTask(Connection conn, Task task, Set<LocalDate> storedDays) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("MERGE INTO tasks (id, ord, description, jira_url, "
+                + "slack_url, is_jira, status, markdown) KEY (id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            ps.setString(1, task.getId());
+            ps.setInt(2, task.getOrder());
+            ps.setString(3, task.getDescription());
+            ps.setString(4, task.getJiraUrl());
+            ps.setString(5, task.getSlackUrl());
+            ps.setBoolean(6, task.isJira());
+            ps.setString(7, task.getStatus() == null ? null : task.getStatus().name());
+            ps.setString(8, task.getStoredMarkdownContent());
+            ps.executeUpdate();
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM task_tags WHERE task_id = ?")) {
+            ps.setString(1, task.getId());
+            ps.executeUpdate();
+        }
+        List<String> tags = task.getTags();
+        if (tags != null && !tags.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "INSERT INTO task_tags (task_id, position, tag) VALUES (?, ?, ?)")) {
+                for (int i = 0; i < tags.size(); i++) {
+                    ps.setString(1, task.getId());
+                    ps.setInt(2, i);
+                    ps.setString(3, tags.get(i));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        Map<LocalDate, TaskDailyWork> history = task.getStoredHistory();
+        Set<LocalDate> days = history == null ? new HashSet<>() : new HashSet<>(history.keySet());
+        if (history != null) {
+            try (PreparedStatement ps = conn.prepareStatement("MERGE INTO daily_work (task_id, work_date, seconds, "
+                    + "nanos, note, status) KEY (task_id, work_date) VALUES (?, ?, ?, ?, ?, ?)")) {
+                for (Map.Entry<LocalDate, TaskDailyWork> entry : history.entrySet()) {
+                    TaskDailyWork work = entry.getValue();
+                    if (storedDays != null && storedDays.contains(entry.getKey()) && !work.isDirty()) {
+                        continue;
+                    }
+                    ps.setString(1, task.getId());
+                    ps.setObject(2, entry.getKey());
+                    if (work.getDuration() == null) {
+                        ps.setNull(3, Types.BIGINT);
+                        ps.setNull(4, Types.INTEGER);
+                    } else {
+                        ps.setLong(3, work.getDuration().getSeconds());
+                        ps.setInt(4, work.getDuration().getNano());
+                    }
+                    ps.setString(5, work.getStoredNote());
+                    ps.setString(6, work.getStatus() == null ? null : work.getStatus().name());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+        if (storedDays != null) {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "DELETE FROM daily_work WHERE task_id = ? AND work_date = ?")) {
+                for (LocalDate day : storedDays) {
+                    if (!days.contains(day)) {
+                        ps.setString(1, task.getId());
+                        ps.setObject(2, day);
+                        ps.addBatch();
+                    }
+                }
+                ps.executeBatch();
+            }
+        }
+        return days;
+    }
+
+    private static void deleteTask(Connection conn, String id) throws SQLException {
+        for (String table : new String[] { "daily_work", "task_tags" }) {
+            try (PreparedStatement ps = conn.prepareStatement("DELETE FROM " + table + " WHERE task_id = ?")) {
+                ps.setString(1, id);
+                ps.executeUpdate();
+            }
+        }
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM tasks WHERE id = ?")) {
+            ps.setString(1, id);
+            ps.executeUpdate();
+        }
+    }
+
+    private static Duration duration(ResultSet rs, int secondsColumn) throws SQLException {
+        long seconds = rs.getLong(secondsColumn);
+        if (rs.wasNull()) {
+            return null;
+        }
+        return Duration.ofSeconds(seconds, rs.getInt(secondsColumn + 1));
+    }
+
+    private static TaskStatus status(String name) {
+        return name == null ? null : TaskStatus.valueOf(name);
+    }
+}
@@ -0,0 +1,505 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskDailyWork;
+import com.chrono.task.model.TaskStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores tasks as a JSON snapshot plus an append-only journal of changes.
+ * <p>
+ * Each save diffs the dirty tasks against what is already on disk and appends one small record per changed field or
+ * day, so the bytes written follow the size of the change rather than the size of the data. Records carry absolute
+ * values, which makes replaying them idempotent. Once the journal grows past a threshold it is folded into the
+ * snapshot on a background thread.
+ */
+public class JournalStorageService implements StorageService {
+
+    static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024;
+
+    private final Path journalFile;
+    private final long compactionThreshold;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final JsonStorageService snapshotStorage;
+    private final AtomicFileWriter journalWriter = new AtomicFileWriter();
+    private final ExecutorService compactor;
+
+    private final Object lock = new Object();
+    // Copy of the state described by snapshot + journal, used to compute the next diff
+    private final Map<String, Task> persisted = new LinkedHashMap<>();
+    private long journalSize;
+    private boolean compacting;
+    // Set when an append failed after the persisted copy was already updated
+    private boolean needsRewrite;
+    // Bumped by each rewrite, so a compaction started before it is abandoned
+    private long rewrites;
+
+    public JournalStorageService(String snapshotPath, String journalPath) {
+        this(snapshotPath, journalPath, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    JournalStorageService(String snapshotPath, String journalPath, long compactionThreshold) {
+        this.journalFile = Path.of(journalPath);
+        this.compactionThreshold = compactionThreshold;
+        this.snapshotStorage = new JsonStorageService(snapshotPath);
+        // Records are separated by explicit newlines, see endRecord
+        this.mapper.getFactory().setRootValueSeparator(null);
+        this.compactor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Journal-Compactor");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @Override
+    public DataStore load() throws IOException {
+        synchronized (lock) {
+            Map<String, Task> tasks = new LinkedHashMap<>();
+            for (Task task : snapshotStorage.load().getTasks()) {
+                tasks.put(task.getId(), task);
+            }
+            replayJournal(tasks);
+
+            persisted.clear();
+            tasks.values().forEach(task -> persisted.put(task.getId(), task.copy()));
+            return new DataStore(new ArrayList<>(tasks.values()));
+        }
+    }
+
+    @Override
+    public void save(DataStore data) throws IOException {
+        synchronized (lock) {
+            if (needsRewrite) {
+                rewrite(data);
+                return;
+            }
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            try (JsonGenerator gen = mapper.getFactory().createGenerator(buffer)) {
+                Set<String> seen = new HashSet<>();
+                for (Task task : data.getTasks()) {
+                    seen.add(task.getId());
+                    Task previous = persisted.get(task.getId());
+                    if (previous != null && !task.isDirty()) {
+                        continue;
+                    }
+                    if (previous == null) {
+                        writeCreated(gen, task);
+                        persisted.put(task.getId(), task.copy());
+                    } else {
+                        writeChanges(gen, previous, task);
+                    }
+                }
+                for (var it = persisted.keySet().iterator(); it.hasNext();) {
+                    String id = it.next();
+                    if (!seen.contains(id)) {
+                        startRecord(gen, "removed", id);
+                        endRecord(gen);
+                        it.remove();
+                    }
+                }
+            }
+            if (buffer.size() == 0) {
+                return;
+            }
+            try {
+                append(buffer.toByteArray());
+            } catch (IOException e) {
+                needsRewrite = true;
+                throw e;
+            }
+
+            if (journalSize > compactionThreshold && !compacting) {
+                compacting = true;
+                compactor.submit(this::compactSafely);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Leave a complete data.json behind so backups and other storage formats see everything
+        compact();
+    }
+
+    /**
+     * Folds the journal into a new snapshot. The snapshot is serialized outside the lock; only the records appended in
+     * the meantime are carried over to the new journal.
+     */
+    void compact() throws IOException {
+        DataStore snapshot;
+        long mark;
+        long startedAt;
+        synchronized (lock) {
+            if (journalSize == 0) {
+                return;
+            }
+            List<Task> copies = new ArrayList<>(persisted.size());
+            persisted.values().forEach(task -> copies.add(task.copy()));
+            snapshot = new DataStore(copies);
+            mark = journalSize;
+            startedAt = rewrites;
+        }
+
+        byte[] bytes = snapshotStorage.toBytes(snapshot);
+
+        synchronized (lock) {
+            // A rewrite may have replaced snapshot and journal in the meantime
+            if (rewrites != startedAt) {
+                return;
+            }
+            snapshotStorage.write(bytes);
+            byte[] journal = Files.exists(journalFile) ? Files.readAllBytes(journalFile) : new byte[0];
+            journalWriter.write(journalFile, Arrays.copyOfRange(journal, (int) mark, journal.length));
+            journalSize = journal.length - mark;
+        }
+    }
+
+    /**
+     * Replaces snapshot and journal with {@code data}, for when the journal can no longer be trusted to follow it.
+     */
+    private void rewrite(DataStore data) throws IOException {
+        persisted.clear();
+        List<Task> copies = new ArrayList<>(data.getTasks().size());
+        for (Task task : data.getTasks()) {
+            Task copy = task.copy();
+            persisted.put(copy.getId(), copy);
+            copies.add(copy.copy());
+        }
+        snapshotStorage.save(new DataStore(copies));
+        Files.deleteIfExists(journalFile);
+        journalSize = 0;
+        needsRewrite = false;
+        rewrites++;
+    }
+
+    long getJournalSize() {
+        synchronized (lock) {
+            return journalSize;
+        }
+    }
+
+    private void compactSafely() {
+        try {
+            compact();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (lock) {
+                compacting = false;
+            }
+        }
+    }
+
+    private void append(byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        journalSize += bytes.length;
+    }
+
+    // --- Writing records ---
+
+    private void writeCreated(JsonGenerator gen, Task task) throws IOException {
+        startRecord(gen, "task", task.getId());
+        gen.writeNumberField("order", task.getOrder());
+        gen.writeStringField("description", task.getDescription());
+        gen.writeStringField("jiraUrl", task.getJiraUrl());
+        gen.writeStringField("slackUrl", task.getSlackUrl());
+        gen.writeBooleanField("isJira", task.isJira());
+        gen.writeStringField("status", task.getStatus() == null ? null : task.getStatus().name());
+        writeTags(gen, task.getTags());
+        gen.writeStringField("markdown", task.getStoredMarkdownContent());
+        endRecord(gen);
+
+        for (Map.Entry<LocalDate, TaskDailyWork> entry : task.getStoredHistory().entrySet()) {
+            writeDay(gen, task.getId(), entry.getKey(), null, entry.getValue());
+        }
+    }
+
+    private void writeChanges(JsonGenerator gen, Task previous, Task current) throws IOException {
+        String id = current.getId();
+        if (previous.getOrder() != current.getOrder()) {
+            writeField(gen, id, "order", () -> gen.writeNumberField("value", current.getOrder()));
+            previous.setOrder(current.getOrder());
+        }
+        if (!Objects.equals(previous.getDescription(), current.getDescription())) {
+            writeField(gen, id, "description", () -> gen.writeStringField("value", current.getDescription()));
+            previous.setDescription(current.getDescription());
+        }
+        if (!Objects.equals(previous.getJiraUrl(), current.getJiraUrl())) {
+            writeField(gen, id, "jiraUrl", () -> gen.writeStringField("value", current.getJiraUrl()));
+            previous.setJiraUrl(current.getJiraUrl());
+        }
+        if (!Objects.equals(previous.getSlackUrl(), current.getSlackUrl())) {
+            writeField(gen, id, "slackUrl", () -> gen.writeStringField("value", current.getSlackUrl()));
+            previous.setSlackUrl(current.getSlackUrl());
+        }
+        if (previous.isJira() != current.isJira()) {
+            writeField(gen, id, "isJira", () -> gen.writeBooleanField("value", current.isJira()));
+            previous.setJira(current.isJira());
+        }
+        if (previous.getStatus() != current.getStatus()) {
+            writeField(gen, id, "status", () -> gen.writeStringField("value",
+                    current.getStatus() == null ? null : current.getStatus().name()));
+            previous.setStatus(current.getStatus());
+        }
+        if (!Objects.equals(previous.getTags(), current.getTags())) {
+            startRecord(gen, "tags", id);
+            writeTags(gen, current.getTags());
+            endRecord(gen);
+            previous.setTags(copyOfTags(current.getTags()));
+        }
+        // Deferred markdown has not been read, so it cannot have changed
+        if (current.isMarkdownLoaded()
+                && !Objects.equals(previous.getStoredMarkdownContent(), current.getStoredMarkdownContent())) {
+            startRecord(gen, "markdown", id);
+            gen.writeStringField("value", current.getStoredMarkdownContent());
+            endRecord(gen);
+            previous.setMarkdownContent(current.getStoredMarkdownContent());
+        }
+
+        // Likewise only the loaded part of a partially loaded history can differ
+        Map<LocalDate, TaskDailyWork> currentHistory = current.getLoadedHistory();
+        Map<LocalDate, TaskDailyWork> previousHistory = current.isHistoryLoaded()
+                ? previous.getTaskHistory()
+                : previous.getLoadedHistory();
+        for (Map.Entry<LocalDate, TaskDailyWork> entry : currentHistory.entrySet()) {
+            TaskDailyWork before = previousHistory.get(entry.getKey());
+            TaskDailyWork after = entry.getValue();
+            if (before != null && !after.isDirty()) {
+                continue;
+            }
+            if (before == null || !before.equals(after)) {
+                writeDay(gen, id, entry.getKey(), before, after);
+                previous.putDay(entry.getKey(), after.copy());
+            }
+        }
+        List<LocalDate> removed = previousHistory.keySet().stream()
+                .filter(date -> !currentHistory.containsKey(date))
+                .toList();
+        for (LocalDate date : removed) {
+            startRecord(gen, "dayRemoved", id);
+            gen.writeStringField("date", date.toString());
+            endRecord(gen);
+            previous.removeDay(date);
+        }
+    }
+
+    /**
+     * Writes only the parts of a day that differ from {@code before}; a {@code null} before writes all of them.
+     */
+    private void writeDay(JsonGenerator gen, String id, LocalDate date, TaskDailyWork before, TaskDailyWork after)
+            throws IOException {
+        startRecord(gen, "day", id);
+        gen.writeStringField("date", date.toString());
+        if (before == null || !Objects.equals(before.getDuration(), after.getDuration())) {
+            Duration duration = after.getDuration() == null ? Duration.ZERO : after.getDuration();
+            gen.writeNumberField("seconds", duration.getSeconds());
+            if (duration.getNano() != 0) {
+                gen.writeNumberField("nanos", duration.getNano());
+            }
+        }
+        if (before == null || !Objects.equals(before.getStoredNote(), after.getStoredNote())) {
+            gen.writeStringField("note", after.getStoredNote());
+        }
+        if (before == null || before.getStatus() != after.getStatus()) {
+            gen.writeStringField("status", after.getStatus() == null ? null : after.getStatus().name());
+        }
+        endRecord(gen);
+    }
+
+    private void writeField(JsonGenerator gen, String id, String field, FieldWriter value) throws IOException {
+        startRecord(gen, "field", id);
+        gen.writeStringField("field", field);
+        value.write();
+        endRecord(gen);
+    }
+
+    private static void writeTags(JsonGenerator gen, List<String> tags) throws IOException {
+        gen.writeArrayFieldStart("tags");
+        if (tags != null) {
+            for (String tag : tags) {
+                gen.writeString(tag);
+            }
+        }
+        gen.writeEndArray();
+    }
+
+    private static void startRecord(JsonGenerator gen, String op, String id) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("op", op);
+        gen.writeStringField("id", id);
+    }
+
+    private static void endRecord(JsonGenerator gen) throws IOException {
+        gen.writeEndObject();
+        gen.writeRaw('\n');
+    }
+
+    @FunctionalInterface
+    private interface FieldWriter {
+        void write() throws IOException;
+    }
+
+    // --- Replaying records ---
+
+    private void replayJournal(Map<String, Task> tasks) throws IOException {
+        journalSize = 0;
+        if (!Files.exists(journalFile)) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(journalFile);
+        int start = 0;
+        while (start < bytes.length) {
+            int end = start;
+            while (end < bytes.length && bytes[end] != '\n') {
+                end++;
+            }
+            if (end == bytes.length) {
+                break; // Unterminated record: the process died while appending it
+            }
+            try {
+                apply(mapper.readTree(bytes, start, end - start), tasks);
+            } catch (JsonProcessingException e) {
+                System.err.println("Ignoring corrupt journal tail at offset " + start + ": " + e.getMessage());
+                break;
+            }
+            start = end + 1;
+        }
+        if (start < bytes.length) {
+            try (FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.WRITE)) {
+                channel.truncate(start);
+            }
+        }
+        journalSize = start;
+    }
+
+    private static void apply(JsonNode record, Map<String, Task> tasks) {
+        String id = record.path("id").asText();
+        switch (record.path("op").asText()) {
+            case "task" -> {
+                Task task = tasks.computeIfAbsent(id, key -> Task.builder().id(key).build());
+                task.setOrder(record.path("order").asInt());
+                task.setDescription(textOrNull(record, "description"));
+                task.setJiraUrl(textOrNull(record, "jiraUrl"));
+                task.setSlackUrl(textOrNull(record, "slackUrl"));
+                task.setJira(record.path("isJira").asBoolean());
+                task.setStatus(statusOrNull(record, "status"));
+                task.setTags(readTags(record));
+                task.setMarkdownContent(textOrNull(record, "markdown"));
+            }
+            case "removed" -> tasks.remove(id);
+            case "field" -> {
+                Task task = tasks.get(id);
+                if (task == null) {
+                    return;
+                }
+                switch (record.path("field").asText()) {
+                    case "order" -> task.setOrder(record.path("value").asInt());
+                    case "description" -> task.setDescription(textOrNull(record, "value"));
+                    case "jiraUrl" -> task.setJiraUrl(textOrNull(record, "value"));
+                    case "slackUrl" -> task.setSlackUrl(textOrNull(record, "value"));
+                    case "isJira" -> task.setJira(record.path("value").asBoolean());
+                    case "status" -> task.setStatus(statusOrNull(record, "value"));
+                    default -> System.err.println("Unknown journal field: " + record.path("field").asText());
+                }
+            }
+            case "tags" -> {
+                Task task = tasks.get(id);
+                if (task != null) {
+                    task.setTags(readTags(record));
+                }
+            }
+            case "markdown" -> {
+                Task task = tasks.get(id);
+                if (task != null) {
+                    task.setMarkdownContent(textOrNull(record, "value"));
+                }
+            }
+            case "day" -> {
+                Task task = tasks.get(id);
+                if (task == null) {
+                    return;
+                }
+                LocalDate date = LocalDate.parse(record.path("date").asText());
+                TaskDailyWork work = task.getTaskHistory().get(date);
+                if (work == null) {
+                    work = new TaskDailyWork();
+                }
+                if (record.has("seconds")) {
+                    work.setDuration(Duration.ofSeconds(record.path("seconds").asLong(), record.path("nanos").asInt()));
+                }
+                if (record.has("note")) {
+                    work.setNote(textOrNull(record, "note"));
+                }
+                if (record.has("status")) {
+                    work.setStatus(statusOrNull(record, "status"));
+                }
+                task.putDay(date, work);
+            }
+            case "dayRemoved" -> {
+                Task task = tasks.get(id);
+                if (task != null) {
+                    task.removeDay(LocalDate.parse(record.path("date").asText()));
+                }
+            }
+            default -> System.err.println("Unknown journal record: " + record.path("op").asText());
+        }
+    }
+
+    private static String textOrNull(JsonNode record, String field) {
+        JsonNode node = record.get(field);
+        return node == null || node.isNull() ? null : node.asText();
+    }
+
+    private static TaskStatus statusOrNull(JsonNode record, String field) {
+        String value = textOrNull(record, field);
+        return value == null ? null : TaskStatus.valueOf(value);
+    }
+
+    private static List<String> readTags(JsonNode record) {
+        List<String> tags = new ArrayList<>();
+        record.path("tags").forEach(tag -> tags.add(tag.asText()));
+        return tags;
+    }
+
+    private static List<String> copyOfTags(List<String> tags) {
+        return tags == null ? new ArrayList<>() : new ArrayList<>(tags);
+    }
+}
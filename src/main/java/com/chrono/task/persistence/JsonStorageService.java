@@ -6,11 +6,13 @@ import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 
 public class JsonStorageService implements StorageService {
 
     private final File file;
     private final ObjectMapper mapper;
+    private final AtomicFileWriter writer = new AtomicFileWriter();
 
     public JsonStorageService(String filePath) {
         this.file = new File(filePath);
@@ -23,11 +25,20 @@ public class JsonStorageService implements StorageService {
         if (!file.exists()) {
             return new DataStore();
         }
-        return mapper.readValue(file, DataStore.class);
+        return new StreamingJsonLoader(mapper).load(Files.readAllBytes(file.toPath()));
     }
 
     @Override
     public void save(DataStore data) throws IOException {
-        mapper.writerWithDefaultPrettyPrinter().writeValue(file, data);
+        // A crash mid-save must never leave a truncated data.json behind
+        writer.write(file.toPath(), out -> mapper.writerWithDefaultPrettyPrinter().writeValue(out, data));
+    }
+
+    byte[] toBytes(DataStore data) throws IOException {
+        return mapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(data);
+    }
+
+    void write(byte[] bytes) throws IOException {
+        writer.write(file.toPath(), bytes);
     }
 }
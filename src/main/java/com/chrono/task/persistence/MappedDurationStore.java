@@ -0,0 +1,229 @@
+package com.chrono.task.persistence;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Memory-mapped file of fixed-size records holding the time worked per task and day.
+ * <p>
+ * The timer writes the running total of the current day in place on every accrual, so accrued time survives a crash
+ * even when the last save of the task document did not happen. Each record also carries the time of its last update;
+ * {@link #checkpoint(long)} stores the time of the last successful save, and {@link #sinceCheckpoint()} returns what
+ * the document may be missing.
+ * <p>
+ * Layout: a 32 bytes header (magic, version, record count, checkpoint) followed by 24 bytes records (task index,
+ * epoch day, nanoseconds, update time). Task ids are appended to a {@code .ids} sidecar file, one per line, the line
+ * number being the task index.
+ */
+public class MappedDurationStore implements AutoCloseable {
+
+    private static final int MAGIC = 0x43484454; // "CHDT"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int RECORD_SIZE = 24;
+    private static final int COUNT_OFFSET = 8;
+    private static final int CHECKPOINT_OFFSET = 16;
+    private static final int INITIAL_RECORDS = 4096;
+
+    public record Entry(String taskId, LocalDate date, Duration duration) {
+    }
+
+    private final FileChannel channel;
+    private final FileChannel idsChannel;
+    private MappedByteBuffer buffer;
+    private int recordCount;
+
+    private final List<String> ids = new ArrayList<>();
+    private final Map<String, Integer> taskIndexes = new HashMap<>();
+    // Record slot by task index and epoch day, ordered so that a task's days form a contiguous range
+    private final NavigableMap<Long, Integer> slots = new TreeMap<>();
+
+    private MappedDurationStore(FileChannel channel, FileChannel idsChannel) {
+        this.channel = channel;
+        this.idsChannel = idsChannel;
+    }
+
+    public static MappedDurationStore open(Path file) throws IOException {
+        Path idsFile = file.resolveSibling(file.getFileName() + ".ids");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileChannel idsChannel = FileChannel.open(idsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        MappedDurationStore store = new MappedDurationStore(channel, idsChannel);
+        try {
+            store.load(idsFile);
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void load(Path idsFile) throws IOException {
+        for (String id : Files.readAllLines(idsFile, StandardCharsets.UTF_8)) {
+            taskIndexes.put(id, ids.size());
+            ids.add(id);
+        }
+
+        boolean fresh = channel.size() < HEADER_SIZE;
+        map(Math.max(channel.size(), HEADER_SIZE + (long) INITIAL_RECORDS * RECORD_SIZE));
+        if (fresh) {
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(COUNT_OFFSET, 0);
+            buffer.putLong(CHECKPOINT_OFFSET, 0);
+            buffer.force();
+            return;
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a duration store");
+        }
+
+        recordCount = buffer.getInt(COUNT_OFFSET);
+        for (int slot = 0; slot < recordCount; slot++) {
+            int offset = offset(slot);
+            int taskIndex = buffer.getInt(offset);
+            if (taskIndex < 0 || taskIndex >= ids.size()) {
+                // The id never reached the disk, nothing to recover for it
+                continue;
+            }
+            slots.put(key(taskIndex, buffer.getInt(offset + 4)), slot);
+        }
+    }
+
+    /**
+     * Sets the total time of {@code taskId} on {@code date}.
+     */
+    public synchronized void put(String taskId, LocalDate date, Duration total) throws IOException {
+        int taskIndex = taskIndex(taskId);
+        long key = key(taskIndex, (int) date.toEpochDay());
+        long nanos = total.toNanos();
+        Integer slot = slots.get(key);
+        if (slot != null) {
+            int offset = offset(slot);
+            if (buffer.getLong(offset + 8) == nanos) {
+                return;
+            }
+            buffer.putLong(offset + 8, nanos);
+            buffer.putLong(offset + 16, System.currentTimeMillis());
+            buffer.force(offset, RECORD_SIZE);
+            return;
+        }
+
+        slot = recordCount;
+        if (offset(slot + 1) > buffer.capacity()) {
+            map(buffer.capacity() * 2L);
+        }
+        int offset = offset(slot);
+        buffer.putInt(offset, taskIndex);
+        buffer.putInt(offset + 4, (int) date.toEpochDay());
+        buffer.putLong(offset + 8, nanos);
+        buffer.putLong(offset + 16, System.currentTimeMillis());
+        buffer.force(offset, RECORD_SIZE);
+        // The record only counts once it is complete on disk
+        recordCount++;
+        buffer.putInt(COUNT_OFFSET, recordCount);
+        buffer.force(0, HEADER_SIZE);
+        slots.put(key, slot);
+    }
+
+    public synchronized Duration get(String taskId, LocalDate date) {
+        Integer taskIndex = taskIndexes.get(taskId);
+        Integer slot = taskIndex == null ? null : slots.get(key(taskIndex, (int) date.toEpochDay()));
+        return slot == null ? Duration.ZERO : Duration.ofNanos(buffer.getLong(offset(slot) + 8));
+    }
+
+    /**
+     * Total time of {@code taskId} between {@code from} and {@code to}, both included.
+     */
+    public synchronized Duration sum(String taskId, LocalDate from, LocalDate to) {
+        Integer taskIndex = taskIndexes.get(taskId);
+        if (taskIndex == null || from.isAfter(to)) {
+            return Duration.ZERO;
+        }
+        long nanos = 0;
+        for (int slot : slots.subMap(key(taskIndex, (int) from.toEpochDay()), true,
+                key(taskIndex, (int) to.toEpochDay()), true).values()) {
+            nanos += buffer.getLong(offset(slot) + 8);
+        }
+        return Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Records that everything written up to {@code savedAtMillis} is in the task document.
+     */
+    public synchronized void checkpoint(long savedAtMillis) {
+        if (savedAtMillis > buffer.getLong(CHECKPOINT_OFFSET)) {
+            buffer.putLong(CHECKPOINT_OFFSET, savedAtMillis);
+            buffer.force(0, HEADER_SIZE);
+        }
+    }
+
+    /**
+     * Entries updated since the last checkpoint.
+     */
+    public synchronized List<Entry> sinceCheckpoint() {
+        long checkpoint = buffer.getLong(CHECKPOINT_OFFSET);
+        List<Entry> entries = new ArrayList<>();
+        for (int slot : slots.values()) {
+            int offset = offset(slot);
+            if (buffer.getLong(offset + 16) > checkpoint) {
+                entries.add(new Entry(ids.get(buffer.getInt(offset)), LocalDate.ofEpochDay(buffer.getInt(offset + 4)),
+                        Duration.ofNanos(buffer.getLong(offset + 8))));
+            }
+        }
+        return entries;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (buffer != null) {
+            buffer.force();
+        }
+        channel.close();
+        idsChannel.close();
+    }
+
+    private int taskIndex(String taskId) throws IOException {
+        Integer index = taskIndexes.get(taskId);
+        if (index != null) {
+            return index;
+        }
+        idsChannel.write(StandardCharsets.UTF_8.encode(taskId + "\n"));
+        idsChannel.force(false);
+        taskIndexes.put(taskId, ids.size());
+        ids.add(taskId);
+        return ids.size() - 1;
+    }
+
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Duration store is full");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    /**
+     * Orders by task, then by day: flipping the sign bit makes the day sort as an unsigned value.
+     */
+    private static long key(int taskIndex, int epochDay) {
+        return ((long) taskIndex << 32) | ((epochDay ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,215 @@
+package com.chrono.task.persistence;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Work sessions of all tasks: when the timer ran, and for which task.
+ * <p>
+ * A session is packed in a long, its start in epoch seconds in the high 40 bits and its length in seconds in the low
+ * 24 bits, next to the index of its task in an int array: 12 bytes per session, in memory as on disk. Sessions are
+ * kept sorted by start, so the ones of a day or a week are found by binary search. Day totals stay in the task
+ * history; sessions only tell when in the day the time was spent.
+ * <p>
+ * Layout: 12 bytes records (task index, packed session) appended as sessions end. Task ids are appended to a
+ * {@code .ids} sidecar file, one per line, the line number being the task index.
+ */
+public class SessionStore implements AutoCloseable {
+
+    public static final String SESSIONS_FILE = "sessions.dat";
+    public static final String IDS_FILE = SESSIONS_FILE + ".ids";
+    private static final int LENGTH_BITS = 24;
+    private static final long MAX_LENGTH = (1L << LENGTH_BITS) - 1;
+    private static final int RECORD_SIZE = 12;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    public record Session(String taskId, Instant start, Instant end) {
+
+        public Duration duration() {
+            return Duration.between(start, end);
+        }
+    }
+
+    private final FileChannel channel;
+    private final FileChannel idsChannel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+
+    private final List<String> ids = new ArrayList<>();
+    private final Map<String, Integer> taskIndexes = new HashMap<>();
+    private long[] sessions = new long[INITIAL_CAPACITY];
+    private int[] tasks = new int[INITIAL_CAPACITY];
+    private int size;
+    // Longest session, bounding how far back a session overlapping a range can start
+    private long longest;
+
+    private SessionStore(FileChannel channel, FileChannel idsChannel) {
+        this.channel = channel;
+        this.idsChannel = idsChannel;
+    }
+
+    public static SessionStore open(Path file) throws IOException {
+        Path idsFile = file.resolveSibling(file.getFileName() + ".ids");
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        FileChannel idsChannel = FileChannel.open(idsFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        SessionStore store = new SessionStore(channel, idsChannel);
+        try {
+            store.load(idsFile);
+        } catch (IOException | RuntimeException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    private void load(Path idsFile) throws IOException {
+        for (String id : Files.readAllLines(idsFile, StandardCharsets.UTF_8)) {
+            taskIndexes.put(id, ids.size());
+            ids.add(id);
+        }
+
+        // A record cut short by a crash is dropped, so that the next ones stay aligned
+        long complete = channel.size() - channel.size() % RECORD_SIZE;
+        channel.truncate(complete);
+        ByteBuffer buffer = ByteBuffer.allocate((int) complete);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        while (buffer.remaining() >= RECORD_SIZE) {
+            int taskIndex = buffer.getInt();
+            long session = buffer.getLong();
+            // The id never reached the disk otherwise
+            if (taskIndex >= 0 && taskIndex < ids.size()) {
+                insert(taskIndex, session);
+            }
+        }
+        channel.position(complete);
+    }
+
+    /**
+     * Records that {@code taskId} was worked on from {@code start} to {@code end}, to the second. Sessions longer
+     * than the packed length allows are stored as consecutive ones.
+     */
+    public synchronized void add(String taskId, Instant start, Instant end) throws IOException {
+        long from = start.getEpochSecond();
+        long to = end.getEpochSecond();
+        if (to <= from) {
+            return;
+        }
+        int taskIndex = taskIndex(taskId);
+        while (from < to) {
+            long length = Math.min(to - from, MAX_LENGTH);
+            long session = pack(from, length);
+            record.clear();
+            record.putInt(taskIndex).putLong(session).flip();
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            insert(taskIndex, session);
+            from += length;
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Sessions overlapping {@code from} to {@code to}, ordered by start. They are not cut to the range.
+     */
+    public synchronized List<Session> between(Instant from, Instant to) {
+        List<Session> found = new ArrayList<>();
+        long fromSecond = from.getEpochSecond();
+        long toSecond = to.getEpochSecond();
+        for (int i = lowerBound(fromSecond - longest); i < size && start(sessions[i]) < toSecond; i++) {
+            long start = start(sessions[i]);
+            long end = start + length(sessions[i]);
+            if (end > fromSecond) {
+                found.add(new Session(ids.get(tasks[i]), Instant.ofEpochSecond(start), Instant.ofEpochSecond(end)));
+            }
+        }
+        return found;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        idsChannel.close();
+    }
+
+    private void insert(int taskIndex, long session) {
+        if (size == sessions.length) {
+            sessions = Arrays.copyOf(sessions, size + (size >> 1));
+            tasks = Arrays.copyOf(tasks, sessions.length);
+        }
+        // Sessions end in order, so this is an append but after a clock change
+        int i = size;
+        while (i > 0 && sessions[i - 1] > session) {
+            i--;
+        }
+        System.arraycopy(sessions, i, sessions, i + 1, size - i);
+        System.arraycopy(tasks, i, tasks, i + 1, size - i);
+        sessions[i] = session;
+        tasks[i] = taskIndex;
+        size++;
+        longest = Math.max(longest, length(session));
+    }
+
+    /**
+     * First session starting at {@code second} or later.
+     */
+    private int lowerBound(long second) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (start(sessions[mid]) < second) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int taskIndex(String taskId) throws IOException {
+        Integer index = taskIndexes.get(taskId);
+        if (index != null) {
+            return index;
+        }
+        idsChannel.write(StandardCharsets.UTF_8.encode(taskId + "\n"));
+        idsChannel.force(false);
+        taskIndexes.put(taskId, ids.size());
+        ids.add(taskId);
+        return ids.size() - 1;
+    }
+
+    private static long pack(long start, long length) {
+        return start << LENGTH_BITS | length;
+    }
+
+    private static long start(long session) {
+        return session >>> LENGTH_BITS;
+    }
+
+    private static long length(long session) {
+        return session & MAX_LENGTH;
+    }
+}
@@ -0,0 +1,194 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.Task;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * Stores each task in its own file under {@code tasks/}, with a {@code manifest.json} holding the task order.
+ * <p>
+ * A save skips clean tasks and only rewrites the shards whose content changed since they were last written, so an
+ * edited note touches one file and git backups diff only that task. The order lives in the manifest rather than in
+ * the shards, which keeps a reorder from rewriting every task. Shards are read in parallel on load.
+ */
+public class ShardedStorageService implements StorageService {
+
+    public static final String MANIFEST_FILE = "manifest.json";
+    public static final String TASKS_DIR = "tasks";
+    private static final String SHARD_SUFFIX = ".json";
+
+    private final Path manifestFile;
+    private final Path tasksDir;
+    private final ObjectMapper mapper;
+    private final AtomicFileWriter writer = new AtomicFileWriter();
+
+    // Checksum of the bytes last written (or read) for each shard
+    private final Map<String, Long> shardChecksums = new HashMap<>();
+    private List<String> manifestOrder = List.of();
+
+    public ShardedStorageService(File dataDir) {
+        this.manifestFile = dataDir.toPath().resolve(MANIFEST_FILE);
+        this.tasksDir = dataDir.toPath().resolve(TASKS_DIR);
+        this.mapper = new ObjectMapper();
+        this.mapper.registerModule(new JavaTimeModule());
+        this.mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.mapper.addMixIn(Task.class, ShardTaskMixin.class);
+    }
+
+    public boolean exists() {
+        return Files.exists(manifestFile);
+    }
+
+    /**
+     * Deletes the manifest and every shard.
+     */
+    public synchronized void clear() throws IOException {
+        Files.deleteIfExists(manifestFile);
+        if (Files.isDirectory(tasksDir)) {
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(tasksDir, "*" + SHARD_SUFFIX)) {
+                for (Path shard : shards) {
+                    Files.delete(shard);
+                }
+            }
+        }
+        shardChecksums.clear();
+        manifestOrder = List.of();
+    }
+
+    @Override
+    public synchronized DataStore load() throws IOException {
+        shardChecksums.clear();
+        if (!exists()) {
+            manifestOrder = List.of();
+            return new DataStore();
+        }
+
+        Set<String> ids = new LinkedHashSet<>();
+        mapper.readTree(manifestFile.toFile()).path("tasks").forEach(id -> ids.add(id.asText()));
+        // Shards of tasks created just before a crash may not be in the manifest yet, keep them at the end
+        if (Files.isDirectory(tasksDir)) {
+            try (DirectoryStream<Path> shards = Files.newDirectoryStream(tasksDir, "*" + SHARD_SUFFIX)) {
+                shards.forEach(shard -> ids.add(idOf(shard)));
+            }
+        }
+
+        List<Shard> shards = new ArrayList<>(ids).parallelStream()
+                .map(this::readShard)
+                .filter(Objects::nonNull)
+                .toList();
+
+        List<Task> tasks = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            shard.task().setOrder(tasks.size() * Task.ORDER_GAP);
+            tasks.add(shard.task());
+            shardChecksums.put(shard.task().getId(), shard.checksum());
+        }
+        manifestOrder = tasks.stream().map(Task::getId).toList();
+        return new DataStore(tasks);
+    }
+
+    @Override
+    public synchronized void save(DataStore data) throws IOException {
+        Files.createDirectories(tasksDir);
+
+        List<Task> ordered = new ArrayList<>(data.getTasks());
+        ordered.sort(Comparator.comparingInt(Task::getOrder));
+
+        Map<String, Long> written = new HashMap<>();
+        for (Task task : ordered) {
+            Long known = shardChecksums.get(task.getId());
+            if (known != null && !task.isDirty()) {
+                written.put(task.getId(), known);
+                continue;
+            }
+            byte[] bytes = mapper.writeValueAsBytes(task);
+            long checksum = checksum(bytes);
+            Long previous = shardChecksums.get(task.getId());
+            if (previous == null || previous != checksum) {
+                writer.write(shardFile(task.getId()), bytes);
+            }
+            written.put(task.getId(), checksum);
+        }
+
+        // Removed shards go before the manifest drops them: load recovers unlisted shards, but skips missing ones
+        for (String id : shardChecksums.keySet()) {
+            if (!written.containsKey(id)) {
+                Files.deleteIfExists(shardFile(id));
+            }
+        }
+
+        List<String> order = ordered.stream().map(Task::getId).toList();
+        if (!order.equals(manifestOrder) || !exists()) {
+            ObjectNode manifest = mapper.createObjectNode();
+            ArrayNode tasks = manifest.putArray("tasks");
+            order.forEach(tasks::add);
+            writer.write(manifestFile, mapper.writeValueAsBytes(manifest));
+            manifestOrder = order;
+        }
+        shardChecksums.clear();
+        shardChecksums.putAll(written);
+    }
+
+    private Shard readShard(String id) {
+        Path file = shardFile(id);
+        if (!Files.exists(file)) {
+            System.err.println("Missing shard for task " + id);
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(file);
+            return new Shard(mapper.readValue(bytes, Task.class), checksum(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read shard " + file, e);
+        }
+    }
+
+    private Path shardFile(String id) {
+        return tasksDir.resolve(URLEncoder.encode(id, StandardCharsets.UTF_8) + SHARD_SUFFIX);
+    }
+
+    private static String idOf(Path shard) {
+        String name = shard.getFileName().toString();
+        return URLDecoder.decode(name.substring(0, name.length() - SHARD_SUFFIX.length()), StandardCharsets.UTF_8);
+    }
+
+    private static long checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return ((long) bytes.length << 32) ^ crc.getValue();
+    }
+
+    private record Shard(Task task, long checksum) {
+    }
+
+    /**
+     * The order is kept in the manifest only.
+     */
+    @JsonIgnoreProperties(value = { "order" }, ignoreUnknown = true)
+    abstract static class ShardTaskMixin {
+    }
+}
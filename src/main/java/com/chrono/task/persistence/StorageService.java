@@ -7,4 +7,10 @@ import java.io.IOException;
 public interface StorageService {
     DataStore load() throws IOException;
     void save(DataStore data) throws IOException;
+
+    /**
+     * Releases resources and leaves the on-disk data in its final form. Called once on shutdown, after the last save.
+     */
+    default void close() throws IOException {
+    }
 }
@@ -0,0 +1,102 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.StorageFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+public final class StorageServiceFactory {
+
+    public static final String DATA_FILE = "data.json";
+    public static final String JOURNAL_FILE = "data.journal";
+    public static final String BINARY_FILE = "data.bin";
+    private static final String MIGRATED_SUFFIX = ".migrated";
+
+    /**
+     * Files and directories of every storage format, relative to the data directory.
+     */
+    public static final List<String> DATA_PATHS = List.of(DATA_FILE, JOURNAL_FILE, BINARY_FILE,
+            ShardedStorageService.MANIFEST_FILE, ShardedStorageService.TASKS_DIR, H2StorageService.DATABASE_FILE,
+            ArchiveStore.ARCHIVE_DIR, TextStore.TEXTS_DIR, SessionStore.SESSIONS_FILE,
+            SessionStore.IDS_FILE);
+
+    private StorageServiceFactory() {
+    }
+
+    public static StorageService create(StorageFormat format, File dataDir) {
+        String dataFilePath = new File(dataDir, DATA_FILE).getAbsolutePath();
+        return switch (format == null ? StorageFormat.JSON : format) {
+            case JSON -> new JsonStorageService(dataFilePath);
+            case JOURNAL -> new JournalStorageService(dataFilePath, new File(dataDir, JOURNAL_FILE).getAbsolutePath());
+            case SHARDED -> new ShardedStorageService(dataDir);
+            case BINARY -> new BinaryStorageService(new File(dataDir, BINARY_FILE).getAbsolutePath());
+            case H2 -> new H2StorageService(new File(dataDir, "data").getAbsolutePath());
+        };
+    }
+
+    /**
+     * Creates the storage for {@code format}, first converting the data left by another layout if the target layout
+     * holds none yet. The converted files are renamed with a {@code .migrated} suffix.
+     */
+    public static StorageService createAndMigrate(StorageFormat format, File dataDir) throws IOException {
+        StorageFormat targetFormat = format == null ? StorageFormat.JSON : format;
+        StorageService target = create(targetFormat, dataDir);
+        Path dir = dataDir.toPath();
+        if (hasData(targetFormat, dir)) {
+            return target;
+        }
+        // JOURNAL also reads a plain data.json, so it stands for both single-file layouts
+        for (StorageFormat sourceFormat : List.of(StorageFormat.JOURNAL, StorageFormat.BINARY, StorageFormat.SHARDED,
+                StorageFormat.H2)) {
+            if (!hasData(sourceFormat, dir) || files(sourceFormat).equals(files(targetFormat))) {
+                continue;
+            }
+            if (target instanceof ShardedStorageService sharded) {
+                // Shards left over from an earlier sharded period would come back as orphans
+                sharded.clear();
+            }
+            migrate(create(sourceFormat, dataDir), target);
+            for (String file : files(sourceFormat)) {
+                markMigrated(dir.resolve(file));
+            }
+            break;
+        }
+        return target;
+    }
+
+    /**
+     * Copies everything from {@code source} into {@code target}, then closes {@code source}.
+     */
+    public static void migrate(StorageService source, StorageService target) throws IOException {
+        target.load();
+        target.save(source.load());
+        source.close();
+    }
+
+    /**
+     * Files whose presence means the layout of {@code format} holds data.
+     */
+    private static List<String> files(StorageFormat format) {
+        return switch (format) {
+            case JSON, JOURNAL -> List.of(DATA_FILE, JOURNAL_FILE);
+            case SHARDED -> List.of(ShardedStorageService.MANIFEST_FILE);
+            case BINARY -> List.of(BINARY_FILE);
+            case H2 -> List.of(H2StorageService.DATABASE_FILE);
+        };
+    }
+
+    private static boolean hasData(StorageFormat format, Path dir) {
+        return files(format).stream().anyMatch(file -> Files.exists(dir.resolve(file)));
+    }
+
+    private static void markMigrated(Path file) throws IOException {
+        if (Files.exists(file)) {
+            Files.move(file, file.resolveSibling(file.getFileName() + MIGRATED_SUFFIX),
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
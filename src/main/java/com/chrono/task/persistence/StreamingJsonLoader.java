@@ -0,0 +1,229 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.DayHistory;
+import com.chrono.task.model.DeferredJson;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskDailyWork;
+import com.chrono.task.model.TaskStatus;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads a {@code data.json} document with a streaming parser, building only what the task list needs up front.
+ * <p>
+ * Task headers and the recent history are materialized right away. The markdown content and the history older than
+ * {@link #EAGER_HISTORY_DAYS} are only copied out of the document as raw JSON, parsed the first time they are read and
+ * written back as is until then; only the time of the older days is read up front, for the totals. The raw JSON costs
+ * far less than the object graph it replaces, and the rest of the document is not kept.
+ */
+public class StreamingJsonLoader {
+
+    /**
+     * Days of history loaded eagerly, enough for the today and 30 days statistics.
+     */
+    public static final int EAGER_HISTORY_DAYS = 31;
+
+    private static final TypeReference<List<String>> TAGS_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper mapper;
+
+    public StreamingJsonLoader(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public DataStore load(byte[] content) throws IOException {
+        LocalDate eagerFrom = LocalDate.now().minusDays(EAGER_HISTORY_DAYS);
+        DataStore store = new DataStore();
+        try (JsonParser parser = mapper.getFactory().createParser(content)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("tasks".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        store.getTasks().add(readTask(parser, content, eagerFrom));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return store;
+    }
+
+    private Task readTask(JsonParser parser, byte[] content, LocalDate eagerFrom) throws IOException {
+        Task task = new Task();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            boolean isNull = value == JsonToken.VALUE_NULL;
+            switch (field) {
+                case "id" -> task.setId(parser.getValueAsString());
+                case "order" -> task.setOrder(parser.getValueAsInt());
+                case "description" -> task.setDescription(parser.getValueAsString());
+                case "jiraUrl" -> task.setJiraUrl(parser.getValueAsString());
+                case "slackUrl" -> task.setSlackUrl(parser.getValueAsString());
+                case "jira" -> task.setJira(parser.getValueAsBoolean());
+                case "status" -> task.setStatus(isNull ? null : TaskStatus.valueOf(parser.getValueAsString()));
+                case "tags" -> task.setTags(isNull ? null : mapper.readValue(parser, TAGS_TYPE));
+                case "markdownContent" -> {
+                    if (isNull) {
+                        task.setMarkdownContent(null);
+                    } else {
+                        // The string itself is skipped without being decoded
+                        int offset = (int) parser.currentTokenLocation().getByteOffset();
+                        task.deferMarkdown(new DeferredString(mapper,
+                                Arrays.copyOfRange(content, offset, endOfString(content, offset))));
+                    }
+                }
+                case "taskHistory" -> {
+                    if (isNull) {
+                        task.setTaskHistory(null);
+                    } else {
+                        readHistory(parser, task, content, eagerFrom);
+                    }
+                }
+                default -> parser.skipChildren();
+            }
+        }
+        return task;
+    }
+
+    private void readHistory(JsonParser parser, Task task, byte[] content, LocalDate eagerFrom) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+        DayHistory history = new DayHistory();
+        List<LocalDate> olderDates = new ArrayList<>();
+        List<Integer> olderEnds = new ArrayList<>();
+        ByteArrayOutputStream olderJson = new ByteArrayOutputStream();
+        long olderNanos = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            LocalDate date = LocalDate.parse(parser.currentName());
+            parser.nextToken();
+            if (date.isBefore(eagerFrom)) {
+                int start = (int) parser.currentTokenLocation().getByteOffset();
+                olderNanos += readDuration(parser);
+                int end = (int) parser.currentLocation().getByteOffset();
+                olderJson.write(content, start, end - start);
+                olderDates.add(date);
+                olderEnds.add(olderJson.size());
+            } else {
+                history.put(date, mapper.readValue(parser, TaskDailyWork.class));
+            }
+        }
+        task.setTaskHistory(history);
+        if (!olderDates.isEmpty()) {
+            task.deferHistory(Collections.min(olderDates), eagerFrom, olderNanos,
+                    new DeferredHistory(mapper, olderDates.toArray(LocalDate[]::new),
+                            olderEnds.stream().mapToInt(Integer::intValue).toArray(), olderJson.toByteArray()));
+        }
+    }
+
+    /**
+     * Reads the duration of a day, skipping the rest of it.
+     */
+    private long readDuration(JsonParser parser) throws IOException {
+        long nanos = 0;
+        if (parser.currentToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("duration".equals(field) && parser.currentToken() != JsonToken.VALUE_NULL) {
+                    nanos = mapper.readValue(parser, Duration.class).toNanos();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return nanos;
+    }
+
+    /**
+     * End of the JSON string starting at {@code offset}, past its closing quote. Multi-byte UTF-8 sequences hold no
+     * quote nor backslash byte.
+     */
+    private static int endOfString(byte[] content, int offset) {
+        int i = offset + 1;
+        while (content[i] != '"') {
+            i += content[i] == '\\' ? 2 : 1;
+        }
+        return i + 1;
+    }
+
+    /**
+     * Markdown content as its JSON string, quotes included.
+     */
+    private record DeferredString(ObjectMapper mapper, byte[] json) implements DeferredJson<String> {
+
+        @Override
+        public String get() {
+            try (JsonParser parser = mapper.getFactory().createParser(json)) {
+                parser.nextToken();
+                return parser.getText();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to load deferred task content", e);
+            }
+        }
+
+        @Override
+        public void writeTo(JsonGenerator gen) throws IOException {
+            gen.writeRawValue(new String(json, StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Older days of a history as their JSON values laid end to end, the value of {@code dates[i]} ending at
+     * {@code ends[i]}.
+     */
+    private record DeferredHistory(ObjectMapper mapper, LocalDate[] dates, int[] ends, byte[] json)
+            implements DeferredJson<Map<LocalDate, TaskDailyWork>> {
+
+        @Override
+        public Map<LocalDate, TaskDailyWork> get() {
+            Map<LocalDate, TaskDailyWork> days = new HashMap<>();
+            for (int i = 0; i < dates.length; i++) {
+                int start = i == 0 ? 0 : ends[i - 1];
+                try (JsonParser parser = mapper.getFactory().createParser(json, start, ends[i] - start)) {
+                    parser.nextToken();
+                    days.put(dates[i], mapper.readValue(parser, TaskDailyWork.class));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to load deferred task content", e);
+                }
+            }
+            return days;
+        }
+
+        @Override
+        public void writeTo(JsonGenerator gen) throws IOException {
+            for (int i = 0; i < dates.length; i++) {
+                int start = i == 0 ? 0 : ends[i - 1];
+                gen.writeFieldName(dates[i].toString());
+                gen.writeRawValue(new String(json, start, ends[i] - start, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected token " + actual + " at " + parser.currentLocation() + ", expected "
+                    + expected);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.TextSource;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Markdown content and daily notes of the tasks, kept apart from the task documents and read on demand.
+ * <p>
+ * Each task with texts has a {@code texts/<id>.json} file. The texts of the last {@link #CACHE_SIZE} tasks read stay
+ * in memory. A word index in {@code texts/index.json} narrows searches down to the tasks that may match, so the texts
+ * themselves are only read for them. Files written after the index are indexed again when the store opens.
+ */
+public class TextStore implements TextSource {
+
+    public static final String TEXTS_DIR = "texts";
+    private static final String INDEX_FILE = "index.json";
+    private static final String TEXTS_SUFFIX = ".json";
+    static final int CACHE_SIZE = 32;
+
+    public record Texts(String markdown, Map<LocalDate, String> notes) {
+    }
+
+    private static final Texts EMPTY = new Texts("", Map.of());
+
+    private final Path dir;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicFileWriter writer = new AtomicFileWriter();
+    private final Map<String, Set<String>> wordsByTask = new HashMap<>();
+    private final Map<String, Set<String>> tasksByWord = new HashMap<>();
+    private final Map<String, Texts> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Texts> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private int reads;
+
+    private TextStore(Path dir) {
+        this.dir = dir;
+    }
+
+    public static TextStore open(File dataDir) throws IOException {
+        TextStore store = new TextStore(dataDir.toPath().resolve(TEXTS_DIR));
+        Files.createDirectories(store.dir);
+        Path index = store.dir.resolve(INDEX_FILE);
+        FileTime indexedAt = FileTime.fromMillis(0);
+        if (Files.exists(index)) {
+            indexedAt = Files.getLastModifiedTime(index);
+            store.mapper.readTree(index.toFile()).path("tasks").fields().forEachRemaining(task -> {
+                Set<String> words = new HashSet<>();
+                task.getValue().forEach(word -> words.add(word.asText()));
+                store.index(task.getKey(), words);
+            });
+        }
+        boolean reindexed = false;
+        try (Stream<Path> files = Files.list(store.dir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(TEXTS_SUFFIX) && !name.equals(INDEX_FILE)
+                        && Files.getLastModifiedTime(file).compareTo(indexedAt) >= 0) {
+                    String taskId = name.substring(0, name.length() - TEXTS_SUFFIX.length());
+                    store.index(taskId, words(store.read(taskId)));
+                    reindexed = true;
+                }
+            }
+        }
+        if (reindexed) {
+            store.writeIndex();
+        }
+        return store;
+    }
+
+    /**
+     * Whether the texts of {@code taskId} were written here, even if empty.
+     */
+    public synchronized boolean contains(String taskId) {
+        return wordsByTask.containsKey(taskId);
+    }
+
+    @Override
+    public String markdown(String taskId) {
+        return texts(taskId).markdown();
+    }
+
+    @Override
+    public String note(String taskId, LocalDate date) {
+        return texts(taskId).notes().getOrDefault(date, "");
+    }
+
+    /**
+     * Replaces the texts of the given tasks.
+     */
+    public synchronized void write(Map<String, Texts> texts) throws IOException {
+        for (var entry : texts.entrySet()) {
+            String taskId = entry.getKey();
+            Texts value = entry.getValue();
+            Path file = dir.resolve(taskId + TEXTS_SUFFIX);
+            if ("".equals(value.markdown()) && value.notes().isEmpty()) {
+                Files.deleteIfExists(file);
+            } else {
+                ObjectNode node = mapper.createObjectNode();
+                node.put("markdown", value.markdown());
+                ObjectNode notes = node.putObject("notes");
+                value.notes().forEach((date, note) -> notes.put(date.toString(), note));
+                writer.write(file, mapper.writeValueAsBytes(node));
+            }
+            cache.put(taskId, value);
+            index(taskId, words(value));
+        }
+        writeIndex();
+    }
+
+    /**
+     * Forgets the texts of the given tasks, which are no longer kept here.
+     */
+    public synchronized void remove(Collection<String> taskIds) throws IOException {
+        for (String taskId : taskIds) {
+            Files.deleteIfExists(dir.resolve(taskId + TEXTS_SUFFIX));
+            cache.remove(taskId);
+            index(taskId, Set.of());
+            wordsByTask.remove(taskId);
+        }
+        writeIndex();
+    }
+
+    /**
+     * Tasks whose texts may contain {@code query}, or {@code null} when the index cannot narrow it down.
+     */
+    public synchronized Set<String> candidates(String query) {
+        Set<String> candidates = null;
+        for (String token : tokens(query)) {
+            Set<String> matching = new HashSet<>();
+            tasksByWord.forEach((word, tasks) -> {
+                if (word.contains(token)) {
+                    matching.addAll(tasks);
+                }
+            });
+            if (candidates == null) {
+                candidates = matching;
+            } else {
+                candidates.retainAll(matching);
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Number of text files read so far, the cache helping or not.
+     */
+    synchronized int getReads() {
+        return reads;
+    }
+
+    private synchronized Texts texts(String taskId) {
+        Texts texts = cache.get(taskId);
+        if (texts == null) {
+            try {
+                texts = read(taskId);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read the texts of task " + taskId, e);
+            }
+            cache.put(taskId, texts);
+        }
+        return texts;
+    }
+
+    private Texts read(String taskId) throws IOException {
+        Path file = dir.resolve(taskId + TEXTS_SUFFIX);
+        if (!Files.exists(file)) {
+            return EMPTY;
+        }
+        reads++;
+        JsonNode node = mapper.readTree(file.toFile());
+        Map<LocalDate, String> notes = new HashMap<>();
+        node.path("notes").fields().forEachRemaining(note ->
+                notes.put(LocalDate.parse(note.getKey()), note.getValue().asText()));
+        JsonNode markdown = node.path("markdown");
+        return new Texts(markdown.isTextual() ? markdown.asText() : null, notes);
+    }
+
+    private void index(String taskId, Set<String> words) {
+        Set<String> previous = wordsByTask.put(taskId, words);
+        if (previous != null) {
+            for (String word : previous) {
+                Set<String> tasks = tasksByWord.get(word);
+                tasks.remove(taskId);
+                if (tasks.isEmpty()) {
+                    tasksByWord.remove(word);
+                }
+            }
+        }
+        words.forEach(word -> tasksByWord.computeIfAbsent(word, w -> new HashSet<>()).add(taskId));
+    }
+
+    private void writeIndex() throws IOException {
+        ObjectNode index = mapper.createObjectNode();
+        ObjectNode tasks = index.putObject("tasks");
+        wordsByTask.forEach((taskId, words) -> {
+            ArrayNode array = tasks.putArray(taskId);
+            words.forEach(array::add);
+        });
+        writer.write(dir.resolve(INDEX_FILE), mapper.writeValueAsBytes(index));
+    }
+
+    private static Set<String> words(Texts texts) {
+        Set<String> words = new HashSet<>();
+        if (texts.markdown() != null) {
+            words.addAll(tokens(texts.markdown()));
+        }
+        texts.notes().values().forEach(note -> words.addAll(tokens(note)));
+        return words;
+    }
+
+    /**
+     * Lower-case runs of letters and digits. A query token always lies within a word of any text containing the query.
+     */
+    private static List<String> tokens(String text) {
+        return Stream.of(text.toLowerCase().split("[^\\p{L}\\p{N}]+"))
+                .filter(token -> !token.isEmpty())
+                .toList();
+    }
+}
@@ -0,0 +1,159 @@
+package com.chrono.task.persistence;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+/**
+ * Tiny memory-mapped file holding the state of the running timer session, written every few seconds so that the time
+ * since its last accrual can be recovered after a crash.
+ * <p>
+ * Each write goes to the next of {@link #SLOTS} slots, with a sequence number and a checksum, so a write cut short by
+ * a crash leaves the previous state readable. Layout: a 16 bytes header (magic, version) followed by 128 bytes slots
+ * (sequence, session start, accrued until, last alive, task id length, task id, CRC32).
+ */
+public class TimerCheckpointRing implements AutoCloseable {
+
+    public static final String RING_FILE = "timer.ring";
+    private static final int MAGIC = 0x43485452; // "CHTR"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int SLOT_SIZE = 128;
+    static final int SLOTS = 8;
+    private static final int ID_OFFSET = 34;
+    private static final int MAX_ID_BYTES = SLOT_SIZE - ID_OFFSET - 4;
+
+    /**
+     * State of the timer: time of the session from {@code sessionStart} is in the task up to {@code accruedUntil}, and
+     * the timer was still running at {@code lastAlive}. {@code taskId} is {@code null} once the timer stopped.
+     */
+    public record State(String taskId, Instant sessionStart, Instant accruedUntil, Instant lastAlive) {
+
+        public boolean isRunning() {
+            return taskId != null;
+        }
+    }
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private long sequence;
+    private int nextSlot;
+
+    private TimerCheckpointRing(FileChannel channel, MappedByteBuffer buffer) {
+        this.channel = channel;
+        this.buffer = buffer;
+    }
+
+    public static TimerCheckpointRing open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            boolean fresh = channel.size() < HEADER_SIZE;
+            TimerCheckpointRing ring = new TimerCheckpointRing(channel,
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) SLOTS * SLOT_SIZE));
+            if (fresh) {
+                ring.buffer.putInt(0, MAGIC);
+                ring.buffer.putInt(4, VERSION);
+                ring.buffer.force();
+            } else if (ring.buffer.getInt(0) != MAGIC || ring.buffer.getInt(4) != VERSION) {
+                throw new IOException("Not a timer checkpoint file");
+            }
+            int latest = ring.latestSlot();
+            if (latest >= 0) {
+                ring.sequence = ring.buffer.getLong(offset(latest));
+                ring.nextSlot = (latest + 1) % SLOTS;
+            }
+            return ring;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * The last state written, {@code null} if none was.
+     */
+    public synchronized State last() {
+        int slot = latestSlot();
+        if (slot < 0) {
+            return null;
+        }
+        int offset = offset(slot);
+        int idLength = buffer.getShort(offset + 32);
+        String taskId = null;
+        if (idLength > 0) {
+            byte[] id = new byte[idLength];
+            buffer.get(offset + ID_OFFSET, id);
+            taskId = new String(id, StandardCharsets.UTF_8);
+        }
+        return new State(taskId, instant(buffer.getLong(offset + 8)), instant(buffer.getLong(offset + 16)),
+                instant(buffer.getLong(offset + 24)));
+    }
+
+    /**
+     * Writes the state of the running session, or that the timer stopped when {@code taskId} is {@code null}.
+     */
+    public synchronized void write(String taskId, Instant sessionStart, Instant accruedUntil, Instant lastAlive) {
+        byte[] id = taskId == null ? new byte[0] : taskId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_BYTES) {
+            throw new IllegalArgumentException("Task id too long for the checkpoint ring: " + taskId);
+        }
+        int offset = offset(nextSlot);
+        buffer.putLong(offset, ++sequence);
+        buffer.putLong(offset + 8, millis(sessionStart));
+        buffer.putLong(offset + 16, millis(accruedUntil));
+        buffer.putLong(offset + 24, millis(lastAlive));
+        buffer.putShort(offset + 32, (short) id.length);
+        buffer.put(offset + ID_OFFSET, id);
+        buffer.putInt(offset + SLOT_SIZE - 4, checksum(offset));
+        buffer.force(offset, SLOT_SIZE);
+        nextSlot = (nextSlot + 1) % SLOTS;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    /**
+     * Valid slot with the highest sequence, -1 if there is none.
+     */
+    private int latestSlot() {
+        int latest = -1;
+        long latestSequence = 0;
+        for (int slot = 0; slot < SLOTS; slot++) {
+            int offset = offset(slot);
+            long slotSequence = buffer.getLong(offset);
+            if (slotSequence > latestSequence && buffer.getInt(offset + SLOT_SIZE - 4) == checksum(offset)) {
+                latest = slot;
+                latestSequence = slotSequence;
+            }
+        }
+        return latest;
+    }
+
+    private int checksum(int offset) {
+        int idLength = Math.max(0, Math.min(buffer.getShort(offset + 32), MAX_ID_BYTES));
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, ID_OFFSET + idLength));
+        return (int) crc.getValue();
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static long millis(Instant instant) {
+        return instant == null ? 0 : instant.toEpochMilli();
+    }
+
+    private static Instant instant(long millis) {
+        return millis == 0 ? null : Instant.ofEpochMilli(millis);
+    }
+}
@@ -0,0 +1,26 @@
+package com.chrono.task.persistence;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Date range queries a storage can answer without going through every task.
+ */
+public interface WorkQueries {
+
+    record DayWork(String taskId, LocalDate date, Duration duration, String note) {
+    }
+
+    /**
+     * Daily work between {@code from} and {@code to}, both included, ordered by task order then date.
+     */
+    List<DayWork> workBetween(LocalDate from, LocalDate to) throws IOException;
+
+    /**
+     * Time worked per tag between {@code from} and {@code to}, both included.
+     */
+    Map<String, Duration> totalsByTag(LocalDate from, LocalDate to) throws IOException;
+}
@@ -0,0 +1,126 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.Task;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The tasks of the list with time or a note on each day, so that day totals and daily history only read the tasks of
+ * the days asked for instead of the whole list.
+ * <p>
+ * Days are recorded as time accrues and notes are written. A day later dropped from a task history is forgotten the
+ * next time it is read. Tasks whose older history is still deferred are indexed again once a query loads it.
+ */
+class DayLedger {
+
+    private final Map<String, Task> tasksById = new HashMap<>();
+    private final TreeMap<LocalDate, Set<String>> idsByDay = new TreeMap<>();
+    // First loaded day of the tasks whose older history is deferred
+    private final Map<String, LocalDate> deferred = new HashMap<>();
+
+    /**
+     * Adds a task of the list with all its loaded days, or indexes its days again.
+     */
+    synchronized void add(Task task) {
+        tasksById.put(task.getId(), task);
+        index(task);
+    }
+
+    synchronized void remove(Task task) {
+        if (tasksById.get(task.getId()) != task) {
+            return;
+        }
+        tasksById.remove(task.getId());
+        deferred.remove(task.getId());
+        idsByDay.values().removeIf(ids -> ids.remove(task.getId()) && ids.isEmpty());
+    }
+
+    /**
+     * Records that {@code task} has an entry on {@code date}. Called on every timer accrual, so allocation-free once
+     * the day is known.
+     */
+    synchronized void record(Task task, LocalDate date) {
+        if (tasksById.get(task.getId()) == task) {
+            idsByDay.computeIfAbsent(date, d -> new HashSet<>()).add(task.getId());
+        }
+    }
+
+    /**
+     * Tasks with an entry on each day between {@code from} and {@code to}, both included, by date.
+     */
+    Map<LocalDate, List<Task>> tasksBetween(LocalDate from, LocalDate to) {
+        List<Task> loading = new ArrayList<>();
+        synchronized (this) {
+            deferred.forEach((id, loadedFrom) -> {
+                if (from.isBefore(loadedFrom)) {
+                    loading.add(tasksById.get(id));
+                }
+            });
+        }
+        // Not under the ledger lock, so that the timer keeps recording while older history is read
+        for (Task task : loading) {
+            task.getTaskHistory();
+            synchronized (this) {
+                if (tasksById.get(task.getId()) == task) {
+                    index(task);
+                }
+            }
+        }
+
+        Map<LocalDate, List<Task>> found = new TreeMap<>();
+        synchronized (this) {
+            Iterator<Map.Entry<LocalDate, Set<String>>> days = idsByDay.subMap(from, true, to, true)
+                    .entrySet().iterator();
+            while (days.hasNext()) {
+                Map.Entry<LocalDate, Set<String>> day = days.next();
+                List<Task> tasks = new ArrayList<>();
+                day.getValue().removeIf(id -> {
+                    Task task = tasksById.get(id);
+                    if (!hasDay(task, day.getKey())) {
+                        return true;
+                    }
+                    tasks.add(task);
+                    return false;
+                });
+                if (tasks.isEmpty()) {
+                    days.remove();
+                } else {
+                    found.put(day.getKey(), tasks);
+                }
+            }
+        }
+        return found;
+    }
+
+    private void index(Task task) {
+        List<LocalDate> days;
+        LocalDate loadedFrom;
+        synchronized (task) {
+            loadedFrom = task.getHistoryLoadedFrom();
+            days = task.getLoadedHistory() == null ? List.of() : List.copyOf(task.getLoadedHistory().keySet());
+        }
+        if (loadedFrom == null) {
+            deferred.remove(task.getId());
+        } else {
+            deferred.put(task.getId(), loadedFrom);
+        }
+        days.forEach(date -> idsByDay.computeIfAbsent(date, d -> new HashSet<>()).add(task.getId()));
+    }
+
+    private static boolean hasDay(Task task, LocalDate date) {
+        if (task == null) {
+            return false;
+        }
+        synchronized (task) {
+            return task.getLoadedHistory() != null && task.getLoadedHistory().containsKey(date);
+        }
+    }
+}
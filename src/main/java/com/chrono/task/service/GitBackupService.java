@@ -1,25 +1,29 @@
 package com.chrono.task.service;
 
 import com.chrono.task.model.Settings;
+import com.chrono.task.persistence.StorageServiceFactory;
 import java.io.File;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 import javafx.beans.property.StringProperty;
 import javafx.beans.property.SimpleStringProperty;
 
 public class GitBackupService {
 
+    static final String BACKUP_JOB = "git-backup";
+    static final String INIT_JOB = "git-init";
+
     private final GitService gitService;
     private final Settings settings;
     private final NotificationService notificationService;
-    private ScheduledExecutorService scheduler;
+    private final SchedulerService scheduler;
     private final StringProperty lastCommitMessage = new SimpleStringProperty();
 
-    public GitBackupService(GitService gitService, Settings settings, NotificationService notificationService) {
+    public GitBackupService(GitService gitService, Settings settings, NotificationService notificationService,
+            SchedulerService scheduler) {
         this.gitService = gitService;
         this.settings = settings;
         this.notificationService = notificationService;
+        this.scheduler = scheduler;
     }
 
     public StringProperty lastCommitMessageProperty() {
@@ -27,13 +31,15 @@ public class GitBackupService {
     }
 
     public synchronized void restart() {
-        stop();
         start();
     }
 
+    /**
+     * Schedules the backup with the current settings, replacing the one scheduled before.
+     */
     public synchronized void start() {
         if (!settings.isGitBackupEnabled()) {
-            stop();
+            scheduler.cancel(BACKUP_JOB);
             return;
         }
 
@@ -42,31 +48,24 @@ public class GitBackupService {
                     "Git Backup Error",
                     "Git is not installed. Automated backups are disabled.",
                     java.awt.TrayIcon.MessageType.ERROR);
-            stop();
+            scheduler.cancel(BACKUP_JOB);
             return;
         }
 
-        if (scheduler != null && !scheduler.isShutdown()) {
-            return; // Already running
-        }
-
-        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "GitBackupThread");
-            t.setDaemon(true);
-            return t;
-        });
-
         long interval = settings.getGitBackupInterval();
-        TimeUnit unit = switch (settings.getGitBackupUnit()) {
-            case DAYS -> TimeUnit.DAYS;
-            case HOURS -> TimeUnit.HOURS;
-            case MINUTES -> TimeUnit.MINUTES;
-            default -> TimeUnit.HOURS;
+        Duration period = switch (settings.getGitBackupUnit()) {
+            case DAYS -> Duration.ofDays(interval);
+            case HOURS -> Duration.ofHours(interval);
+            case MINUTES -> Duration.ofMinutes(interval);
+            default -> Duration.ofHours(interval);
         };
 
-        scheduler.scheduleAtFixedRate(this::performBackup, interval, interval, unit);
+        scheduler.schedule(BACKUP_JOB, period, period, this::performBackup);
+        // Initial init if needed, off the calling thread
+        scheduler.scheduleOnce(INIT_JOB, Duration.ZERO, this::initRepository);
+    }
 
-        // Initial init if needed
+    private void initRepository() {
         try {
             File path = new File(settings.getDataStoragePath());
             gitService.initRepository(path);
@@ -77,22 +76,15 @@ public class GitBackupService {
         }
     }
 
+    /**
+     * Cancels the backup and runs a last one.
+     */
     public synchronized void stop() {
+        scheduler.cancel(BACKUP_JOB);
+        scheduler.cancel(INIT_JOB);
         if (settings.isGitBackupEnabled() && gitService.isGitInstalled()) {
             performBackup();
         }
-
-        if (scheduler != null) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-            }
-            scheduler = null;
-        }
     }
 
     private void performBackup() {
@@ -101,7 +93,7 @@ public class GitBackupService {
         }
         try {
             File path = new File(settings.getDataStoragePath());
-            gitService.backup(path, "data.json");
+            gitService.backup(path, StorageServiceFactory.DATA_PATHS);
             String lastMsg = gitService.getLastCommitMessage(path);
             javafx.application.Platform.runLater(() -> lastCommitMessage.set(lastMsg));
         } catch (Exception e) {
@@ -6,6 +6,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class GitService {
@@ -26,8 +28,23 @@ public class GitService {
         }
     }
 
-    public void backup(File path, String fileName) throws IOException, InterruptedException {
-        runCommand(path, "git", "add", fileName);
+    public void backup(File path, List<String> fileNames) throws IOException, InterruptedException {
+        List<String> staged = new ArrayList<>(
+                fileNames.stream().filter(name -> new File(path, name).exists()).toList());
+        // Tracked files gone from disk, such as the ones a format migration renamed, are staged as removed
+        List<String> listTracked = new ArrayList<>(List.of("git", "ls-files", "--"));
+        listTracked.addAll(fileNames);
+        for (String tracked : readLines(path, listTracked.toArray(new String[0]))) {
+            if (!new File(path, tracked).exists()) {
+                staged.add(tracked);
+            }
+        }
+        if (staged.isEmpty()) {
+            return;
+        }
+        List<String> add = new ArrayList<>(List.of("git", "add", "--all", "--"));
+        add.addAll(staged);
+        runCommand(path, add.toArray(new String[0]));
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
         runCommand(path, "git", "commit", "-m", "Backup " + timestamp);
     }
@@ -55,6 +72,27 @@ public class GitService {
         return sb.toString().trim();
     }
 
+    private List<String> readLines(File workingDir, String... command) throws IOException, InterruptedException {
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.directory(workingDir);
+        pb.redirectErrorStream(true);
+        Process process = pb.start();
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+
+        int exitCode = process.waitFor();
+        if (exitCode != 0) {
+            throw new IOException("Git command failed with exit code " + exitCode + ": " + String.join(" ", command));
+        }
+        return lines;
+    }
+
     private void runCommand(File workingDir, String... command) throws IOException, InterruptedException {
         ProcessBuilder pb = new ProcessBuilder(command);
         pb.directory(workingDir);
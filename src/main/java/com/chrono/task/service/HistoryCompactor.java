@@ -0,0 +1,77 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Days whose time or note changed since the last compaction pass. A pass only revisits these days instead of the
+ * whole history of every task, and days not over yet stay queued for a later pass.
+ * <p>
+ * The queue only lives in memory: the days still queued when the application stopped are covered by one sweep of the
+ * whole loaded history after the next start. The older days some tasks were loaded without are swept by the first
+ * pass after they are loaded, so that the sweep never loads them itself.
+ */
+class HistoryCompactor {
+
+    private Map<Task, Set<LocalDate>> pending = new IdentityHashMap<>();
+    // Swept while part of their history was deferred
+    private final Set<Task> deferred = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Queues a changed day. Called on every timer accrual, so allocation-free once the day is queued.
+     */
+    synchronized void add(Task task, LocalDate date) {
+        pending.computeIfAbsent(task, t -> new HashSet<>()).add(date);
+    }
+
+    synchronized void remove(Task task) {
+        pending.remove(task);
+        deferred.remove(task);
+    }
+
+    synchronized int size() {
+        return pending.values().stream().mapToInt(Set::size).sum();
+    }
+
+    /**
+     * Drops the queued days before {@code today} shorter than {@code minDuration}, unless {@code keepNoted} and they
+     * have a note.
+     */
+    void compact(Duration minDuration, boolean keepNoted, LocalDate today) {
+        Map<Task, Set<LocalDate>> batch;
+        List<Task> loaded = new ArrayList<>();
+        synchronized (this) {
+            batch = pending;
+            pending = new IdentityHashMap<>();
+            deferred.removeIf(task -> task.isHistoryLoaded() && loaded.add(task));
+        }
+        loaded.forEach(task -> task.compactLoadedHistory(minDuration, keepNoted, today));
+        batch.forEach((task, days) -> task.compactDays(days, minDuration, keepNoted, today)
+                .forEach(date -> add(task, date)));
+    }
+
+    /**
+     * Drops the short days before {@code today} from the whole loaded history of {@code tasks}. The deferred days are
+     * left for the first pass after they are loaded.
+     */
+    void sweep(Collection<Task> tasks, Duration minDuration, boolean keepNoted, LocalDate today) {
+        for (Task task : tasks) {
+            task.compactLoadedHistory(minDuration, keepNoted, today);
+            if (!task.isHistoryLoaded()) {
+                synchronized (this) {
+                    deferred.add(task);
+                }
+            }
+        }
+    }
+}
@@ -4,77 +4,66 @@ import com.chrono.task.model.Settings;
 import com.chrono.task.model.TaskStatus;
 import javafx.application.Platform;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.time.Duration;
 
 public class JiraRefreshService {
 
+    static final String REFRESH_JOB = "jira-refresh";
+    // Spreads the requests of clients started together
+    private static final double REFRESH_JITTER = 0.1;
+
     private final JiraService jiraService;
     private final TaskService taskService;
     private final Settings settings;
     private final javafx.beans.property.BooleanProperty isRefreshing = new javafx.beans.property.SimpleBooleanProperty(
             false);
-    private ScheduledExecutorService scheduler;
+    private final SchedulerService scheduler;
 
-    public JiraRefreshService(JiraService jiraService, TaskService taskService, Settings settings) {
+    public JiraRefreshService(JiraService jiraService, TaskService taskService, Settings settings,
+            SchedulerService scheduler) {
         this.jiraService = jiraService;
         this.taskService = taskService;
         this.settings = settings;
+        this.scheduler = scheduler;
     }
 
     public javafx.beans.property.ReadOnlyBooleanProperty isRefreshingProperty() {
         return isRefreshing;
     }
 
+    /**
+     * Schedules the refresh with the current settings, replacing the one scheduled before.
+     */
     public synchronized void start() {
-        if (scheduler != null && !scheduler.isShutdown()) {
-            return;
-        }
-
         if (!settings.isJiraRefreshEnabled()) {
+            stop();
             return;
         }
 
-        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "JiraRefresh-Thread");
-            t.setDaemon(true);
-            return t;
-        });
-
         long interval = settings.getJiraRefreshInterval();
         if (interval < 1)
             interval = 1;
 
-        TimeUnit timeUnit = switch (settings.getJiraRefreshUnit()) {
-            case SECONDS -> TimeUnit.SECONDS;
-            case MINUTES -> TimeUnit.MINUTES;
-            case HOURS -> TimeUnit.HOURS;
-            default -> TimeUnit.MINUTES;
+        Duration period = switch (settings.getJiraRefreshUnit()) {
+            case SECONDS -> Duration.ofSeconds(interval);
+            case MINUTES -> Duration.ofMinutes(interval);
+            case HOURS -> Duration.ofHours(interval);
+            default -> Duration.ofMinutes(interval);
         };
 
-        scheduler.scheduleAtFixedRate(this::refreshAll, interval, interval, timeUnit);
+        scheduler.schedule(REFRESH_JOB, period, period, REFRESH_JITTER, this::refreshAll);
         System.out
                 .println("JiraRefreshService started with interval: " + interval + " " + settings.getJiraRefreshUnit());
     }
 
     public synchronized void stop() {
-        if (scheduler != null) {
-            scheduler.shutdown();
-            try {
-                if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-                    scheduler.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                scheduler.shutdownNow();
-            }
-            scheduler = null;
+        if (scheduler.isPending(REFRESH_JOB)) {
             System.out.println("JiraRefreshService stopped");
         }
+        scheduler.cancel(REFRESH_JOB);
     }
 
     public synchronized void restart() {
-        stop();
         start();
     }
 
@@ -0,0 +1,215 @@
+package com.chrono.task.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the background jobs of all services from one place.
+ * <p>
+ * A single daemon thread only keeps time; each run happens on its own virtual thread, so blocking work such as HTTP
+ * calls, git processes and file writes does not hold up the other jobs. Jobs are named: scheduling a job again under
+ * the same name replaces it, which is how settings changes and debouncing reschedule work. A periodic job waits for
+ * its run to end before counting down to the next one, so it never overlaps itself.
+ */
+public class SchedulerService {
+
+    /**
+     * Metrics of a job. {@code lastRun} and {@code lastDuration} are {@code null} until it first ran.
+     */
+    public record JobStats(String name, boolean paused, Instant lastRun, Duration lastDuration, long runs,
+            long failures, String lastError) {
+    }
+
+    private final ScheduledExecutorService timer;
+    private final ExecutorService workers;
+    private final Map<String, Job> jobs = new TreeMap<>();
+
+    public SchedulerService() {
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Scheduler");
+            t.setDaemon(true);
+            return t;
+        });
+        this.workers = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("job-", 0).factory());
+    }
+
+    /**
+     * Runs {@code action} every {@code period}, the first time after {@code initialDelay}.
+     *
+     * @param jitter fraction of the period added or removed at random from each delay, to spread jobs out
+     */
+    public synchronized void schedule(String name, Duration initialDelay, Duration period, double jitter,
+            Runnable action) {
+        if (period.isNegative() || period.isZero()) {
+            throw new IllegalArgumentException("Period of job " + name + " must be positive: " + period);
+        }
+        replace(new Job(name, action, period, jitter)).arm(initialDelay);
+    }
+
+    public void schedule(String name, Duration initialDelay, Duration period, Runnable action) {
+        schedule(name, initialDelay, period, 0, action);
+    }
+
+    /**
+     * Runs {@code action} once after {@code delay}, replacing a run of the same name still pending. The job and its
+     * metrics stay listed until cancelled.
+     */
+    public synchronized void scheduleOnce(String name, Duration delay, Runnable action) {
+        replace(new Job(name, action, null, 0)).arm(delay);
+    }
+
+    /**
+     * Whether a run of {@code name} is scheduled or running.
+     */
+    public synchronized boolean isPending(String name) {
+        Job job = jobs.get(name);
+        return job != null && (job.running || job.next != null && !job.next.isDone());
+    }
+
+    public synchronized void cancel(String name) {
+        Job job = jobs.remove(name);
+        if (job != null) {
+            job.disarm();
+        }
+    }
+
+    /**
+     * Stops scheduling {@code name} until {@link #resume}. A run under way completes.
+     */
+    public synchronized void pause(String name) {
+        Job job = jobs.get(name);
+        if (job != null && !job.paused) {
+            job.paused = true;
+            job.disarm();
+        }
+    }
+
+    /**
+     * Schedules {@code name} again, a full period from now, or right away if a one-off run was due while paused.
+     */
+    public synchronized void resume(String name) {
+        Job job = jobs.get(name);
+        if (job != null && job.paused) {
+            job.paused = false;
+            job.arm(job.period == null ? Duration.ZERO : job.period);
+        }
+    }
+
+    public synchronized List<JobStats> stats() {
+        List<JobStats> stats = new ArrayList<>();
+        jobs.values().forEach(job -> stats.add(new JobStats(job.name, job.paused, job.lastRun, job.lastDuration,
+                job.runs, job.failures, job.lastError)));
+        return stats;
+    }
+
+    public synchronized void shutdown() {
+        jobs.values().forEach(Job::disarm);
+        jobs.clear();
+        timer.shutdownNow();
+        workers.shutdown();
+    }
+
+    private Job replace(Job job) {
+        Job previous = jobs.put(job.name, job);
+        if (previous != null) {
+            previous.disarm();
+            // Keep counting across reschedules
+            job.lastRun = previous.lastRun;
+            job.lastDuration = previous.lastDuration;
+            job.runs = previous.runs;
+            job.failures = previous.failures;
+            job.lastError = previous.lastError;
+        }
+        return job;
+    }
+
+    /**
+     * A named job. Its state is guarded by the scheduler.
+     */
+    private final class Job {
+
+        private final String name;
+        private final Runnable action;
+        // null for a one-off job
+        private final Duration period;
+        private final double jitter;
+        private ScheduledFuture<?> next;
+        private boolean paused;
+        private boolean running;
+        private Instant lastRun;
+        private Duration lastDuration;
+        private long runs;
+        private long failures;
+        private String lastError;
+
+        private Job(String name, Runnable action, Duration period, double jitter) {
+            this.name = name;
+            this.action = action;
+            this.period = period;
+            this.jitter = jitter;
+        }
+
+        private void arm(Duration delay) {
+            if (paused || timer.isShutdown()) {
+                return;
+            }
+            long millis = delay.toMillis();
+            if (jitter > 0 && period != null) {
+                long spread = (long) (period.toMillis() * jitter);
+                millis += ThreadLocalRandom.current().nextLong(-spread, spread + 1);
+            }
+            next = timer.schedule(() -> workers.execute(this::run), Math.max(0, millis), TimeUnit.MILLISECONDS);
+        }
+
+        private void disarm() {
+            if (next != null) {
+                next.cancel(false);
+                next = null;
+            }
+        }
+
+        private void run() {
+            synchronized (SchedulerService.this) {
+                if (jobs.get(name) != this || paused) {
+                    return; // Replaced or paused since it was due
+                }
+                running = true;
+            }
+            Instant start = Instant.now();
+            Throwable failure = null;
+            try {
+                action.run();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                System.err.println("Job " + name + " failed: " + e);
+                e.printStackTrace();
+            }
+            synchronized (SchedulerService.this) {
+                running = false;
+                lastRun = start;
+                lastDuration = Duration.between(start, Instant.now());
+                runs++;
+                if (failure != null) {
+                    failures++;
+                    lastError = failure.toString();
+                }
+                if (jobs.get(name) != this) {
+                    return;
+                }
+                if (period != null) {
+                    arm(period);
+                }
+            }
+        }
+    }
+}
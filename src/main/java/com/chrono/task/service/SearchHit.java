@@ -0,0 +1,24 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.Task;
+
+import java.util.Set;
+
+/**
+ * A task found by {@link TaskService#search(String)} and the fields the query was found in.
+ */
+public record SearchHit(Task task, Set<Field> fields) {
+
+    public enum Field {
+        DESCRIPTION,
+        JIRA_URL,
+        SLACK_URL,
+        TAGS,
+        MARKDOWN,
+        NOTES;
+
+        int bit() {
+            return 1 << ordinal();
+        }
+    }
+}
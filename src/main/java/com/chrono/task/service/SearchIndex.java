@@ -0,0 +1,164 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskDailyWork;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Gram index over the texts of the tasks of the list, so that filtering only checks the tasks holding every gram of
+ * the query instead of scanning all texts of all tasks.
+ * <p>
+ * Each position of a lower-cased text starts a gram of {@link #GRAM} characters, shorter at the end of the text, so
+ * any query finds its candidates: a longer one holds all its grams, a shorter one prefixes a gram. Postings keep the
+ * fields of each task a gram occurs in. Changed tasks are indexed again on the next query. Deferred markdown and
+ * history are indexed as stored, without being loaded into the task. Released markdown and notes are not indexed,
+ * they are left for the caller to search.
+ */
+class SearchIndex {
+
+    static final int GRAM = 3;
+    static final int TEXT_FIELDS = SearchHit.Field.MARKDOWN.bit() | SearchHit.Field.NOTES.bit();
+
+    /**
+     * Fields that may hold a query by task id, as {@link SearchHit.Field} bits, and the tasks whose markdown and notes
+     * are not indexed. {@code exact} when the fields do hold it, the query being no longer than a gram.
+     */
+    record Candidates(Map<String, Integer> fields, Set<String> textsUnindexed, boolean exact) {
+    }
+
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    // Fields of each gram of a task, to take them out when it is indexed again
+    private final Map<String, Map<String, Integer>> gramsByTask = new HashMap<>();
+    private final Map<String, Task> tasksById = new HashMap<>();
+    private final Set<String> textsUnindexed = new HashSet<>();
+    private final Map<String, Task> pending = new HashMap<>();
+
+    synchronized void add(Task task) {
+        tasksById.put(task.getId(), task);
+        pending.put(task.getId(), task);
+    }
+
+    /**
+     * Indexes {@code task} again on the next query.
+     */
+    synchronized void changed(Task task) {
+        if (tasksById.get(task.getId()) == task) {
+            pending.put(task.getId(), task);
+        }
+    }
+
+    synchronized void remove(Task task) {
+        if (tasksById.get(task.getId()) != task) {
+            return;
+        }
+        tasksById.remove(task.getId());
+        pending.remove(task.getId());
+        unindex(task.getId());
+    }
+
+    synchronized Candidates candidates(String lowerQuery) {
+        pending.values().forEach(this::index);
+        pending.clear();
+
+        Map<String, Integer> found = new HashMap<>();
+        if (lowerQuery.length() < GRAM) {
+            postings.subMap(lowerQuery, lowerQuery + Character.MAX_VALUE).values()
+                    .forEach(tasks -> tasks.forEach((id, fields) -> found.merge(id, fields, (a, b) -> a | b)));
+        } else {
+            List<Map<String, Integer>> lists = new ArrayList<>();
+            for (String gram : grams(lowerQuery)) {
+                Map<String, Integer> tasks = postings.get(gram);
+                if (tasks == null) {
+                    lists.clear();
+                    break;
+                }
+                lists.add(tasks);
+            }
+            // From the rarest gram, so that the intersection stays small
+            lists.sort(Comparator.comparingInt(Map::size));
+            if (!lists.isEmpty()) {
+                found.putAll(lists.get(0));
+                for (Map<String, Integer> tasks : lists.subList(1, lists.size())) {
+                    found.entrySet().removeIf(entry -> {
+                        entry.setValue(entry.getValue() & tasks.getOrDefault(entry.getKey(), 0));
+                        return entry.getValue() == 0;
+                    });
+                }
+            }
+        }
+        return new Candidates(found, Set.copyOf(textsUnindexed), lowerQuery.length() <= GRAM);
+    }
+
+    private void index(Task task) {
+        String id = task.getId();
+        unindex(id);
+        Map<String, Integer> grams = new HashMap<>();
+        boolean withTexts;
+        synchronized (task) {
+            add(grams, task.getDescription(), SearchHit.Field.DESCRIPTION);
+            add(grams, task.getJiraUrl(), SearchHit.Field.JIRA_URL);
+            add(grams, task.getSlackUrl(), SearchHit.Field.SLACK_URL);
+            if (task.getTags() != null) {
+                task.getTags().forEach(tag -> add(grams, tag, SearchHit.Field.TAGS));
+            }
+            withTexts = !task.areTextsReleased();
+            if (withTexts) {
+                add(grams, task.getStoredMarkdownContent(), SearchHit.Field.MARKDOWN);
+                Map<LocalDate, TaskDailyWork> history = task.getStoredHistory();
+                if (history != null) {
+                    history.values().forEach(work -> add(grams, work.getNote(), SearchHit.Field.NOTES));
+                }
+            }
+        }
+        if (!withTexts) {
+            textsUnindexed.add(id);
+        }
+        grams.forEach((gram, fields) -> postings.computeIfAbsent(gram, g -> new HashMap<>()).put(id, fields));
+        gramsByTask.put(id, grams);
+    }
+
+    private void unindex(String id) {
+        textsUnindexed.remove(id);
+        Map<String, Integer> grams = gramsByTask.remove(id);
+        if (grams == null) {
+            return;
+        }
+        for (String gram : grams.keySet()) {
+            Map<String, Integer> tasks = postings.get(gram);
+            tasks.remove(id);
+            if (tasks.isEmpty()) {
+                postings.remove(gram);
+            }
+        }
+    }
+
+    private static void add(Map<String, Integer> grams, String text, SearchHit.Field field) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String lower = text.toLowerCase();
+        for (int i = 0; i < lower.length(); i++) {
+            grams.merge(lower.substring(i, Math.min(i + GRAM, lower.length())), field.bit(), (a, b) -> a | b);
+        }
+    }
+
+    /**
+     * The full-length grams of a query at least {@link #GRAM} characters long.
+     */
+    private static Set<String> grams(String lowerQuery) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= lowerQuery.length(); i++) {
+            grams.add(lowerQuery.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,36 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.TaskChange;
+
+/**
+ * Kind of change {@link TaskService} publishes on its {@link TaskEventBus}.
+ */
+public enum TaskEvent {
+    /** Added to the list, loaded and restored tasks included. */
+    CREATED,
+    /** Taken out of the list, archived tasks included. */
+    REMOVED,
+    /** Given a new order key. */
+    MOVED,
+    /** Description, URLs, Jira flag or tags. */
+    FIELD_CHANGED,
+    /** Markdown, a daily note, or the notes of a replaced history. */
+    TEXT_CHANGED,
+    /** Time of a day, or the whole history when it was replaced, which is also a {@link #TEXT_CHANGED}. */
+    TIME_ACCRUED,
+    STATUS_CHANGED;
+
+    int bit() {
+        return 1 << ordinal();
+    }
+
+    static TaskEvent of(TaskChange change) {
+        return switch (change) {
+            case TIME -> TIME_ACCRUED;
+            case NOTE -> TEXT_CHANGED;
+            case FIELD -> FIELD_CHANGED;
+            case STATUS -> STATUS_CHANGED;
+            case ORDER -> MOVED;
+        };
+    }
+}
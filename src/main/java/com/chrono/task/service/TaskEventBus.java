@@ -0,0 +1,114 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.Task;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Changes of the tasks of a {@link TaskService}, published as they happen.
+ * <p>
+ * A listener is called on the thread making the change, for each event, without anything allocated: it suits indexes
+ * and bookkeeping that must follow every change before the next one. A batch subscriber gets the events gathered over
+ * a window on its own executor, one call however many changes there were: it suits the UI. Subscribers only get the
+ * kinds of event they asked for.
+ */
+public class TaskEventBus {
+
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param date the day changed, {@code null} when the change is not about a single day
+         */
+        void onEvent(TaskEvent event, Task task, LocalDate date);
+    }
+
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+    /**
+     * Calls {@code listener} on the publishing thread for each event of the given kinds.
+     */
+    public void subscribe(Set<TaskEvent> events, Listener listener) {
+        subscribers.add(new Subscriber(bits(events), listener));
+    }
+
+    /**
+     * Gathers the events of the given kinds and passes them to {@code consumer} on {@code executor}, {@code window}
+     * after the first one of each batch.
+     */
+    public void subscribe(Set<TaskEvent> events, Duration window, Executor executor, Consumer<TaskEvents> consumer) {
+        Executor delayed = window.isZero() ? executor
+                : CompletableFuture.delayedExecutor(window.toMillis(), TimeUnit.MILLISECONDS, executor);
+        subscribers.add(new Subscriber(bits(events), new Batcher(delayed, consumer)));
+    }
+
+    void publish(TaskEvent event, Task task, LocalDate date) {
+        for (Subscriber subscriber : subscribers) {
+            if ((subscriber.events() & event.bit()) != 0) {
+                try {
+                    subscriber.listener().onEvent(event, task, date);
+                } catch (RuntimeException e) {
+                    e.printStackTrace(); // The change is made, the other subscribers still hear of it
+                }
+            }
+        }
+    }
+
+    private static int bits(Set<TaskEvent> events) {
+        int bits = 0;
+        for (TaskEvent event : events) {
+            bits |= event.bit();
+        }
+        return bits;
+    }
+
+    private record Subscriber(int events, Listener listener) {
+    }
+
+    private static final class Batcher implements Listener {
+
+        private final Executor executor;
+        private final Consumer<TaskEvents> consumer;
+        private TaskEvents pending;
+
+        Batcher(Executor executor, Consumer<TaskEvents> consumer) {
+            this.executor = executor;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void onEvent(TaskEvent event, Task task, LocalDate date) {
+            boolean first;
+            synchronized (this) {
+                first = pending == null;
+                if (first) {
+                    pending = new TaskEvents();
+                }
+                pending.add(event, task);
+            }
+            if (first) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            TaskEvents batch;
+            synchronized (this) {
+                batch = pending;
+                pending = null;
+            }
+            try {
+                consumer.accept(batch);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
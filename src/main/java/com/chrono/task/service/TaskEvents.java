@@ -0,0 +1,46 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.Task;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A batch of events delivered at once by the {@link TaskEventBus}: the tasks changed, each with the kinds of change it
+ * went through, however many times.
+ */
+public final class TaskEvents {
+
+    // Event bits of each task, in the order they first changed
+    private final Map<Task, Integer> events = new LinkedHashMap<>();
+
+    void add(TaskEvent event, Task task) {
+        events.merge(task, event.bit(), (a, b) -> a | b);
+    }
+
+    public Set<Task> tasks() {
+        return Collections.unmodifiableSet(events.keySet());
+    }
+
+    public boolean contains(Task task, TaskEvent event) {
+        return (events.getOrDefault(task, 0) & event.bit()) != 0;
+    }
+
+    public boolean contains(TaskEvent event) {
+        return events.values().stream().anyMatch(bits -> (bits & event.bit()) != 0);
+    }
+
+    public Set<TaskEvent> eventsOf(Task task) {
+        Set<TaskEvent> of = EnumSet.noneOf(TaskEvent.class);
+        int bits = events.getOrDefault(task, 0);
+        for (TaskEvent event : TaskEvent.values()) {
+            if ((bits & event.bit()) != 0) {
+                of.add(event);
+            }
+        }
+        return of;
+    }
+}
@@ -0,0 +1,125 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.Task;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The tasks of the list by id, description and Jira URL, so that lookups and uniqueness checks do not go through the
+ * whole list. URLs are indexed normalized: two links are the same when they only differ in scheme, case of the host,
+ * query, fragment or trailing slashes. Issues with the same key on two sites stay apart.
+ * <p>
+ * Descriptions and URLs are indexed again when a task reports a field change. Loaded data may hold duplicates, so each
+ * value keeps the ids of all the tasks having it.
+ */
+class TaskIndex {
+
+    private final Map<String, Task> tasksById = new HashMap<>();
+    private final Map<String, Set<String>> idsByDescription = new HashMap<>();
+    private final Map<String, Set<String>> idsByJiraUrl = new HashMap<>();
+    // Values indexed for each task, to take them out when they change
+    private final Map<String, String> descriptions = new HashMap<>();
+    private final Map<String, String> jiraUrls = new HashMap<>();
+
+    synchronized void add(Task task) {
+        tasksById.put(task.getId(), task);
+        index(task);
+    }
+
+    synchronized void remove(Task task) {
+        if (tasksById.get(task.getId()) != task) {
+            return;
+        }
+        tasksById.remove(task.getId());
+        unindex(task.getId());
+    }
+
+    /**
+     * Indexes the description and Jira URL of {@code task} again.
+     */
+    synchronized void update(Task task) {
+        if (tasksById.get(task.getId()) == task) {
+            unindex(task.getId());
+            index(task);
+        }
+    }
+
+    synchronized Task get(String id) {
+        return tasksById.get(id);
+    }
+
+    /**
+     * Whether a task other than {@code except}, which may be {@code null}, has {@code description}.
+     */
+    synchronized boolean hasDescription(String description, Task except) {
+        return holds(idsByDescription.get(description), except);
+    }
+
+    /**
+     * Whether a task other than {@code except}, which may be {@code null}, has {@code jiraUrl} once normalized.
+     */
+    synchronized boolean hasJiraUrl(String jiraUrl, Task except) {
+        String url = normalizeUrl(jiraUrl);
+        return url != null && holds(idsByJiraUrl.get(url), except);
+    }
+
+    /**
+     * {@code jiraUrl} without its scheme, query, fragment and trailing slashes, the host in lower case, or {@code null}
+     * if blank.
+     */
+    static String normalizeUrl(String jiraUrl) {
+        if (jiraUrl == null || jiraUrl.isBlank()) {
+            return null;
+        }
+        String url = jiraUrl.strip().split("[?#]", 2)[0];
+        int end = url.length();
+        while (end > 0 && url.charAt(end - 1) == '/') {
+            end--;
+        }
+        int scheme = url.indexOf("://");
+        int host = scheme < 0 ? 0 : scheme + 3;
+        int path = url.indexOf('/', host);
+        if (path < 0 || path > end) {
+            path = end;
+        }
+        return url.substring(host, path).toLowerCase(Locale.ROOT) + url.substring(path, end);
+    }
+
+    private static boolean holds(Set<String> ids, Task except) {
+        return ids != null && (except == null || ids.size() > 1 || !ids.contains(except.getId()));
+    }
+
+    private void index(Task task) {
+        String id = task.getId();
+        String description = task.getDescription();
+        String jiraUrl = normalizeUrl(task.getJiraUrl());
+        if (description != null) {
+            descriptions.put(id, description);
+            idsByDescription.computeIfAbsent(description, d -> new HashSet<>()).add(id);
+        }
+        if (jiraUrl != null) {
+            jiraUrls.put(id, jiraUrl);
+            idsByJiraUrl.computeIfAbsent(jiraUrl, u -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void unindex(String id) {
+        unindex(idsByDescription, descriptions.remove(id), id);
+        unindex(idsByJiraUrl, jiraUrls.remove(id), id);
+    }
+
+    private static void unindex(Map<String, Set<String>> index, String value, String id) {
+        if (value == null) {
+            return;
+        }
+        Set<String> ids = index.get(value);
+        ids.remove(id);
+        if (ids.isEmpty()) {
+            index.remove(value);
+        }
+    }
+}
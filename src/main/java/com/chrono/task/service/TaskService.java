@@ -2,36 +2,117 @@ package com.chrono.task.service;
 
 import com.chrono.task.model.DataStore;
 import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskChange;
+import com.chrono.task.model.TaskChangeListener;
+import com.chrono.task.model.TaskDailyWork;
+import com.chrono.task.model.TaskStatus;
+import com.chrono.task.persistence.ArchiveStore;
+import com.chrono.task.persistence.BackgroundStorageWriter;
+import com.chrono.task.persistence.JsonStorageService;
+import com.chrono.task.persistence.MappedDurationStore;
 import com.chrono.task.persistence.StorageService;
+import com.chrono.task.persistence.TextStore;
+import com.chrono.task.persistence.WorkQueries;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
+import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 public class TaskService {
 
+    // Accrued time is only checkpointed periodically, other edits are saved shortly after they stop
+    private static final long AUTO_SAVE_INTERVAL_MINUTES = 3;
+    private static final long SAVE_DEBOUNCE_MILLIS = 5_000;
+    private static final long SAVE_MAX_DELAY_MILLIS = 30_000;
+    private static final long SHUTDOWN_FLUSH_SECONDS = 10;
+    private static final long COMPACTION_INTERVAL_MINUTES = 10;
+    static final String AUTO_SAVE_JOB = "autosave";
+    static final String SAVE_JOB = "save";
+    static final String COMPACTION_JOB = "history-compaction";
+    private static final int ALL_FIELDS = (1 << SearchHit.Field.values().length) - 1;
+    private static final Comparator<Task> BY_ORDER = Comparator.comparingInt(Task::getOrder);
+
     private final StorageService storageService;
+    private final BackgroundStorageWriter storageWriter;
+    private final Object saveLock = new Object();
     private final ObservableList<Task> tasks;
-    private final ScheduledExecutorService autoSaveScheduler;
+    // Task being taken out and put back by moveTask, which stays in the list as far as the indexes are concerned
+    private Task moving;
+    private final SchedulerService scheduler;
     private final ObjectProperty<LocalDateTime> lastSaveTime = new SimpleObjectProperty<>();
 
-    public TaskService(StorageService storageService) {
+    private final Set<Task> dirtyTasks = ConcurrentHashMap.newKeySet();
+    private volatile boolean listDirty;
+    private long burstStartNanos;
+    private final AtomicLong savesWritten = new AtomicLong();
+    private final AtomicLong savesSkipped = new AtomicLong();
+    private volatile MappedDurationStore durationStore;
+    private volatile ArchiveStore archive;
+    // Archived tasks back in the list, dropped from the archive once a save covers them
+    private final Set<String> restoredIds = ConcurrentHashMap.newKeySet();
+    private volatile TextStore texts;
+    private final DayLedger ledger = new DayLedger();
+    private final HistoryCompactor compactor = new HistoryCompactor();
+    // Tasks loaded at startup, swept whole by the first compaction pass
+    private volatile List<Task> unswept;
+    private final SearchIndex searchIndex = new SearchIndex();
+    private final TaskIndex taskIndex = new TaskIndex();
+    private volatile Duration minDayDuration = Duration.ofMinutes(2);
+    private volatile boolean keepShortDaysWithNotes = true;
+    private volatile Runnable beforeSave;
+    private final TaskEventBus events = new TaskEventBus();
+    private final TaskChangeListener taskListener = new TaskChangeListener() {
+        @Override
+        public void onTaskChanged(Task task, TaskChange change) {
+            events.publish(TaskEvent.of(change), task, null);
+            if (change == TaskChange.TIME) {
+                // The whole history was replaced, its notes with it
+                events.publish(TaskEvent.TEXT_CHANGED, task, null);
+            }
+        }
+
+        @Override
+        public void onDayChanged(Task task, LocalDate date, TaskChange change) {
+            events.publish(TaskEvent.of(change), task, date);
+        }
+    };
+
+    /**
+     * Saves and compaction run on {@code scheduler}, shared with the other services and shut down by its owner.
+     */
+    public TaskService(StorageService storageService, SchedulerService scheduler) {
         this.storageService = storageService;
+        this.storageWriter = new BackgroundStorageWriter(storageService);
         this.tasks = FXCollections.observableArrayList();
-        this.autoSaveScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "AutoSave-Thread");
-            t.setDaemon(true);
-            return t;
-        });
+        this.scheduler = scheduler;
+        this.tasks.addListener(this::onTasksChanged);
+        // Indexes first, so that persistence and the other subscribers find them up to date
+        events.subscribe(EnumSet.allOf(TaskEvent.class), this::updateIndexes);
+        events.subscribe(EnumSet.complementOf(EnumSet.of(TaskEvent.CREATED, TaskEvent.REMOVED)), this::markDirty);
     }
 
     public void init() throws IOException {
@@ -39,11 +120,296 @@ public class TaskService {
         if (data.getTasks() != null) {
             tasks.setAll(data.getTasks());
             // Ensure they are sorted by order
-            tasks.sort(Comparator.comparingInt(Task::getOrder));
+            tasks.sort(BY_ORDER);
+        }
+        // Loading went through the setters, but everything matches the storage
+        tasks.forEach(task -> task.markSaved(task.getModCount()));
+        dirtyTasks.clear();
+        listDirty = false;
+        unswept = List.copyOf(tasks);
+
+        // Checkpoint accrued time every 3 minutes, skipped when nothing changed
+        scheduler.schedule(AUTO_SAVE_JOB, Duration.ofMinutes(AUTO_SAVE_INTERVAL_MINUTES),
+                Duration.ofMinutes(AUTO_SAVE_INTERVAL_MINUTES), this::saveIfDirty);
+        scheduler.schedule(COMPACTION_JOB, Duration.ofMinutes(COMPACTION_INTERVAL_MINUTES),
+                Duration.ofMinutes(COMPACTION_INTERVAL_MINUTES), this::compactHistory);
+    }
+
+    /**
+     * Runs {@code action} at the start of every save, before the changed tasks are collected, and before every range
+     * query, so that both include the time of the running timer.
+     */
+    public void setBeforeSave(Runnable action) {
+        this.beforeSave = action;
+    }
+
+    /**
+     * Past days with less than {@code minDuration} are dropped from the history, unless {@code keepNoted} and they
+     * have a note. Applies from the next compaction pass.
+     */
+    public void setHistoryRetention(Duration minDuration, boolean keepNoted) {
+        this.minDayDuration = minDuration;
+        this.keepShortDaysWithNotes = keepNoted;
+    }
+
+    /**
+     * Drops the short days among the ones changed since the last pass. Runs on its own schedule, the tasks it changes
+     * being saved by the next save.
+     */
+    void compactHistory() {
+        try {
+            List<Task> sweep = unswept;
+            if (sweep != null) {
+                unswept = null;
+                compactor.sweep(sweep, minDayDuration, keepShortDaysWithNotes, LocalDate.now());
+            }
+            compactor.compact(minDayDuration, keepShortDaysWithNotes, LocalDate.now());
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // Keep the schedule alive, the days stay in the history
+        }
+    }
+
+    /**
+     * Restores the time the duration store accrued after the last save, then checkpoints it after each save.
+     *
+     * @return the number of task days whose time was restored
+     */
+    public int useDurationStore(MappedDurationStore store) {
+        Map<String, Task> byId = new HashMap<>();
+        tasks.forEach(task -> byId.put(task.getId(), task));
+        int recovered = 0;
+        for (MappedDurationStore.Entry entry : store.sinceCheckpoint()) {
+            Task task = byId.get(entry.taskId());
+            if (task != null && entry.duration().compareTo(task.getTimeForDate(entry.date())) > 0) {
+                task.setTime(entry.date(), entry.duration());
+                recovered++;
+            }
+        }
+        this.durationStore = store;
+        return recovered;
+    }
+
+    /**
+     * Keeps the markdown content and the daily notes in {@code store} rather than in memory and in the task documents.
+     * Tasks whose texts are not in the store yet have them written there, then are saved without them.
+     */
+    public void useTextStore(TextStore store) throws IOException {
+        List<Task> inline = new ArrayList<>();
+        List<Task> changed = new ArrayList<>();
+        for (Task task : tasks) {
+            if (!store.contains(task.getId())) {
+                inline.add(task);
+            } else if (task.releaseTexts(store, task.getModCount())) {
+                // Saved with its texts, but they were written to the store already
+                changed.add(task);
+            }
+        }
+        this.texts = store;
+        writeTexts(store, inline);
+        changed.addAll(inline);
+        if (!changed.isEmpty()) {
+            dirtyTasks.addAll(changed);
+            requestSave();
+        }
+    }
+
+    /**
+     * Moves the texts kept in {@code store} back into the task documents, when it is no longer used. They are taken out
+     * of the store once saved, so that using it again starts from the texts of the tasks.
+     */
+    public void leaveTextStore(TextStore store) throws IOException {
+        this.texts = null;
+        List<Task> restored = new ArrayList<>();
+        for (Task task : tasks) {
+            if (store.contains(task.getId())) {
+                task.restoreTexts(store);
+                restored.add(task);
+            }
+        }
+        if (restored.isEmpty()) {
+            return;
+        }
+        dirtyTasks.addAll(restored);
+        saveSafely();
+        if (!flush(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS) || restored.stream().anyMatch(Task::isDirty)) {
+            throw new IOException("The texts moved back could not be saved, they stay in the text store");
+        }
+        store.remove(restored.stream().map(Task::getId).toList());
+    }
+
+    /**
+     * Writes the texts still held by {@code candidates} to {@code store}, then releases them.
+     */
+    private static void writeTexts(TextStore store, List<Task> candidates) throws IOException {
+        Map<String, TextStore.Texts> written = new HashMap<>();
+        Map<Task, Long> versions = new HashMap<>();
+        for (Task task : candidates) {
+            if (task.areTextsReleased()) {
+                continue;
+            }
+            // Read after the version, so that a concurrent edit keeps the texts held
+            versions.put(task, task.getModCount());
+            Map<LocalDate, String> notes = new HashMap<>();
+            task.getTaskHistory().forEach((date, work) -> {
+                if (work.getNote() != null && !work.getNote().isEmpty()) {
+                    notes.put(date, work.getNote());
+                }
+            });
+            written.put(task.getId(), new TextStore.Texts(task.getMarkdownContent(), notes));
+        }
+        if (!written.isEmpty()) {
+            store.write(written);
+            versions.forEach((task, version) -> task.releaseTexts(store, version));
+        }
+    }
+
+    /**
+     * Moves DONE tasks idle for {@code afterDays} days, and the history older than that, to {@code archive}. Archived
+     * time still counts in the task totals, and archived tasks return to the list as soon as they are changed.
+     *
+     * @param afterDays 0 to only read what is already archived
+     * @return the number of tasks archived
+     */
+    public int useArchive(ArchiveStore archive, int afterDays) throws IOException {
+        // A task restored just before a crash may still be listed in the archive
+        archive.forget(tasks.stream().map(Task::getId).toList());
+        // And days archived just before a crash may still be in the tasks
+        Map<String, Task> byId = new HashMap<>();
+        tasks.forEach(task -> byId.put(task.getId(), task));
+        archive.forgetUnsavedHistories(byId);
+        tasks.forEach(task -> task.setArchivedTime(archive.archivedTime(task.getId())));
+        this.archive = archive;
+        return afterDays > 0 ? archiveBefore(LocalDate.now().minusDays(afterDays)) : 0;
+    }
+
+    int archiveBefore(LocalDate horizon) throws IOException {
+        List<Task> done = new ArrayList<>();
+        Map<String, Map<LocalDate, TaskDailyWork>> oldHistory = new HashMap<>();
+        for (Task task : tasks) {
+            // Deferred history is only read for the tasks with days to archive
+            Map<LocalDate, TaskDailyWork> old = task.getHistoryBefore(horizon);
+            if (task.getStatus() == TaskStatus.DONE && !task.hasHistoryFrom(horizon)) {
+                done.add(task);
+            } else if (!old.isEmpty()) {
+                oldHistory.put(task.getId(), old);
+            }
+        }
+        if (done.isEmpty() && oldHistory.isEmpty()) {
+            return 0;
+        }
+
+        // Nothing leaves the list before the segment is on disk
+        archive.write(done, oldHistory);
+        // The order keys left keep their order, gaps are fine
+        tasks.removeAll(new HashSet<>(done));
+        for (Task task : tasks) {
+            if (oldHistory.containsKey(task.getId())) {
+                task.detachHistoryBefore(horizon);
+                task.setArchivedTime(archive.archivedTime(task.getId()));
+            }
+        }
+        // Saved now: until then the archived days are also in the storage, see forgetUnsavedHistories after a crash
+        syncStorage();
+        return done.size();
+    }
+
+    /**
+     * Puts an archived task found by a search back in the list once changed. The change may come from any thread, the
+     * list is only changed on the FX thread.
+     */
+    private void onArchivedTaskChanged(Task task, TaskChange change) {
+        task.setChangeListener(null);
+        runOnFxThread(() -> {
+            if (!tasks.contains(task)) {
+                task.setOrder(orderAfterLast());
+                tasks.add(task);
+                dirtyTasks.add(task);
+                restoredIds.add(task.getId());
+            }
+        });
+    }
+
+    private void onTasksChanged(ListChangeListener.Change<? extends Task> change) {
+        while (change.next()) {
+            change.getRemoved().forEach(task -> {
+                if (task != moving) {
+                    task.setChangeListener(null);
+                    events.publish(TaskEvent.REMOVED, task, null);
+                }
+            });
+            change.getAddedSubList().forEach(task -> {
+                if (task != moving) {
+                    task.setChangeListener(taskListener);
+                    events.publish(TaskEvent.CREATED, task, null);
+                }
+            });
+        }
+        // Once for the whole change, however many tasks it holds
+        listDirty = true;
+        requestSave();
+    }
+
+    private void updateIndexes(TaskEvent event, Task task, LocalDate date) {
+        if (date != null) {
+            ledger.record(task, date);
+            compactor.add(task, date);
+        }
+        switch (event) {
+            case CREATED -> {
+                ledger.add(task);
+                searchIndex.add(task);
+                taskIndex.add(task);
+            }
+            case REMOVED -> {
+                ledger.remove(task);
+                compactor.remove(task);
+                searchIndex.remove(task);
+                taskIndex.remove(task);
+            }
+            case FIELD_CHANGED -> {
+                taskIndex.update(task);
+                searchIndex.changed(task);
+            }
+            case TEXT_CHANGED -> searchIndex.changed(task);
+            case TIME_ACCRUED -> {
+                if (date == null) {
+                    // The history was replaced or shortened
+                    ledger.add(task);
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void markDirty(TaskEvent event, Task task, LocalDate date) {
+        dirtyTasks.add(task);
+        if (event != TaskEvent.TIME_ACCRUED) {
+            requestSave();
+        }
+    }
+
+    /**
+     * Debounces saves: a burst of edits is written once it pauses, or at the latest {@link #SAVE_MAX_DELAY_MILLIS}
+     * after it started.
+     */
+    private synchronized void requestSave() {
+        long now = System.nanoTime();
+        if (!scheduler.isPending(SAVE_JOB)) {
+            burstStartNanos = now;
         }
+        long untilMaxDelay = SAVE_MAX_DELAY_MILLIS - TimeUnit.NANOSECONDS.toMillis(now - burstStartNanos);
+        long delay = Math.max(0, Math.min(SAVE_DEBOUNCE_MILLIS, untilMaxDelay));
+        // Replaces the save still pending
+        scheduler.scheduleOnce(SAVE_JOB, Duration.ofMillis(delay), this::saveIfDirty);
+    }
 
-        // Schedule auto-save every 3 minutes
-        autoSaveScheduler.scheduleAtFixedRate(this::saveSafely, 30, 3, TimeUnit.MINUTES);
+    public long getSavesWritten() {
+        return savesWritten.get();
+    }
+
+    public long getSavesSkipped() {
+        return savesSkipped.get();
     }
 
     public ObservableList<Task> getTasks() {
@@ -55,20 +421,19 @@ public class TaskService {
     }
 
     public Task createTask(String description) {
-        if (tasks.stream().anyMatch(t -> t.getDescription().equals(description))) {
+        if (taskIndex.hasDescription(description, null)) {
             throw new IllegalArgumentException("Task with description '" + description + "' already exists");
         }
         Task task = Task.builder()
                 .description(description)
-                .order(tasks.size()) // Append to end
+                .order(orderAfterLast()) // Append to end
                 .build();
         tasks.add(task);
         return task;
     }
 
     public void updateTaskDescription(Task task, String newDescription) {
-        if (tasks.stream()
-                .anyMatch(t -> !t.getId().equals(task.getId()) && t.getDescription().equals(newDescription))) {
+        if (taskIndex.hasDescription(newDescription, task)) {
             throw new IllegalArgumentException("Task with description '" + newDescription + "' already exists");
         }
         task.setDescription(newDescription);
@@ -76,7 +441,7 @@ public class TaskService {
 
     public void updateTaskJiraUrl(Task task, String newUrl) {
         if (newUrl != null && !newUrl.isBlank()
-                && tasks.stream().anyMatch(t -> !t.getId().equals(task.getId()) && newUrl.equals(t.getJiraUrl()))) {
+                && taskIndex.hasJiraUrl(newUrl, task)) {
             throw new IllegalArgumentException("Task with Jira URL '" + newUrl + "' already exists");
         }
         task.setJiraUrl(newUrl);
@@ -87,31 +452,326 @@ public class TaskService {
     }
 
     /**
-     * Filters tasks based on a query string against description, jiraUrl, or tags.
+     * Filters tasks based on a query string against description, jiraUrl, slackUrl, tags, markdown or daily notes.
      */
     public List<Task> filter(String query) {
         if (query == null || query.isBlank()) {
             return tasks;
         }
+        return search(query).stream().map(SearchHit::task).collect(Collectors.toList());
+    }
+
+    /**
+     * Tasks containing {@code query} in one of their fields, in list order then archived ones, with the fields it is
+     * in. Only the tasks the search index cannot rule out are checked.
+     */
+    public List<SearchHit> search(String query) {
+        return search(query, tasks, () -> false);
+    }
+
+    /**
+     * Searches {@code listed}, a copy of the list taken by a caller off the FX thread, then the archive. Stops with
+     * what it found so far once {@code cancelled}.
+     */
+    public List<SearchHit> search(String query, List<Task> listed, BooleanSupplier cancelled) {
         String lowerQuery = query.toLowerCase();
-        return tasks.stream()
-                .filter(t -> (t.getDescription() != null && t.getDescription().toLowerCase().contains(lowerQuery)) ||
-                        (t.getJiraUrl() != null && t.getJiraUrl().toLowerCase().contains(lowerQuery)) ||
-                        (t.getSlackUrl() != null && t.getSlackUrl().toLowerCase().contains(lowerQuery)) ||
-                        (t.getMarkdownContent() != null && t.getMarkdownContent().toLowerCase().contains(lowerQuery)) ||
-                        (t.getTaskHistory().values().stream()
-                                .anyMatch(work -> work.getNote() != null
-                                        && work.getNote().toLowerCase().contains(lowerQuery)))
-                        ||
-                        (t.getTags() != null
-                                && t.getTags().stream().anyMatch(tag -> tag.toLowerCase().contains(lowerQuery))))
-                .collect(Collectors.toList());
+        TextStore textStore = texts;
+        // Released texts are only read for the tasks the word index cannot rule out
+        Set<String> textCandidates = textStore == null ? null : textStore.candidates(lowerQuery);
+        SearchIndex.Candidates candidates = searchIndex.candidates(lowerQuery);
+        List<SearchHit> result = new ArrayList<>();
+        for (Task task : listed) {
+            if (cancelled.getAsBoolean()) {
+                return result;
+            }
+            int indexed = candidates.fields().getOrDefault(task.getId(), 0);
+            int unindexed = candidates.textsUnindexed().contains(task.getId()) ? SearchIndex.TEXT_FIELDS : 0;
+            if ((indexed | unindexed) != 0) {
+                addHit(result, task, lowerQuery, candidates.exact() ? indexed : 0, indexed | unindexed,
+                        textCandidates);
+            }
+        }
+        // Searching reads the archive segments, the first time only
+        for (Task archived : archivedTasks()) {
+            if (cancelled.getAsBoolean()) {
+                return result;
+            }
+            if (addHit(result, archived, lowerQuery, 0, ALL_FIELDS, textCandidates)) {
+                archived.setChangeListener(this::onArchivedTaskChanged);
+            }
+        }
+        return result;
     }
 
-    public void updateOrder(List<Task> newOrder) {
-        for (int i = 0; i < newOrder.size(); i++) {
-            newOrder.get(i).setOrder(i);
+    /**
+     * Hits of a query extending the one {@code hits} were found for: a text holding it holds the shorter one, so only
+     * the fields it was found in are checked again.
+     */
+    public List<SearchHit> refine(Collection<SearchHit> hits, String query, BooleanSupplier cancelled) {
+        String lowerQuery = query.toLowerCase();
+        List<SearchHit> result = new ArrayList<>();
+        for (SearchHit hit : hits) {
+            if (cancelled.getAsBoolean()) {
+                return result;
+            }
+            int fields = 0;
+            for (SearchHit.Field field : hit.fields()) {
+                fields |= field.bit();
+            }
+            addHit(result, hit.task(), lowerQuery, 0, fields, null);
+        }
+        return result;
+    }
+
+    /**
+     * The fields of {@code task} holding {@code query}, or {@code null}.
+     */
+    public SearchHit match(Task task, String query) {
+        String lowerQuery = query.toLowerCase();
+        TextStore textStore = texts;
+        List<SearchHit> result = new ArrayList<>(1);
+        addHit(result, task, lowerQuery, 0, ALL_FIELDS, textStore == null ? null : textStore.candidates(lowerQuery));
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    /**
+     * Changes of the tasks of the list.
+     */
+    public TaskEventBus getEvents() {
+        return events;
+    }
+
+    /**
+     * Adds a hit for {@code task} if it holds {@code lowerQuery} in one of the {@code fields} to check, or in one of
+     * the {@code known} ones.
+     */
+    private static boolean addHit(List<SearchHit> result, Task task, String lowerQuery, int known, int fields,
+            Set<String> textCandidates) {
+        if (textCandidates != null && task.areTextsReleased() && !textCandidates.contains(task.getId())) {
+            fields &= ~SearchIndex.TEXT_FIELDS;
+        }
+        Set<SearchHit.Field> found = EnumSet.noneOf(SearchHit.Field.class);
+        for (SearchHit.Field field : SearchHit.Field.values()) {
+            if ((known & field.bit()) != 0
+                    || (fields & field.bit()) != 0 && contains(task, field, lowerQuery)) {
+                found.add(field);
+            }
+        }
+        if (found.isEmpty()) {
+            return false;
+        }
+        result.add(new SearchHit(task, found));
+        return true;
+    }
+
+    /**
+     * Also runs on the filter worker: the tags and the days are copied under the task lock, as the FX thread, the timer
+     * and the compactor change them meanwhile, then searched once it is released, released notes being read from disk.
+     * Deferred markdown and history are searched as stored, so that a search does not load them into the task.
+     */
+    private static boolean contains(Task t, SearchHit.Field field, String lowerQuery) {
+        return switch (field) {
+            case DESCRIPTION -> contains(t.getDescription(), lowerQuery);
+            case JIRA_URL -> contains(t.getJiraUrl(), lowerQuery);
+            case SLACK_URL -> contains(t.getSlackUrl(), lowerQuery);
+            case TAGS -> {
+                List<String> tags;
+                synchronized (t) {
+                    tags = t.getTags() == null ? List.of() : new ArrayList<>(t.getTags());
+                }
+                yield tags.stream().anyMatch(tag -> contains(tag, lowerQuery));
+            }
+            case MARKDOWN -> {
+                String markdown;
+                synchronized (t) {
+                    markdown = t.areTextsReleased() ? null : t.getStoredMarkdownContent();
+                }
+                yield contains(markdown != null ? markdown : t.getMarkdownContent(), lowerQuery);
+            }
+            case NOTES -> {
+                List<TaskDailyWork> days;
+                synchronized (t) {
+                    Map<LocalDate, TaskDailyWork> history = t.getStoredHistory();
+                    days = history == null ? List.of() : new ArrayList<>(history.values());
+                }
+                yield days.stream().anyMatch(work -> contains(work.getNote(), lowerQuery));
+            }
+        };
+    }
+
+    private static boolean contains(String text, String lowerQuery) {
+        if (text == null) {
+            return false;
+        }
+        // Without a lower-cased copy of the text
+        char first = lowerQuery.charAt(0);
+        for (int i = 0; i + lowerQuery.length() <= text.length(); i++) {
+            if (Character.toLowerCase(text.charAt(i)) == first
+                    && text.regionMatches(true, i, lowerQuery, 0, lowerQuery.length())) {
+                return true;
+            }
         }
+        return false;
+    }
+
+    /**
+     * Position of {@code task} in the whole list, filtered or not, or -1 when it is not in it. The list being sorted
+     * by order key, it is found by binary search; only tasks sharing their key with another are looked up in order.
+     */
+    public int positionOf(Task task) {
+        int i = Collections.binarySearch(tasks, task, BY_ORDER);
+        if (i < 0) {
+            return -1;
+        }
+        return task.equals(tasks.get(i)) ? i : tasks.indexOf(task);
+    }
+
+    /**
+     * Task of the list with {@code id}, or {@code null}.
+     */
+    public Task findTask(String id) {
+        return taskIndex.get(id);
+    }
+
+    /**
+     * Tasks among {@code ids}: the ones in the list, in order, then the archived ones.
+     */
+    public List<Task> tasksWithIds(Collection<String> ids) {
+        List<Task> found = new ArrayList<>();
+        tasks.stream().filter(t -> ids.contains(t.getId())).forEach(found::add);
+        archivedTasks().stream()
+                .filter(t -> ids.contains(t.getId()) && !found.contains(t))
+                .forEach(found::add);
+        return found;
+    }
+
+    private List<Task> archivedTasks() {
+        ArchiveStore archived = archive;
+        if (archived == null || archived.isEmpty()) {
+            return List.of();
+        }
+        try {
+            TextStore textStore = texts;
+            List<Task> found = archived.archivedTasks().stream()
+                    .filter(t -> !restoredIds.contains(t.getId()))
+                    .toList();
+            if (textStore != null) {
+                found.stream()
+                        .filter(t -> textStore.contains(t.getId()))
+                        .forEach(t -> t.releaseTexts(textStore, t.getModCount()));
+            }
+            return found;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    /**
+     * Daily work between {@code from} and {@code to}, both included, ordered by task then date. Answered by the storage
+     * when it can query ranges, after writing pending changes to it.
+     */
+    public List<WorkQueries.DayWork> workBetween(LocalDate from, LocalDate to) throws IOException {
+        runBeforeSave();
+        List<WorkQueries.DayWork> work = new ArrayList<>();
+        if (storageService instanceof WorkQueries queries) {
+            syncStorage();
+            work.addAll(withNotes(queries.workBetween(from, to)));
+        } else {
+            // Only the tasks worked on in the range are read
+            List<Map.Entry<Task, LocalDate>> days = new ArrayList<>();
+            ledger.tasksBetween(from, to).forEach(
+                    (date, active) -> active.forEach(task -> days.add(Map.entry(task, date))));
+            days.sort(Comparator.comparingInt((Map.Entry<Task, LocalDate> day) -> day.getKey().getOrder())
+                    .thenComparing(Map.Entry::getValue));
+            for (Map.Entry<Task, LocalDate> day : days) {
+                Task task = day.getKey();
+                TaskDailyWork daily;
+                synchronized (task) {
+                    daily = task.getTaskHistory().get(day.getValue());
+                }
+                if (daily != null) {
+                    work.add(new WorkQueries.DayWork(task.getId(), day.getValue(),
+                            daily.getDuration() == null ? Duration.ZERO : daily.getDuration(), daily.getNote()));
+                }
+            }
+        }
+        work.addAll(archivedWork(from, to));
+        return work;
+    }
+
+    /**
+     * Time worked on {@code date} across the tasks of the list, reading only the tasks worked on that day.
+     */
+    public Duration dayTotal(LocalDate date) {
+        Duration total = Duration.ZERO;
+        for (Task task : ledger.tasksBetween(date, date).getOrDefault(date, List.of())) {
+            total = total.plus(task.getTimeForDate(date));
+        }
+        return total;
+    }
+
+    /**
+     * Time worked per tag between {@code from} and {@code to}, both included.
+     */
+    public Map<String, Duration> totalsByTag(LocalDate from, LocalDate to) throws IOException {
+        Map<String, Duration> totals = new TreeMap<>();
+        List<WorkQueries.DayWork> work;
+        if (storageService instanceof WorkQueries queries) {
+            runBeforeSave();
+            syncStorage();
+            totals.putAll(queries.totalsByTag(from, to));
+            work = archivedWork(from, to);
+        } else {
+            work = workBetween(from, to);
+        }
+
+        Map<String, Duration> byTask = new LinkedHashMap<>();
+        work.forEach(w -> byTask.merge(w.taskId(), w.duration(), Duration::plus));
+        for (Task task : tasksWithIds(byTask.keySet())) {
+            if (task.getTags() != null) {
+                // A tag given twice counts once, as in the storage queries
+                for (String tag : new HashSet<>(task.getTags())) {
+                    totals.merge(tag, byTask.get(task.getId()), Duration::plus);
+                }
+            }
+        }
+        return totals;
+    }
+
+    private List<WorkQueries.DayWork> archivedWork(LocalDate from, LocalDate to) throws IOException {
+        ArchiveStore archived = archive;
+        return archived == null ? List.of() : withNotes(archived.workBetween(from, to, restoredIds));
+    }
+
+    /**
+     * Fills in the notes the storage wrote as {@code null} because they are in the text store.
+     */
+    private List<WorkQueries.DayWork> withNotes(List<WorkQueries.DayWork> work) {
+        TextStore textStore = texts;
+        if (textStore == null) {
+            return work;
+        }
+        return work.stream()
+                .map(w -> w.note() == null && textStore.contains(w.taskId())
+                        ? new WorkQueries.DayWork(w.taskId(), w.date(), w.duration(),
+                                textStore.note(w.taskId(), w.date()))
+                        : w)
+                .toList();
+    }
+
+    private void syncStorage() throws IOException {
+        saveIfDirty();
+        if (!flush(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS)) {
+            throw new IOException("Pending changes could not be saved in time");
+        }
+    }
+
+    /**
+     * Replaces the list with {@code newOrder}, giving every task a new order key. {@link #moveTask} moves one task.
+     */
+    public void updateOrder(List<Task> newOrder) {
+        spreadOrder(newOrder);
         // If the list is the same instance, we don't need to setAll (it's already
         // modified in place if it's the ObservableList)
         if (newOrder != tasks) {
@@ -119,23 +779,215 @@ public class TaskService {
         }
     }
 
+    /**
+     * Moves the task {@code id} before the task {@code beforeId}, or last when {@code beforeId} is {@code null}. Only
+     * the moved task takes a new order key, between the ones of its new neighbours; when they have no room left, all
+     * keys are spread again and the list sorted. Otherwise the task is only taken out and put back at its new place,
+     * keeping its listener and its index entries.
+     */
+    public void moveTask(String id, String beforeId) {
+        Task task = taskIndex.get(id);
+        Task before = beforeId == null ? null : taskIndex.get(beforeId);
+        if (task == null || task == before || (beforeId != null && before == null)) {
+            return;
+        }
+        int from = tasks.indexOf(task);
+        int to = before == null ? tasks.size() : tasks.indexOf(before);
+        if (from < 0 || to < 0 || to == from + 1) {
+            return;
+        }
+        long low = to > 0 ? tasks.get(to - 1).getOrder() : (long) tasks.get(0).getOrder() - 2 * Task.ORDER_GAP;
+        long high = to < tasks.size() ? tasks.get(to).getOrder() : low + 2 * Task.ORDER_GAP;
+        long key = Math.floorDiv(low + high, 2);
+        if (key > low && key < high && key >= Integer.MIN_VALUE && key <= Integer.MAX_VALUE) {
+            task.setOrder((int) key);
+            moving = task;
+            try {
+                tasks.remove(from);
+                tasks.add(from < to ? to - 1 : to, task);
+            } finally {
+                moving = null;
+            }
+        } else {
+            List<Task> moved = new ArrayList<>(tasks);
+            moved.remove(from);
+            moved.add(from < to ? to - 1 : to, task);
+            spreadOrder(moved);
+            tasks.sort(BY_ORDER);
+        }
+    }
+
+    /**
+     * Order key for a task added after the last one.
+     */
+    private int orderAfterLast() {
+        if (tasks.isEmpty()) {
+            return 0;
+        }
+        if (tasks.get(tasks.size() - 1).getOrder() > Integer.MAX_VALUE - Task.ORDER_GAP) {
+            spreadOrder(tasks);
+        }
+        return tasks.get(tasks.size() - 1).getOrder() + Task.ORDER_GAP;
+    }
+
+    private static void spreadOrder(List<Task> ordered) {
+        for (int i = 0; i < ordered.size(); i++) {
+            ordered.get(i).setOrder(i * Task.ORDER_GAP);
+        }
+    }
+
+    /**
+     * Writes all tasks to {@code file} in the {@code data.json} format, whatever the storage format in use.
+     */
+    public void exportJson(File file) throws IOException {
+        List<Task> copies = tasks.stream().map(Task::copyWithTexts).toList();
+        new JsonStorageService(file.getAbsolutePath()).save(new DataStore(copies));
+    }
+
+    /**
+     * Replaces all tasks with the ones of a file in the {@code data.json} format.
+     */
+    public void importJson(File file) throws IOException {
+        List<Task> imported = new ArrayList<>(new JsonStorageService(file.getAbsolutePath()).load().getTasks());
+        imported.sort(BY_ORDER);
+        tasks.setAll(imported);
+        dirtyTasks.addAll(imported);
+    }
+
+    /**
+     * Saves all tasks, even when nothing changed.
+     */
     public void saveSafely() {
-        try {
-            // Cleanup history for all tasks
-            tasks.forEach(Task::cleanupHistory);
+        save(true);
+    }
+
+    /**
+     * Saves only if a task or the list changed since the last save.
+     */
+    public void saveIfDirty() {
+        save(false);
+    }
+
+    private void runBeforeSave() {
+        Runnable checkpoint = beforeSave;
+        if (checkpoint != null) {
+            checkpoint.run();
+        }
+    }
+
+    /**
+     * Hands a snapshot to the storage writer. Tasks stay dirty until it is written, so a snapshot dropped in favor
+     * of a newer one or a failed write loses nothing.
+     * <p>
+     * Saves are serialized on their own lock: the texts are written to disk under it, and edits only take the
+     * service lock to request a save.
+     */
+    private void save(boolean force) {
+        synchronized (saveLock) {
+            saveLocked(force);
+        }
+    }
+
+    private void saveLocked(boolean force) {
+        runBeforeSave();
+        // Changes made from here on mark their task dirty again
+        List<Task> changed = new ArrayList<>();
+        for (Task task : dirtyTasks) {
+            dirtyTasks.remove(task);
+            if (task.isDirty()) {
+                changed.add(task);
+            }
+        }
+        boolean structureChanged = listDirty;
+        listDirty = false;
+        if (!force && changed.isEmpty() && !structureChanged) {
+            savesSkipped.incrementAndGet();
+            return;
+        }
+
+        TextStore textStore = texts;
+        if (textStore != null) {
+            try {
+                writeTexts(textStore, changed);
+            } catch (IOException e) {
+                e.printStackTrace(); // Texts still held are saved in the task documents
+            }
+        }
+        Map<Task, Long> versions = new HashMap<>();
+        changed.forEach(task -> versions.put(task, task.getModCount()));
 
-            // Create a snapshot to save
-            DataStore store = new DataStore(List.copyOf(tasks));
-            storageService.save(store);
-            javafx.application.Platform.runLater(() -> lastSaveTime.set(LocalDateTime.now()));
+        // Create a snapshot to save
+        long capturedAt = System.currentTimeMillis();
+        List<String> restored = List.copyOf(restoredIds);
+        // The writer thread serializes copies, the tasks themselves keep changing meanwhile
+        DataStore store = new DataStore(tasks.stream().map(Task::copy).collect(Collectors.toList()));
+        storageWriter.submit(store, () -> {
+            versions.forEach(Task::markSaved);
+            forgetRestored(restored);
+            MappedDurationStore durations = durationStore;
+            if (durations != null) {
+                durations.checkpoint(capturedAt);
+            }
+            savesWritten.incrementAndGet();
+            runOnFxThread(() -> lastSaveTime.set(LocalDateTime.now()));
             System.out.println("Auto-saved at " + LocalDateTime.now());
-        } catch (IOException e) {
+        }, e -> {
+            dirtyTasks.addAll(changed);
+            synchronized (saveLock) {
+                listDirty |= structureChanged;
+            }
             e.printStackTrace(); // Log error (simple stdout for now)
+        });
+    }
+
+    private void forgetRestored(List<String> restored) {
+        ArchiveStore archived = archive;
+        if (archived == null || restored.isEmpty()) {
+            return;
+        }
+        try {
+            archived.forget(restored);
+            restoredIds.removeAll(restored);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Waits for the snapshots handed to the storage writer so far to be written.
+     *
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(long timeout, TimeUnit unit) {
+        try {
+            return storageWriter.flush(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void runOnFxThread(Runnable action) {
+        try {
+            javafx.application.Platform.runLater(action);
+        } catch (IllegalStateException e) {
+            action.run(); // FX toolkit not running
         }
     }
 
     public void shutdown() {
-        autoSaveScheduler.shutdown();
+        scheduler.cancel(AUTO_SAVE_JOB);
+        scheduler.cancel(COMPACTION_JOB);
+        scheduler.cancel(SAVE_JOB);
         saveSafely(); // Force save on exit
+        if (!flush(SHUTDOWN_FLUSH_SECONDS, TimeUnit.SECONDS)) {
+            System.err.println("Last save still running after " + SHUTDOWN_FLUSH_SECONDS + "s, exiting anyway");
+        }
+        storageWriter.shutdown();
+        try {
+            storageService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 }
@@ -1,34 +1,130 @@
 package com.chrono.task.service;
 
 import com.chrono.task.model.Task;
+import com.chrono.task.persistence.MappedDurationStore;
+import com.chrono.task.persistence.SessionStore;
+import com.chrono.task.persistence.TimerCheckpointRing;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 
+import java.io.IOException;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.Instant;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+/**
+ * Runs the timer of the active task without touching the task while it runs.
+ * <p>
+ * Only the start of the running session and the instant up to which its time was added to the task are kept. The time
+ * since then is added on stop, pause and task switch, at midnight and at each {@link #checkpoint()}, split by day;
+ * the {@code live} methods add it to what the task holds when reading. The state of the running session also goes to
+ * a checkpoint ring every {@link #HEARTBEAT_SECONDS} seconds, from which {@link #recover} restores the time a crash
+ * did not let accrue.
+ * <p>
+ * The heartbeat also watches for the computer sleeping: the wall clock moves on during a suspend while the monotonic
+ * clock does not. A sleep longer than {@link #setSleepLimit the limit} is cut out of the running session.
+ */
 public class TimerService {
 
+    private static final long HEARTBEAT_SECONDS = 5;
+    static final String HEARTBEAT_JOB = "timer-heartbeat";
+    static final String MIDNIGHT_JOB = "timer-midnight";
+
+    /**
+     * Time the computer slept while the timer ran, cut out of the session.
+     */
+    public record SleepGap(Instant start, Instant end) {
+
+        public Duration duration() {
+            return Duration.between(start, end);
+        }
+    }
+
     private final ObjectProperty<Task> activeTask = new SimpleObjectProperty<>();
-    private Instant startTime;
-    private final ScheduledExecutorService ticker;
+    // Time of the running session is in the active task up to this instant, null when the timer is stopped
+    private Instant accruedUntil;
+    // Start of the running session, recorded in the session store when it stops
+    private Instant sessionStart;
+    // Wall and monotonic clocks when the running timer was last seen, to tell sleep from elapsed time
+    private Instant seenAt;
+    private long seenNanos;
+    private Duration sleepLimit;
+    private Consumer<SleepGap> onSleepGap;
+    private final SchedulerService scheduler;
+    // Optional crash-durable copy of the accrued time, written on every accrual
+    private final MappedDurationStore durationStore;
+    private final SessionStore sessionStore;
+    private final TimerCheckpointRing checkpointRing;
+    private final Clock clock;
 
-    // Allows UI to observe "current session duration" to display ephemeral seconds
-    // Or we simply update the task model periodically
+    /**
+     * The heartbeat runs on {@code scheduler}, shared with the other services and shut down by its owner.
+     */
+    public TimerService(MappedDurationStore durationStore, SessionStore sessionStore,
+            TimerCheckpointRing checkpointRing, SchedulerService scheduler) {
+        this(durationStore, sessionStore, checkpointRing, scheduler, Clock.systemDefaultZone());
+    }
 
-    public TimerService() {
-        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "Timer-Ticker");
-            t.setDaemon(true);
-            return t;
-        });
+    /**
+     * Sessions are timed and split into days with {@code clock}. Sleep is still told from elapsed time with the
+     * monotonic clock.
+     */
+    TimerService(MappedDurationStore durationStore, SessionStore sessionStore, TimerCheckpointRing checkpointRing,
+            SchedulerService scheduler, Clock clock) {
+        this.durationStore = durationStore;
+        this.sessionStore = sessionStore;
+        this.checkpointRing = checkpointRing;
+        this.scheduler = scheduler;
+        this.clock = clock;
+        scheduler.schedule(HEARTBEAT_JOB, Duration.ofSeconds(HEARTBEAT_SECONDS), Duration.ofSeconds(HEARTBEAT_SECONDS),
+                this::heartbeat);
+    }
 
-        // Every second, update the active task's time history
-        this.ticker.scheduleAtFixedRate(this::tick, 1, 1, TimeUnit.SECONDS);
+    /**
+     * Adds the time of a session a crash interrupted, from its last accrual to the last time it was seen running, to
+     * its task. To be called before the timer starts.
+     *
+     * @param tasks finds a task by id, or returns {@code null}
+     * @return the time recovered
+     */
+    public synchronized Duration recover(Function<String, Task> tasks) {
+        TimerCheckpointRing.State state = checkpointRing == null ? null : checkpointRing.last();
+        if (state == null || !state.isRunning() || state.accruedUntil() == null || state.lastAlive() == null) {
+            return Duration.ZERO;
+        }
+        Task task = tasks.apply(state.taskId());
+        Duration[] recovered = { Duration.ZERO };
+        if (task != null) {
+            forEachDay(state.accruedUntil(), state.lastAlive(), (day, time) -> {
+                task.addTime(day, time);
+                recovered[0] = recovered[0].plus(time);
+                storeDuration(task, day);
+            });
+            recordSession(task, state.sessionStart(), state.lastAlive());
+        }
+        checkpointRing.write(null, null, null, Instant.now(clock));
+        return recovered[0];
+    }
+
+    /**
+     * Sleep longer than {@code limit} while the timer runs is not counted, {@code null} or zero counts all of it.
+     */
+    public synchronized void setSleepLimit(Duration limit) {
+        this.sleepLimit = limit == null || limit.isZero() || limit.isNegative() ? null : limit;
+    }
+
+    /**
+     * Called from a background thread with each sleep cut out of the running session.
+     */
+    public void setOnSleepGap(Consumer<SleepGap> listener) {
+        this.onSleepGap = listener;
     }
 
     public void setActiveTask(Task task) {
@@ -49,27 +145,220 @@ public class TimerService {
         }
     }
 
-    private void startTimer() {
-        startTime = Instant.now();
+    private synchronized void startTimer() {
+        accruedUntil = Instant.now(clock);
+        sessionStart = accruedUntil;
+        seenAt = accruedUntil;
+        seenNanos = System.nanoTime();
+        scheduleMidnight();
+        writeCheckpoint(accruedUntil);
     }
 
-    private void stopTimer() {
+    private synchronized void stopTimer() {
         // Finalize time for the task being stopped
-        tick();
-        startTime = null;
+        accrue();
+        scheduler.cancel(MIDNIGHT_JOB);
+        Task current = activeTask.get();
+        if (current != null && sessionStart != null) {
+            recordSession(current, sessionStart, accruedUntil);
+        }
+        accruedUntil = null;
+        sessionStart = null;
+        writeCheckpoint(Instant.now(clock));
     }
 
-    private void tick() {
+    private void recordSession(Task task, Instant start, Instant end) {
+        if (sessionStore != null) {
+            try {
+                sessionStore.add(task.getId(), start, end);
+            } catch (IOException e) {
+                e.printStackTrace(); // The time itself is in the task history
+            }
+        }
+    }
+
+    private synchronized void heartbeat() {
+        if (accruedUntil != null) {
+            Instant now = Instant.now(clock);
+            noteAlive(now, System.nanoTime());
+            writeCheckpoint(now);
+        }
+    }
+
+    /**
+     * Notes that the running timer is alive at {@code now}. Wall clock time since it was last seen beyond the
+     * monotonic time is time the computer slept (or a forward clock change): past the limit, the session accrues up to
+     * the sleep and starts again after it.
+     */
+    synchronized void noteAlive(Instant now, long nanos) {
         Task current = activeTask.get();
-        if (current != null && startTime != null) {
-            Instant now = Instant.now();
-            Duration sessionDuration = Duration.between(startTime, now);
+        if (current == null || accruedUntil == null || seenAt == null) {
+            return;
+        }
+        Duration asleep = Duration.between(seenAt, now).minusNanos(nanos - seenNanos);
+        Instant start = seenAt;
+        seenAt = now;
+        seenNanos = nanos;
+        if (sleepLimit == null || asleep.compareTo(sleepLimit) <= 0) {
+            return;
+        }
+        // When it fell asleep within the last heartbeat is unknown, it is taken to be right after it
+        Instant end = start.plus(asleep);
+        accrue(current, start);
+        recordSession(current, sessionStart, accruedUntil);
+        sessionStart = end;
+        accruedUntil = end;
+        writeCheckpoint(now);
+        // The midnight job waited on the monotonic clock
+        scheduleMidnight();
+        Consumer<SleepGap> listener = onSleepGap;
+        if (listener != null) {
+            listener.accept(new SleepGap(start, end));
+        }
+    }
+
+    private void writeCheckpoint(Instant now) {
+        if (checkpointRing == null) {
+            return;
+        }
+        Task current = activeTask.get();
+        try {
+            checkpointRing.write(accruedUntil == null || current == null ? null : current.getId(), sessionStart,
+                    accruedUntil, now);
+        } catch (RuntimeException e) {
+            e.printStackTrace(); // Only crash recovery is at stake
+        }
+    }
+
+    /**
+     * Adds the time of the running session not accrued yet to the active task. Called before each save, so that a
+     * crash loses at most the time since the last save.
+     */
+    public synchronized void checkpoint() {
+        accrue();
+    }
 
-            // We add this small session chunk to the task and reset startTime to now
-            // This prevents losing large chunks if crash, and allows real-time update
-            current.addTime(LocalDate.now(), sessionDuration);
-            startTime = now;
+    private void accrue() {
+        Task current = activeTask.get();
+        if (current == null || accruedUntil == null) {
+            return;
+        }
+        Instant now = Instant.now(clock);
+        noteAlive(now, System.nanoTime());
+        accrue(current, now);
+        // Right after the duration store, so that a recovery does not count this time twice
+        writeCheckpoint(now);
+    }
+
+    private void accrue(Task current, Instant until) {
+        forEachDay(accruedUntil, until, (day, time) -> {
+            current.addTime(day, time);
+            storeDuration(current, day);
+        });
+        if (until.isAfter(accruedUntil)) {
+            accruedUntil = until;
+        }
+    }
+
+    private void storeDuration(Task task, LocalDate day) {
+        if (durationStore != null) {
+            try {
+                durationStore.put(task.getId(), day, task.getTimeForDate(day));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void scheduleMidnight() {
+        ZoneId zone = clock.getZone();
+        Instant next = LocalDate.now(clock).plusDays(1).atStartOfDay(zone).toInstant();
+        Duration delay = Duration.between(Instant.now(clock), next).plusMillis(1);
+        scheduler.scheduleOnce(MIDNIGHT_JOB, delay, this::onMidnight);
+    }
+
+    private synchronized void onMidnight() {
+        if (accruedUntil != null) {
+            // The day that ended gets its final total
+            accrue();
+            scheduleMidnight();
+        }
+    }
+
+    /**
+     * Time of the running session not accrued to {@code task} yet, on the days from {@code from} to {@code to}.
+     */
+    private Duration unaccrued(Task task, LocalDate from, LocalDate to) {
+        if (task == null || task != activeTask.get() || accruedUntil == null) {
+            return Duration.ZERO;
+        }
+        Duration[] total = { Duration.ZERO };
+        forEachDay(accruedUntil, Instant.now(clock), (day, time) -> {
+            if (!day.isBefore(from) && !day.isAfter(to)) {
+                total[0] = total[0].plus(time);
+            }
+        });
+        return total[0];
+    }
+
+    /**
+     * Time spent on {@code task} from {@code from} to {@code to}, the running session included.
+     */
+    public synchronized Duration liveDuration(Task task, LocalDate from, LocalDate to) {
+        return task.getDuration(from, to).plus(unaccrued(task, from, to));
+    }
+
+    /**
+     * Total time spent on {@code task}, the running session included.
+     */
+    public synchronized Duration liveTotal(Task task) {
+        return task.getTotalTime().plus(unaccrued(task, LocalDate.MIN, LocalDate.MAX));
+    }
+
+    /**
+     * Time spent on {@code date} across tasks, {@code accrued} giving what the tasks hold, the running session
+     * included.
+     */
+    public synchronized Duration liveDayTotal(Function<LocalDate, Duration> accrued, LocalDate date) {
+        return accrued.apply(date).plus(unaccrued(activeTask.get(), date, date));
+    }
+
+    private void forEachDay(Instant start, Instant end, BiConsumer<LocalDate, Duration> action) {
+        forEachDay(start, end, clock.getZone(), action);
+    }
+
+    /**
+     * Splits {@code start} to {@code end} at each local midnight of {@code zone}, in one step per day. Days across a
+     * DST change get their actual 23 or 25 hours, and a day starting after a gap at midnight starts where it starts.
+     */
+    static void forEachDay(Instant start, Instant end, ZoneId zone, BiConsumer<LocalDate, Duration> action) {
+        LocalDate day = LocalDate.ofInstant(start, zone);
+        Instant from = start;
+        while (from.isBefore(end)) {
+            Instant dayEnd = day.plusDays(1).atStartOfDay(zone).toInstant();
+            Instant to = dayEnd.isBefore(end) ? dayEnd : end;
+            action.accept(day, Duration.between(from, to));
+            from = to;
+            day = day.plusDays(1);
+        }
+    }
+
+    /**
+     * Sessions overlapping {@code from} to {@code to}, ordered by start, the running one included.
+     */
+    public synchronized List<SessionStore.Session> sessionsBetween(Instant from, Instant to) {
+        List<SessionStore.Session> sessions = new ArrayList<>();
+        if (sessionStore != null) {
+            sessions.addAll(sessionStore.between(from, to));
+        }
+        Task current = activeTask.get();
+        if (current != null && sessionStart != null) {
+            Instant now = Instant.now(clock);
+            if (sessionStart.isBefore(to) && now.isAfter(from)) {
+                sessions.add(new SessionStore.Session(current.getId(), sessionStart, now));
+            }
         }
+        return sessions;
     }
 
     public ObjectProperty<Task> activeTaskProperty() {
@@ -101,7 +390,7 @@ public class TimerService {
     }
 
     public void shutdown() {
-        ticker.shutdown();
+        scheduler.cancel(HEARTBEAT_JOB);
         stopTimer();
     }
-}
\ No newline at end of file
+}
@@ -17,6 +17,8 @@ module com.chrono.task {
 
     requires java.net.http;
     requires java.desktop;
+    requires java.sql;
+    requires com.h2database;
 
     opens com.chrono.task to javafx.fxml, javafx.graphics;
     opens com.chrono.task.controller to javafx.fxml;
@@ -0,0 +1,136 @@
+package com.chrono.task.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DayHistoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 2, 28);
+
+    @Test
+    void testDaysStaySortedWhateverTheInsertionOrder() {
+        DayHistory history = new DayHistory();
+        for (int offset : new int[] { 5, -3, 0, 12, -40, 1 }) {
+            history.setNanos(DAY.plusDays(offset), offset + 100);
+        }
+        history.addNanos(DAY, 50);
+
+        assertEquals(List.of(DAY.minusDays(40), DAY.minusDays(3), DAY, DAY.plusDays(1), DAY.plusDays(5),
+                DAY.plusDays(12)), List.copyOf(history.keySet()));
+        assertEquals(150, history.getNanos(DAY));
+        assertEquals(0, history.getNanos(DAY.plusDays(2)));
+        assertEquals(97 + 150 + 101, history.nanosBetween(DAY.minusDays(3), DAY.plusDays(4)));
+        assertEquals(60 + 97 + 150 + 101 + 105 + 112, history.totalNanos());
+    }
+
+    @Test
+    void testSerializesLikeAMapOfDailyWork() throws Exception {
+        Task task = Task.builder().description("A").build();
+        task.setTime(DAY, Duration.ofSeconds(3725, 500));
+        task.setDailyNote(DAY, "first day");
+        task.setTime(DAY.plusDays(1), Duration.ofMinutes(45));
+        task.putDay(DAY.minusDays(1), new TaskDailyWork(null, null, null, false));
+
+        ObjectMapper mapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        Map<LocalDate, TaskDailyWork> plain = new TreeMap<>(task.getTaskHistory());
+        assertEquals(mapper.valueToTree(plain), mapper.valueToTree(task.getTaskHistory()));
+
+        Task loaded = mapper.readValue(mapper.writeValueAsBytes(task), Task.class);
+        assertTrue(task.contentEquals(loaded));
+        assertNull(loaded.getTaskHistory().get(DAY.minusDays(1)).getNote());
+    }
+
+    @Test
+    void testValuesAreCopies() {
+        DayHistory history = new DayHistory();
+        history.setNanos(DAY, 10);
+        history.get(DAY).setDuration(Duration.ofHours(1));
+        assertEquals(10, history.getNanos(DAY));
+
+        TaskDailyWork work = history.get(DAY);
+        work.setNote("kept");
+        history.put(DAY, work);
+        assertEquals("kept", history.getNote(DAY));
+    }
+
+    @Test
+    void testRemovals() {
+        DayHistory history = new DayHistory();
+        for (int i = 0; i < 10; i++) {
+            history.setNanos(DAY.plusDays(i), i);
+        }
+        history.setNote(DAY.plusDays(2), "note");
+
+        history.entrySet().removeIf(entry -> (entry.getKey().toEpochDay() - DAY.toEpochDay()) % 2 == 1);
+        assertEquals(5, history.size());
+        assertEquals("note", history.getNote(DAY.plusDays(2)));
+
+        Map<LocalDate, TaskDailyWork> removed = history.removeBefore(DAY.plusDays(4));
+        assertEquals(2, removed.size());
+        assertEquals("note", removed.get(DAY.plusDays(2)).getNote());
+        assertEquals(List.of(DAY.plusDays(4), DAY.plusDays(6), DAY.plusDays(8)), List.copyOf(history.keySet()));
+        assertEquals("", history.getNote(DAY.plusDays(4)));
+    }
+
+    @Test
+    void testRangeSumsFollowUpdatesInsertionsAndRemovals() {
+        DayHistory history = new DayHistory();
+        TreeMap<LocalDate, Long> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 2000; step++) {
+            LocalDate date = DAY.plusDays(random.nextInt(step < 500 ? 200 : 400) - 100);
+            switch (random.nextInt(10)) {
+                case 0 -> {
+                    history.remove(date);
+                    expected.remove(date);
+                }
+                case 1 -> {
+                    history.setNanos(date, 7);
+                    expected.put(date, 7L);
+                }
+                case 2 -> {
+                    history.put(date, new TaskDailyWork(null, null, TaskStatus.TODO, false));
+                    expected.put(date, 0L);
+                }
+                default -> {
+                    history.addNanos(date, step);
+                    expected.merge(date, (long) step, Long::sum);
+                }
+            }
+            if (step % 100 == 0) {
+                history.removeBefore(DAY.minusDays(100 - step / 100));
+                expected.headMap(DAY.minusDays(100 - step / 100)).clear();
+            }
+
+            LocalDate from = DAY.plusDays(random.nextInt(500) - 150);
+            LocalDate to = from.plusDays(random.nextInt(60));
+            long sum = expected.subMap(from, true, to, true).values().stream().mapToLong(Long::longValue).sum();
+            assertEquals(sum, history.nanosBetween(from, to));
+            assertEquals(expected.values().stream().mapToLong(Long::longValue).sum(), history.totalNanos());
+        }
+        assertEquals(0, history.nanosBetween(DAY, DAY.minusDays(1)));
+    }
+
+    @Test
+    void testTaskDurationBetweenDates() {
+        Task task = Task.builder().description("A").build();
+        task.setTime(DAY.minusDays(1), Duration.ofMinutes(10));
+        task.addTime(DAY, Duration.ofMinutes(20));
+        task.addTime(DAY.plusDays(3), Duration.ofMinutes(40));
+
+        assertEquals(Duration.ofMinutes(30), task.getDuration(DAY.minusDays(5), DAY));
+        assertEquals(Duration.ofMinutes(60), task.getDuration(DAY, DAY.plusDays(3)));
+        assertEquals(Duration.ZERO, task.getDuration(DAY.plusDays(1), DAY.plusDays(2)));
+        assertEquals(Duration.ofMinutes(70), task.getTotalTime());
+    }
+}
@@ -0,0 +1,82 @@
+package com.chrono.task.model;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * Manual benchmark of the id equality of {@link Task} against the field by field comparison it replaced, now
+ * {@link Task#contentEquals}: a list lookup, as a drag and drop does, and hashing into a set, on tasks with long
+ * histories. Not run by the test suite.
+ * <p>
+ * Usage: {@code EqualityBenchmark [tasks] [days]}
+ */
+public class EqualityBenchmark {
+
+    private static final int ROUNDS = 50;
+
+    public static void main(String[] args) {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        List<Task> tasks = new ArrayList<>(taskCount);
+        List<Task> copies = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            Task task = Task.builder().description("Task " + i).markdownContent("# Task " + i).build();
+            for (int d = 0; d < days; d++) {
+                task.setTime(today.minusDays(d), Duration.ofSeconds(60 + random.nextInt(4 * 3600)));
+                task.setDailyNote(today.minusDays(d), "Worked on part " + d);
+            }
+            tasks.add(task);
+            copies.add(task.copy());
+        }
+        Task last = copies.get(taskCount - 1);
+
+        System.out.printf("%d tasks x %d days%n", taskCount, days);
+        report("Find the last task", () -> tasks.indexOf(last), () -> {
+            for (int i = 0; i < tasks.size(); i++) {
+                if (tasks.get(i).contentEquals(last)) {
+                    return i;
+                }
+            }
+            return -1;
+        });
+        report("Hash all tasks", () -> new HashSet<>(tasks).size(), () -> {
+            // What the generated hashCode walked: every field, history included
+            Set<Integer> hashes = new HashSet<>();
+            for (Task task : tasks) {
+                hashes.add(Objects.hash(task.getId(), task.getOrder(), task.getDescription(),
+                        task.getJiraUrl(), task.getSlackUrl(), task.isJira(), task.getStatus(), task.getTags(),
+                        task.getMarkdownContent(), task.getTaskHistory()));
+            }
+            return hashes.size();
+        });
+    }
+
+    private static void report(String name, IntSupplier byId, IntSupplier byContent) {
+        System.out.printf("%-20s by id %9.3f ms, by content %9.3f ms%n", name, millis(byId), millis(byContent));
+    }
+
+    private static double millis(IntSupplier operation) {
+        int sink = 0;
+        for (int r = 0; r < ROUNDS; r++) {
+            sink += operation.getAsInt();
+        }
+        long start = System.nanoTime();
+        for (int r = 0; r < ROUNDS; r++) {
+            sink += operation.getAsInt();
+        }
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return (System.nanoTime() - start) / 1e6 / ROUNDS;
+    }
+}
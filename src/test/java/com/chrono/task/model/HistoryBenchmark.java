@@ -0,0 +1,98 @@
+package com.chrono.task.model;
+
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Manual benchmark comparing the {@link DayHistory} of a task with the {@code HashMap<LocalDate, TaskDailyWork>} it
+ * replaced: retained heap and bytes allocated per timer tick. Not run by the test suite.
+ * <p>
+ * Usage: {@code HistoryBenchmark [tasks] [days]}
+ */
+public class HistoryBenchmark {
+
+    private static final int TICKS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 250;
+
+        long mapHeap = retained(() -> build(taskCount, days, HashMap::new));
+        long historyHeap = retained(() -> build(taskCount, days, DayHistory::new));
+        System.out.printf("Heap, %d tasks x %d days: HashMap %.1f MB, DayHistory %.1f MB%n", taskCount, days,
+                mapHeap / 1024.0 / 1024.0, historyHeap / 1024.0 / 1024.0);
+
+        // One tick of the timer, before and after
+        LocalDate today = LocalDate.now();
+        Duration tick = Duration.ofMillis(1000);
+        Map<LocalDate, TaskDailyWork> map = new HashMap<>();
+        map.put(today, TaskDailyWork.builder().build());
+        Task task = new Task();
+        task.addTime(today, tick);
+        System.out.printf("Bytes per addTime: HashMap %.1f, DayHistory %.1f%n",
+                allocated(() -> map.compute(today, (d, work) -> {
+                    work.setDuration(work.getDuration().plus(tick));
+                    return work;
+                })),
+                allocated(() -> task.addTime(today, tick)));
+    }
+
+    private static List<Map<LocalDate, TaskDailyWork>> build(int taskCount, int days,
+            Supplier<Map<LocalDate, TaskDailyWork>> factory) {
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        List<Map<LocalDate, TaskDailyWork>> histories = new ArrayList<>(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            Map<LocalDate, TaskDailyWork> history = factory.get();
+            for (int d = 0; d < days; d++) {
+                history.put(today.minusDays(d), TaskDailyWork.builder()
+                        .duration(Duration.ofSeconds(120 + random.nextInt(4 * 3600), random.nextInt(1_000_000_000)))
+                        .note(random.nextInt(4) == 0 ? "Worked on part " + d : "")
+                        .build());
+            }
+            histories.add(history);
+        }
+        return histories;
+    }
+
+    private static long retained(Supplier<Object> build) {
+        long before = usedHeap();
+        Object kept = build.get();
+        long after = usedHeap();
+        if (kept.hashCode() == 42) {
+            System.out.print("");
+        }
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static double allocated(Runnable tick) throws Exception {
+        // Looked up reflectively, the module reads neither java.management nor jdk.management
+        Object threads = Class.forName("java.lang.management.ManagementFactory").getMethod("getThreadMXBean")
+                .invoke(null);
+        Method allocatedBytes = Class.forName("com.sun.management.ThreadMXBean")
+                .getMethod("getCurrentThreadAllocatedBytes");
+        for (int i = 0; i < TICKS; i++) {
+            tick.run();
+        }
+        long before = (long) allocatedBytes.invoke(threads);
+        for (int i = 0; i < TICKS; i++) {
+            tick.run();
+        }
+        return ((long) allocatedBytes.invoke(threads) - before) / (double) TICKS;
+    }
+}
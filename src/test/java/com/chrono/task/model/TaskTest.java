@@ -13,6 +13,10 @@ class TaskTest {
         assertNotNull(task.getId());
         assertEquals(TaskStatus.TODO, task.getStatus());
         assertTrue(task.getTags().isEmpty());
+        assertTrue(task.getTaskHistory().isEmpty());
+        assertEquals("", task.getMarkdownContent());
+        assertNotEquals(task.getId(), Task.builder().build().getId());
+        assertFalse(task.isDirty());
     }
 
     @Test
@@ -64,32 +68,71 @@ class TaskTest {
     }
 
     @Test
-    void testCleanHistory() {
-        Task task = new Task();
-        LocalDate d1 = LocalDate.of(2023, 1, 1);
-        LocalDate d2 = LocalDate.of(2023, 1, 2);
-        LocalDate d3 = LocalDate.of(2023, 1, 3);
-        LocalDate d4 = LocalDate.of(2023, 1, 4);
-
-        // Case 1: Short duration, no note -> Should be removed
-        task.setTime(d1, Duration.ofMinutes(1));
-
-        // Case 2: Long duration, no note -> Should be kept
-        task.setTime(d2, Duration.ofMinutes(3));
-
-        // Case 3: Short duration, with note -> Should be kept
-        task.setTime(d3, Duration.ofMinutes(1));
-        task.setDailyNote(d3, "My note");
-
-        // Case 4: Exactly 2 minutes, no note -> Should be kept (strictly less than 2
-        // removed)
-        task.setTime(d4, Duration.ofMinutes(2));
+    void testDirtyTracking() {
+        Task task = Task.builder().description("A").build();
+        assertFalse(task.isDirty());
+
+        java.util.List<TaskChange> changes = new java.util.ArrayList<>();
+        task.setChangeListener((t, change) -> changes.add(change));
+
+        task.setDescription("A");
+        assertFalse(task.isDirty(), "Setting the same value is not a change");
+
+        task.addTime(LocalDate.now(), Duration.ofSeconds(1));
+        task.setStatus(TaskStatus.DONE);
+        assertTrue(task.isDirty());
+        assertTrue(task.getTaskHistory().get(LocalDate.now()).isDirty());
+        assertEquals(java.util.List.of(TaskChange.TIME, TaskChange.STATUS), changes);
+
+        long version = task.getModCount();
+        task.markSaved(version);
+        assertFalse(task.isDirty());
+        assertFalse(task.getTaskHistory().get(LocalDate.now()).isDirty());
+
+        // A change made while saving keeps the task dirty
+        task.setDailyNote(LocalDate.now(), "note");
+        task.markSaved(version);
+        assertTrue(task.isDirty());
+    }
 
-        task.cleanupHistory();
+    @Test
+    void testHistoryChangesGoThroughTheTask() {
+        Task task = Task.builder().description("A").build();
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        java.util.List<TaskChange> changes = new java.util.ArrayList<>();
+        task.setChangeListener((t, change) -> changes.add(change));
+        assertThrows(UnsupportedOperationException.class,
+                () -> task.getTaskHistory().put(day, new TaskDailyWork()));
+
+        task.putDay(day, new TaskDailyWork(Duration.ofMinutes(5), "note", TaskStatus.TODO, false));
+        assertTrue(task.isDirty());
+        assertTrue(task.getTaskHistory().get(day).isDirty());
+        assertEquals(Duration.ofMinutes(5), task.getTimeForDate(day));
+
+        task.markSaved(task.getModCount());
+        task.removeDay(day);
+        assertTrue(task.isDirty());
+        assertFalse(task.getTaskHistory().containsKey(day));
+        assertEquals(java.util.List.of(TaskChange.TIME, TaskChange.TIME), changes);
+    }
 
-        assertEquals(Duration.ZERO, task.getTimeForDate(d1)); // Removed
-        assertEquals(Duration.ofMinutes(3), task.getTimeForDate(d2)); // Kept
-        assertEquals(Duration.ofMinutes(1), task.getTimeForDate(d3)); // Kept
-        assertEquals(Duration.ofMinutes(2), task.getTimeForDate(d4)); // Kept
+    @Test
+    void testEqualByIdWhileContentChanges() {
+        Task task = Task.builder().description("A").build();
+        Task copy = task.copyWithTexts();
+        int hash = task.hashCode();
+        java.util.Set<Task> set = new java.util.HashSet<>(java.util.Set.of(task));
+
+        task.addTime(LocalDate.now(), Duration.ofMinutes(5));
+        task.setMarkdownContent("# A");
+        assertEquals(hash, task.hashCode());
+        assertTrue(set.contains(task));
+        assertEquals(copy, task);
+        assertFalse(copy.contentEquals(task));
+
+        copy.setTime(LocalDate.now(), Duration.ofMinutes(5));
+        copy.setMarkdownContent("# A");
+        assertTrue(copy.contentEquals(task));
+        assertNotEquals(Task.builder().description("A").build(), task);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,103 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskDailyWork;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSegmentsAreReadOnlyWhenReached() throws IOException {
+        LocalDate day = LocalDate.of(2022, 2, 1);
+        Task done = Task.builder().description("Done").build();
+        done.setTime(day, Duration.ofHours(1));
+        ArchiveStore archive = ArchiveStore.open(tempDir.toFile());
+        archive.write(List.of(done), Map.of("other", Map.of(day.minusDays(1),
+                TaskDailyWork.builder().duration(Duration.ofMinutes(30)).build())));
+
+        ArchiveStore reopened = ArchiveStore.open(tempDir.toFile());
+        assertEquals(Duration.ofMinutes(30), reopened.archivedTime("other"));
+        // Out of the segment's dates: nothing to read
+        Path segment = tempDir.resolve("archive").resolve("segment-00001.json.gz");
+        Files.writeString(segment, "not gzip");
+        assertTrue(reopened.workBetween(day.plusDays(1), day.plusDays(10), List.of()).isEmpty());
+        assertThrows(IOException.class, () -> reopened.workBetween(day, day, List.of()));
+    }
+
+    @Test
+    void testForgetRestoredTasks() throws IOException {
+        Task done = Task.builder().description("Done").build();
+        ArchiveStore archive = ArchiveStore.open(tempDir.toFile());
+        archive.write(List.of(done), Map.of());
+        assertEquals(List.of(done.getId()), archive.archivedTasks().stream().map(Task::getId).toList());
+
+        archive.forget(List.of(done.getId()));
+        assertTrue(archive.isEmpty());
+        assertTrue(ArchiveStore.open(tempDir.toFile()).archivedTasks().isEmpty());
+    }
+
+    @Test
+    void testHistoryStillInItsTaskAfterACrashIsForgotten() throws IOException {
+        LocalDate day = LocalDate.of(2022, 2, 1);
+        Task unsaved = Task.builder().description("Unsaved").build();
+        unsaved.setTime(day, Duration.ofHours(1));
+        Task saved = Task.builder().description("Saved").build();
+        saved.setTime(day.plusDays(40), Duration.ofHours(1));
+        ArchiveStore archive = ArchiveStore.open(tempDir.toFile());
+        archive.write(List.of(), Map.of(
+                unsaved.getId(), Map.copyOf(unsaved.getTaskHistory()),
+                saved.getId(), Map.of(day, TaskDailyWork.builder().duration(Duration.ofHours(2)).build())));
+
+        ArchiveStore reopened = ArchiveStore.open(tempDir.toFile());
+        reopened.forgetUnsavedHistories(Map.of(unsaved.getId(), unsaved, saved.getId(), saved));
+        assertEquals(Duration.ZERO, reopened.archivedTime(unsaved.getId()));
+        assertEquals(Duration.ofHours(2), reopened.archivedTime(saved.getId()));
+        assertEquals(1, reopened.workBetween(day, day, List.of()).size());
+        assertEquals(Duration.ZERO, ArchiveStore.open(tempDir.toFile()).archivedTime(unsaved.getId()));
+    }
+
+    @Test
+    void testSegmentLeftOutOfTheIndexIsNotOverwritten() throws IOException {
+        Task done = Task.builder().description("Done").build();
+        ArchiveStore archive = ArchiveStore.open(tempDir.toFile());
+        archive.write(List.of(done), Map.of());
+        // A crash between a segment and the index leaves the next segment name taken
+        Path orphan = tempDir.resolve("archive").resolve("segment-00002.json.gz");
+        Files.writeString(orphan, "orphan");
+
+        Task other = Task.builder().description("Other").build();
+        archive.write(List.of(other), Map.of());
+        assertEquals("orphan", Files.readString(orphan));
+        assertEquals(List.of(done.getId(), other.getId()),
+                ArchiveStore.open(tempDir.toFile()).archivedTasks().stream().map(Task::getId).toList());
+    }
+
+    @Test
+    void testEntryMissingFromItsSegmentIsSkipped() throws IOException {
+        LocalDate day = LocalDate.of(2022, 2, 1);
+        Task done = Task.builder().description("Done").build();
+        done.setTime(day, Duration.ofHours(1));
+        ArchiveStore archive = ArchiveStore.open(tempDir.toFile());
+        archive.write(List.of(done), Map.of());
+        Path index = tempDir.resolve("archive").resolve("index.json");
+        Files.writeString(index, Files.readString(index).replace(done.getId(), "missing"));
+
+        ArchiveStore reopened = ArchiveStore.open(tempDir.toFile());
+        assertTrue(reopened.archivedTasks().isEmpty());
+        assertTrue(reopened.workBetween(day, day, List.of()).isEmpty());
+    }
+}
@@ -0,0 +1,34 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackgroundStorageWriterTest {
+
+    @Test
+    void testThrowingCallbackDoesNotStopLaterSaves() throws Exception {
+        StorageService storage = Mockito.mock(StorageService.class);
+        BackgroundStorageWriter writer = new BackgroundStorageWriter(storage);
+        AtomicInteger written = new AtomicInteger();
+        try {
+            writer.submit(new DataStore(new ArrayList<>()), () -> {
+                throw new IllegalStateException("callback failed");
+            }, e -> fail(e));
+            writer.submit(new DataStore(new ArrayList<>()), written::incrementAndGet, e -> fail(e));
+            assertTrue(writer.flush(5, TimeUnit.SECONDS));
+
+            writer.submit(new DataStore(new ArrayList<>()), written::incrementAndGet, e -> fail(e));
+            assertTrue(writer.flush(5, TimeUnit.SECONDS), "Still draining after a callback threw");
+            assertEquals(2, written.get());
+        } finally {
+            writer.shutdown();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.StorageFormat;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskDailyWork;
+import com.chrono.task.model.TaskStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.chrono.task.persistence.TaskAssertions.assertContentEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRoundTripIsLossless() throws IOException {
+        Task a = Task.builder()
+                .description("Tâche A")
+                .order(3)
+                .jiraUrl("https://example.atlassian.net/browse/PROJ-1")
+                .isJira(true)
+                .status(TaskStatus.VALIDATION)
+                .tags(List.of("backend", "urgent"))
+                .markdownContent("# Notes\n✓ done")
+                .build();
+        a.setTime(LocalDate.of(2021, 3, 14), Duration.ofSeconds(3725, 500));
+        a.setDailyNote(LocalDate.of(2021, 3, 14), "first day");
+        a.setTime(LocalDate.of(2024, 2, 29), Duration.ofMinutes(45));
+        a.putDay(LocalDate.of(1969, 12, 31), new TaskDailyWork(null, null, null, false));
+        Task b = Task.builder().description("B").slackUrl("https://slack.com/archives/C1").tags(null)
+                .taskHistory(null).markdownContent(null).status(null).build();
+
+        BinaryStorageService service = new BinaryStorageService(tempDir.resolve("data.bin").toString());
+        service.save(new DataStore(List.of(a, b)));
+        DataStore loaded = service.load();
+
+        assertContentEquals(List.of(a, b), loaded.getTasks());
+    }
+
+    @Test
+    void testSmallerThanJson() throws IOException {
+        DataStore data = StorageBenchmark.generate(200, 3, 7);
+        Path json = tempDir.resolve("data.json");
+        Path bin = tempDir.resolve("data.bin");
+        new JsonStorageService(json.toString()).save(data);
+        new BinaryStorageService(bin.toString()).save(data);
+
+        assertTrue(Files.size(bin) * 2 < Files.size(json));
+        assertContentEquals(data.getTasks(), new BinaryStorageService(bin.toString()).load().getTasks());
+    }
+
+    @Test
+    void testMigrationFromJson() throws IOException {
+        DataStore ds = new DataStore();
+        ds.getTasks().add(Task.builder().description("A").markdownContent("# A").build());
+        new JsonStorageService(tempDir.resolve("data.json").toString()).save(ds);
+
+        StorageService binary = StorageServiceFactory.createAndMigrate(StorageFormat.BINARY, tempDir.toFile());
+        assertFalse(Files.exists(tempDir.resolve("data.json")));
+        assertEquals("# A", binary.load().getTasks().get(0).getMarkdownContent());
+    }
+}
@@ -0,0 +1,111 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.StorageFormat;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.chrono.task.persistence.TaskAssertions.assertContentEquals;
+import static org.junit.jupiter.api.Assertions.*;
+
+class H2StorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private H2StorageService open() {
+        return new H2StorageService(tempDir.resolve("data").toString());
+    }
+
+    @Test
+    void testSaveAndLoad() throws IOException {
+        Task a = Task.builder().description("A").order(1).status(TaskStatus.IN_PROGRESS)
+                .tags(new ArrayList<>(List.of("backend", "urgent"))).markdownContent("# A").build();
+        a.setTime(LocalDate.of(2024, 1, 1), Duration.ofSeconds(90, 7));
+        a.setDailyNote(LocalDate.of(2024, 1, 1), "note");
+        Task b = Task.builder().description("B").order(0).jiraUrl("https://jira/PROJ-1").isJira(true).build();
+
+        H2StorageService service = open();
+        service.save(new DataStore(List.of(a, b)));
+        service.close();
+
+        H2StorageService reopened = open();
+        DataStore loaded = reopened.load();
+        reopened.close();
+        assertContentEquals(List.of(b, a), loaded.getTasks());
+    }
+
+    @Test
+    void testIncrementalSaveRemovesDaysAndTasks() throws IOException {
+        H2StorageService service = open();
+        Task a = Task.builder().description("A").build();
+        Task b = Task.builder().description("B").build();
+        LocalDate day = LocalDate.of(2024, 3, 1);
+        a.setTime(day, Duration.ofMinutes(1));
+        a.setTime(day.plusDays(1), Duration.ofHours(1));
+        DataStore ds = new DataStore(new ArrayList<>(List.of(a, b)));
+        service.save(ds);
+        a.markSaved(a.getModCount());
+        b.markSaved(b.getModCount());
+
+        // Drops the 1 minute day
+        a.compactLoadedHistory(Duration.ofMinutes(2), true, LocalDate.now());
+        a.addTime(day.plusDays(1), Duration.ofMinutes(30));
+        ds.getTasks().remove(b);
+        service.save(ds);
+        service.close();
+
+        H2StorageService reopened = open();
+        List<Task> loaded = reopened.load().getTasks();
+        reopened.close();
+        assertEquals(1, loaded.size());
+        assertEquals(Duration.ofMinutes(90), loaded.get(0).getTimeForDate(day.plusDays(1)));
+        assertFalse(loaded.get(0).getTaskHistory().containsKey(day));
+    }
+
+    @Test
+    void testRangeAndTagQueries() throws IOException {
+        Task a = Task.builder().description("A").order(0).tags(List.of("x", "y")).build();
+        // The same tag twice counts once
+        Task b = Task.builder().description("B").order(1).tags(List.of("y", "y")).build();
+        LocalDate day = LocalDate.of(2024, 6, 10);
+        a.setTime(day, Duration.ofHours(1));
+        a.setTime(day.plusDays(5), Duration.ofHours(2));
+        b.setTime(day.plusDays(1), Duration.ofHours(3));
+        b.setDailyNote(day.plusDays(1), "b note");
+
+        H2StorageService service = open();
+        service.save(new DataStore(List.of(b, a)));
+
+        List<WorkQueries.DayWork> work = service.workBetween(day, day.plusDays(1));
+        assertEquals(List.of(
+                new WorkQueries.DayWork(a.getId(), day, Duration.ofHours(1), ""),
+                new WorkQueries.DayWork(b.getId(), day.plusDays(1), Duration.ofHours(3), "b note")), work);
+        assertEquals(Map.of("x", Duration.ofHours(1), "y", Duration.ofHours(4)),
+                service.totalsByTag(day, day.plusDays(1)));
+        service.close();
+    }
+
+    @Test
+    void testMigrationFromJson() throws IOException {
+        DataStore ds = new DataStore();
+        ds.getTasks().add(Task.builder().description("A").markdownContent("# A").build());
+        new JsonStorageService(tempDir.resolve("data.json").toString()).save(ds);
+
+        StorageService h2 = StorageServiceFactory.createAndMigrate(StorageFormat.H2, tempDir.toFile());
+        assertFalse(Files.exists(tempDir.resolve("data.json")));
+        assertEquals("# A", h2.load().getTasks().get(0).getMarkdownContent());
+        h2.close();
+    }
+}
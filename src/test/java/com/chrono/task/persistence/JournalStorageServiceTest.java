@@ -0,0 +1,109 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    private JournalStorageService newService(long threshold) {
+        return new JournalStorageService(tempDir.resolve("data.json").toString(),
+                tempDir.resolve("data.journal").toString(), threshold);
+    }
+
+    @Test
+    void testReplayAfterRestart() throws IOException {
+        JournalStorageService service = newService(JournalStorageService.DEFAULT_COMPACTION_THRESHOLD);
+        service.load();
+
+        DataStore ds = new DataStore();
+        Task t1 = Task.builder().description("Test1").build();
+        t1.setTime(LocalDate.of(2024, 1, 1), Duration.ofMinutes(30));
+        t1.setDailyNote(LocalDate.of(2024, 1, 1), "note");
+        ds.getTasks().add(t1);
+        service.save(ds);
+
+        t1.setStatus(TaskStatus.DONE);
+        t1.addTime(LocalDate.of(2024, 1, 1), Duration.ofMinutes(5));
+        service.save(ds);
+
+        assertFalse(Files.exists(tempDir.resolve("data.json")), "Saves should only append to the journal");
+
+        DataStore loaded = newService(JournalStorageService.DEFAULT_COMPACTION_THRESHOLD).load();
+        assertEquals(1, loaded.getTasks().size());
+        Task t2 = loaded.getTasks().get(0);
+        assertEquals("Test1", t2.getDescription());
+        assertEquals(TaskStatus.DONE, t2.getStatus());
+        assertEquals(Duration.ofMinutes(35), t2.getTimeForDate(LocalDate.of(2024, 1, 1)));
+        assertEquals("note", t2.getDailyNote(LocalDate.of(2024, 1, 1)));
+    }
+
+    @Test
+    void testSaveWithoutChangesWritesNothing() throws IOException {
+        JournalStorageService service = newService(JournalStorageService.DEFAULT_COMPACTION_THRESHOLD);
+        service.load();
+
+        DataStore ds = new DataStore();
+        ds.getTasks().add(Task.builder().description("Test1").build());
+        service.save(ds);
+        long size = service.getJournalSize();
+
+        service.save(ds);
+        assertEquals(size, service.getJournalSize());
+    }
+
+    @Test
+    void testCompactionAndRemoval() throws IOException {
+        JournalStorageService service = newService(JournalStorageService.DEFAULT_COMPACTION_THRESHOLD);
+        service.load();
+
+        DataStore ds = new DataStore();
+        Task kept = Task.builder().description("Kept").build();
+        Task removed = Task.builder().description("Removed").build();
+        ds.getTasks().add(kept);
+        ds.getTasks().add(removed);
+        service.save(ds);
+
+        service.compact();
+        assertEquals(0, service.getJournalSize());
+        assertTrue(Files.exists(tempDir.resolve("data.json")));
+
+        ds.getTasks().remove(removed);
+        kept.setMarkdownContent("# Title");
+        service.save(ds);
+        service.close();
+
+        DataStore loaded = new JsonStorageService(tempDir.resolve("data.json").toString()).load();
+        assertEquals(1, loaded.getTasks().size());
+        assertEquals("# Title", loaded.getTasks().get(0).getMarkdownContent());
+    }
+
+    @Test
+    void testTornRecordIsIgnored() throws IOException {
+        JournalStorageService service = newService(JournalStorageService.DEFAULT_COMPACTION_THRESHOLD);
+        service.load();
+
+        DataStore ds = new DataStore();
+        ds.getTasks().add(Task.builder().description("Test1").build());
+        service.save(ds);
+        Files.writeString(tempDir.resolve("data.journal"), "{\"op\":\"field\",\"id\":",
+                java.nio.file.StandardOpenOption.APPEND);
+
+        JournalStorageService reloaded = newService(JournalStorageService.DEFAULT_COMPACTION_THRESHOLD);
+        assertEquals(1, reloaded.load().getTasks().size());
+        assertEquals(service.getJournalSize(), reloaded.getJournalSize());
+    }
+}
@@ -37,4 +37,71 @@ class JsonStorageServiceTest {
         assertEquals("Test1", t2.getDescription());
         assertEquals(30, t2.getTotalTime().toMinutes());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testDeferredContentIsLoadedOnDemand() throws IOException {
+        Path jsonFile = tempDir.resolve("test_data.json");
+        JsonStorageService service = new JsonStorageService(jsonFile.toString());
+
+        LocalDate today = LocalDate.now();
+        LocalDate old = today.minusYears(2);
+        DataStore ds = new DataStore();
+        Task t1 = Task.builder().description("Test1").markdownContent("# Notes").isJira(true).build();
+        t1.setTime(today, Duration.ofMinutes(30));
+        t1.setTime(old, Duration.ofMinutes(10));
+        t1.setDailyNote(old, "old note");
+        ds.getTasks().add(t1);
+        service.save(ds);
+
+        Task loaded = service.load().getTasks().get(0);
+        assertTrue(loaded.isJira());
+        assertFalse(loaded.isMarkdownLoaded());
+        assertFalse(loaded.isHistoryLoaded());
+        assertEquals(30, loaded.getDurationToday().toMinutes());
+        assertFalse(loaded.isHistoryLoaded(), "Recent statistics should not need the old history");
+
+        assertEquals("old note", loaded.getDailyNote(old));
+        assertTrue(loaded.isHistoryLoaded());
+        assertEquals(40, loaded.getTotalTime().toMinutes());
+        assertEquals("# Notes", loaded.getMarkdownContent());
+
+        // A save rewrites the file the deferred content came from
+        Task other = service.load().getTasks().get(0);
+        service.save(ds);
+        assertEquals("# Notes", other.getMarkdownContent());
+        assertEquals(10, other.getTimeForDate(old).toMinutes());
+    }
+
+    @Test
+    void testSavingKeepsUntouchedTasksDeferred() throws IOException {
+        Path jsonFile = tempDir.resolve("test_data.json");
+        JsonStorageService service = new JsonStorageService(jsonFile.toString());
+
+        LocalDate today = LocalDate.now();
+        LocalDate old = today.minusYears(2);
+        DataStore ds = new DataStore();
+        Task untouched = Task.builder().description("Untouched").markdownContent("# \"Quoted\" \\ ✓\n").build();
+        untouched.setTime(today, Duration.ofMinutes(30));
+        untouched.setTime(old, Duration.ofMinutes(10));
+        untouched.setDailyNote(old, "old \"note\" ✓");
+        untouched.setTime(old.plusDays(1), Duration.ofSeconds(90, 5));
+        Task edited = Task.builder().description("Edited").markdownContent("# Edited").build();
+        edited.setTime(old, Duration.ofMinutes(5));
+        ds.getTasks().add(untouched);
+        ds.getTasks().add(edited);
+        service.save(ds);
+        Task expected = untouched.copy();
+
+        DataStore loaded = service.load();
+        Task deferred = loaded.getTasks().get(0);
+        assertEquals(Duration.ofSeconds(40 * 60 + 90, 5), deferred.getTotalTime());
+        loaded.getTasks().get(1).setDescription("Edited again");
+        service.save(loaded);
+
+        assertFalse(deferred.isMarkdownLoaded());
+        assertFalse(deferred.isHistoryLoaded());
+        Task reloaded = service.load().getTasks().get(0);
+        assertTrue(expected.contentEquals(reloaded));
+        assertEquals("Edited again", service.load().getTasks().get(1).getDescription());
+    }
+}
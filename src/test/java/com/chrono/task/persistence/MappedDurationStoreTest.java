@@ -0,0 +1,64 @@
+package com.chrono.task.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedDurationStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testValuesSurviveReopen() throws IOException {
+        Path file = tempDir.resolve("durations.dat");
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        try (MappedDurationStore store = MappedDurationStore.open(file)) {
+            store.put("a", day, Duration.ofMinutes(10));
+            store.put("a", day, Duration.ofMinutes(11));
+            store.put("b", day.minusYears(60), Duration.ofSeconds(1, 5));
+        }
+        try (MappedDurationStore store = MappedDurationStore.open(file)) {
+            assertEquals(Duration.ofMinutes(11), store.get("a", day));
+            assertEquals(Duration.ofSeconds(1, 5), store.get("b", day.minusYears(60)));
+            assertEquals(Duration.ZERO, store.get("c", day));
+        }
+    }
+
+    @Test
+    void testRangeSumAndGrowth() throws IOException {
+        LocalDate start = LocalDate.of(2020, 1, 1);
+        try (MappedDurationStore store = MappedDurationStore.open(tempDir.resolve("durations.dat"))) {
+            // More records than the initial mapping holds
+            for (int d = 0; d < 5000; d++) {
+                store.put("a", start.plusDays(d), Duration.ofSeconds(1));
+            }
+            store.put("b", start, Duration.ofHours(1));
+            assertEquals(Duration.ofSeconds(31), store.sum("a", start.plusDays(10), start.plusDays(40)));
+            assertEquals(Duration.ofSeconds(5000), store.sum("a", start.minusDays(1), start.plusDays(10_000)));
+            assertEquals(Duration.ofHours(1), store.sum("b", start, start));
+        }
+    }
+
+    @Test
+    void testSinceCheckpoint() throws Exception {
+        LocalDate day = LocalDate.of(2024, 5, 1);
+        try (MappedDurationStore store = MappedDurationStore.open(tempDir.resolve("durations.dat"))) {
+            store.put("a", day, Duration.ofMinutes(1));
+            store.checkpoint(System.currentTimeMillis() + 1);
+            assertTrue(store.sinceCheckpoint().isEmpty());
+
+            Thread.sleep(5);
+            store.put("a", day, Duration.ofMinutes(2));
+            assertEquals(List.of(new MappedDurationStore.Entry("a", day, Duration.ofMinutes(2))),
+                    store.sinceCheckpoint());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.chrono.task.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionStoreTest {
+
+    private static final Instant NINE = Instant.parse("2024-05-06T09:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSessionsSurviveReopenInStartOrder() throws IOException {
+        Path file = tempDir.resolve(SessionStore.SESSIONS_FILE);
+        try (SessionStore store = SessionStore.open(file)) {
+            store.add("a", NINE, NINE.plusSeconds(3600));
+            store.add("b", NINE.plusSeconds(3600), NINE.plusSeconds(5400));
+            // Recorded late, after a clock change
+            store.add("a", NINE.minusSeconds(7200), NINE.minusSeconds(3600));
+            store.add("a", NINE, NINE.plusMillis(800));
+        }
+        // A record cut short by a crash
+        Files.write(file, new byte[5], StandardOpenOption.APPEND);
+
+        try (SessionStore store = SessionStore.open(file)) {
+            assertEquals(3, store.size());
+            assertEquals(List.of(
+                    new SessionStore.Session("a", NINE.minusSeconds(7200), NINE.minusSeconds(3600)),
+                    new SessionStore.Session("a", NINE, NINE.plusSeconds(3600)),
+                    new SessionStore.Session("b", NINE.plusSeconds(3600), NINE.plusSeconds(5400))),
+                    store.between(Instant.EPOCH, NINE.plusSeconds(86400)));
+            store.add("c", NINE.plusSeconds(5400), NINE.plusSeconds(6000));
+        }
+        try (SessionStore store = SessionStore.open(file)) {
+            assertEquals(4, store.size());
+        }
+    }
+
+    @Test
+    void testRangesFindOverlappingAndLongSessions() throws IOException {
+        try (SessionStore store = SessionStore.open(tempDir.resolve(SessionStore.SESSIONS_FILE))) {
+            // Longer than the 24 bits of a packed length
+            store.add("long", NINE.minus(Duration.ofDays(400)), NINE.minus(Duration.ofDays(100)));
+            for (int i = 0; i < 2000; i++) {
+                store.add("t" + (i % 7), NINE.plusSeconds(i * 600L), NINE.plusSeconds(i * 600L + 300));
+            }
+
+            List<SessionStore.Session> chunks = store.between(Instant.EPOCH, NINE);
+            assertEquals(2, chunks.size());
+            assertEquals(chunks.get(0).end(), chunks.get(1).start());
+            assertEquals(Duration.ofDays(300), chunks.get(0).duration().plus(chunks.get(1).duration()));
+            assertEquals(1, store.between(NINE.minus(Duration.ofDays(101)), NINE.minus(Duration.ofDays(100))).size());
+
+            // Partly overlapping sessions at both ends are included
+            List<SessionStore.Session> found = store.between(NINE.plusSeconds(6000 + 100),
+                    NINE.plusSeconds(12000 + 100));
+            assertEquals(11, found.size());
+            assertEquals(NINE.plusSeconds(6000), found.get(0).start());
+            assertEquals(NINE.plusSeconds(12000), found.get(10).start());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.StorageFormat;
+import com.chrono.task.model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedStorageServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSaveAndLoadKeepsOrder() throws IOException {
+        ShardedStorageService service = new ShardedStorageService(tempDir.toFile());
+        DataStore ds = new DataStore();
+        Task a = Task.builder().description("A").order(1).build();
+        Task b = Task.builder().description("B").order(0).build();
+        a.setTime(LocalDate.of(2024, 1, 1), Duration.ofMinutes(30));
+        ds.getTasks().addAll(List.of(a, b));
+        service.save(ds);
+
+        DataStore loaded = new ShardedStorageService(tempDir.toFile()).load();
+        assertEquals(List.of("B", "A"), loaded.getTasks().stream().map(Task::getDescription).toList());
+        assertEquals(30, loaded.getTasks().get(1).getTotalTime().toMinutes());
+    }
+
+    @Test
+    void testOnlyChangedShardsAreRewritten() throws IOException {
+        ShardedStorageService service = new ShardedStorageService(tempDir.toFile());
+        DataStore ds = new DataStore();
+        Task a = Task.builder().description("A").order(0).build();
+        Task b = Task.builder().description("B").order(1).build();
+        ds.getTasks().addAll(List.of(a, b));
+        service.save(ds);
+
+        Path shardA = tempDir.resolve("tasks").resolve(a.getId() + ".json");
+        Path shardB = tempDir.resolve("tasks").resolve(b.getId() + ".json");
+        Files.writeString(shardA, "untouched");
+
+        b.setMarkdownContent("changed");
+        // Reordering only touches the manifest
+        a.setOrder(1);
+        b.setOrder(0);
+        service.save(ds);
+
+        assertEquals("untouched", Files.readString(shardA));
+        assertTrue(Files.readString(shardB).contains("changed"));
+    }
+
+    @Test
+    void testRemovedTaskShardIsDeleted() throws IOException {
+        ShardedStorageService service = new ShardedStorageService(tempDir.toFile());
+        DataStore ds = new DataStore();
+        Task a = Task.builder().description("A").build();
+        ds.getTasks().add(a);
+        service.save(ds);
+
+        ds.getTasks().clear();
+        service.save(ds);
+
+        assertFalse(Files.exists(tempDir.resolve("tasks").resolve(a.getId() + ".json")));
+        assertTrue(new ShardedStorageService(tempDir.toFile()).load().getTasks().isEmpty());
+    }
+
+    @Test
+    void testTaskRemovedBeforeACrashStaysRemoved() throws IOException {
+        ShardedStorageService service = new ShardedStorageService(tempDir.toFile());
+        DataStore ds = new DataStore();
+        Task a = Task.builder().description("A").order(0).build();
+        Task b = Task.builder().description("B").order(1).build();
+        ds.getTasks().addAll(List.of(a, b));
+        service.save(ds);
+        Path manifest = tempDir.resolve(ShardedStorageService.MANIFEST_FILE);
+        byte[] listingBoth = Files.readAllBytes(manifest);
+
+        ds.getTasks().remove(b);
+        service.save(ds);
+        // Crash before the manifest was written: it still lists the deleted shard
+        Files.write(manifest, listingBoth);
+
+        assertEquals(List.of("A"), new ShardedStorageService(tempDir.toFile()).load().getTasks().stream()
+                .map(Task::getDescription).toList());
+    }
+
+    @Test
+    void testMigrationBetweenFormats() throws IOException {
+        DataStore ds = new DataStore();
+        ds.getTasks().add(Task.builder().description("A").markdownContent("# A").build());
+        new JsonStorageService(tempDir.resolve("data.json").toString()).save(ds);
+
+        StorageService sharded = StorageServiceFactory.createAndMigrate(StorageFormat.SHARDED, tempDir.toFile());
+        assertFalse(Files.exists(tempDir.resolve("data.json")));
+        assertEquals("# A", sharded.load().getTasks().get(0).getMarkdownContent());
+
+        StorageService json = StorageServiceFactory.createAndMigrate(StorageFormat.JSON, tempDir.toFile());
+        assertFalse(Files.exists(tempDir.resolve("manifest.json")));
+        assertEquals("# A", json.load().getTasks().get(0).getMarkdownContent());
+    }
+}
@@ -0,0 +1,106 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Manual benchmark comparing storage strategies on a synthetic dataset. Not run by the test suite.
+ * <p>
+ * Usage: {@code StorageBenchmark [tasks] [years]}
+ */
+public class StorageBenchmark {
+
+    private static final int RUNS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int years = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        Path dir = Files.createTempDirectory("chrono-bench");
+        Path jsonFile = dir.resolve("data.json");
+
+        DataStore data = generate(taskCount, years, 42);
+        new JsonStorageService(jsonFile.toString()).save(data);
+        System.out.printf("Dataset: %d tasks, %d years, data.json = %.1f MB%n", taskCount, years,
+                Files.size(jsonFile) / 1024.0 / 1024.0);
+
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        report("Startup load, full readValue", () -> mapper.readValue(jsonFile.toFile(), DataStore.class));
+        report("Startup load, streaming lazy", () -> new JsonStorageService(jsonFile.toString()).load());
+        report("Streaming lazy + stats of all tasks", () -> {
+            DataStore loaded = new JsonStorageService(jsonFile.toString()).load();
+            loaded.getTasks().forEach(Task::getDurationLast30Days);
+            return loaded;
+        });
+
+        Path binaryFile = dir.resolve("data.bin");
+        BinaryStorageService binary = new BinaryStorageService(binaryFile.toString());
+        binary.save(data);
+        System.out.printf("data.bin = %.1f MB%n", Files.size(binaryFile) / 1024.0 / 1024.0);
+        report("Load, binary", binary::load);
+        report("Save, JSON", () -> {
+            new JsonStorageService(jsonFile.toString()).save(data);
+            return null;
+        });
+        report("Save, binary", () -> {
+            binary.save(data);
+            return null;
+        });
+    }
+
+    /**
+     * Builds {@code taskCount} tasks whose work is spread over the last {@code years} years.
+     */
+    public static DataStore generate(int taskCount, int years, long seed) {
+        Random random = new Random(seed);
+        LocalDate today = LocalDate.now();
+        int days = years * 365;
+        DataStore store = new DataStore();
+        for (int i = 0; i < taskCount; i++) {
+            Task task = Task.builder()
+                    .order(i)
+                    .description("Task " + i)
+                    .jiraUrl(i % 3 == 0 ? "https://example.atlassian.net/browse/PROJ-" + i : null)
+                    .status(TaskStatus.values()[random.nextInt(4)])
+                    .markdownContent(("Some context for task " + i + " with a few details.\n").repeat(20))
+                    .build();
+            // Each task is worked on for a stretch of consecutive days
+            int start = random.nextInt(days);
+            int length = 5 + random.nextInt(40);
+            for (int d = 0; d < length && start - d >= 0; d++) {
+                LocalDate date = today.minusDays(start - d);
+                task.setTime(date, Duration.ofSeconds(120 + random.nextInt(4 * 3600)));
+                if (random.nextInt(4) == 0) {
+                    task.setDailyNote(date, "Worked on part " + d + " of task " + i);
+                }
+            }
+            store.getTasks().add(task);
+        }
+        return store;
+    }
+
+    private static void report(String name, Run run) throws IOException {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            run.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.printf("%-40s %8.1f ms%n", name, best / 1_000_000.0);
+    }
+
+    @FunctionalInterface
+    interface Run {
+        Object run() throws IOException;
+    }
+}
@@ -0,0 +1,25 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.Task;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tasks are equal by id, loaded ones are checked field by field.
+ */
+final class TaskAssertions {
+
+    private TaskAssertions() {
+    }
+
+    static void assertContentEquals(List<Task> expected, List<Task> actual) {
+        assertEquals(expected, actual);
+        for (int i = 0; i < expected.size(); i++) {
+            Task task = expected.get(i);
+            assertTrue(task.contentEquals(actual.get(i)), () -> "Content differs: " + task.getDescription());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.chrono.task.persistence;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.Task;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTextsAreIndexedAndReadOnDemand() throws IOException {
+        LocalDate day = LocalDate.of(2024, 3, 4);
+        TextStore store = TextStore.open(tempDir.toFile());
+        store.write(Map.of(
+                "a", new TextStore.Texts("# Release checklist", Map.of(day, "Tagged v1.2")),
+                "b", new TextStore.Texts("", Map.of())));
+        // Texts written in the same clock tick as the index are indexed again, which would read them
+        Path index = tempDir.resolve(TextStore.TEXTS_DIR).resolve("index.json");
+        Files.setLastModifiedTime(index, FileTime.fromMillis(Files.getLastModifiedTime(index).toMillis() + 2000));
+
+        TextStore reopened = TextStore.open(tempDir.toFile());
+        assertTrue(reopened.contains("b"));
+        assertFalse(reopened.contains("c"));
+        assertEquals(Set.of("a"), reopened.candidates("check"));
+        assertEquals(Set.of("a"), reopened.candidates("list v1"));
+        assertEquals(Set.of(), reopened.candidates("missing"));
+        assertNull(reopened.candidates("--"));
+        assertEquals(0, reopened.getReads());
+
+        assertEquals("Tagged v1.2", reopened.note("a", day));
+        assertEquals("# Release checklist", reopened.markdown("a"));
+        assertEquals("", reopened.note("a", day.plusDays(1)));
+        assertEquals(1, reopened.getReads());
+    }
+
+    @Test
+    void testFilesWrittenAfterTheIndexAreIndexedAgain() throws IOException {
+        TextStore store = TextStore.open(tempDir.toFile());
+        store.write(Map.of("a", new TextStore.Texts("first", Map.of())));
+        Path texts = tempDir.resolve(TextStore.TEXTS_DIR);
+        // As if the process died between the texts and the index
+        Files.writeString(texts.resolve("a.json"), "{\"markdown\":\"second\",\"notes\":{}}");
+        Files.setLastModifiedTime(texts.resolve("index.json"), FileTime.fromMillis(0));
+
+        TextStore reopened = TextStore.open(tempDir.toFile());
+        assertEquals(Set.of("a"), reopened.candidates("second"));
+        assertEquals(Set.of(), reopened.candidates("first"));
+    }
+
+    @Test
+    void testReleasedTextsAreNotWrittenToTheDocument() throws IOException {
+        LocalDate day = LocalDate.of(2024, 3, 4);
+        Task task = Task.builder().description("Task").markdownContent("Body").build();
+        task.setTime(day, Duration.ofHours(1));
+        task.setDailyNote(day, "Note");
+        TextStore store = TextStore.open(tempDir.toFile());
+        store.write(Map.of(task.getId(), new TextStore.Texts("Body", Map.of(day, "Note"))));
+        assertTrue(task.releaseTexts(store, task.getModCount()));
+
+        JsonStorageService json = new JsonStorageService(tempDir.resolve("data.json").toString());
+        json.save(new DataStore(List.of(task)));
+        String document = Files.readString(tempDir.resolve("data.json"));
+        assertFalse(document.contains("Body"));
+        assertFalse(document.contains("Note"));
+
+        Task loaded = json.load().getTasks().get(0);
+        assertNull(loaded.getMarkdownContent());
+        assertFalse(loaded.releaseTexts(store, loaded.getModCount()), "Nothing held, nothing to save again");
+        assertEquals("Body", loaded.getMarkdownContent());
+        assertEquals("Note", loaded.getDailyNote(day));
+        assertEquals(Duration.ofHours(1), loaded.getTimeForDate(day));
+    }
+}
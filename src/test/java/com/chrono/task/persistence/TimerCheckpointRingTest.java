@@ -0,0 +1,55 @@
+package com.chrono.task.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerCheckpointRingTest {
+
+    private static final Instant START = Instant.parse("2024-05-06T09:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLastStateSurvivesReopenAndWrapping() throws IOException {
+        Path file = tempDir.resolve(TimerCheckpointRing.RING_FILE);
+        try (TimerCheckpointRing ring = TimerCheckpointRing.open(file)) {
+            assertNull(ring.last());
+            for (int i = 0; i < TimerCheckpointRing.SLOTS * 3 + 2; i++) {
+                ring.write("task-" + i, START, START.plusSeconds(i), START.plusSeconds(i + 1));
+            }
+        }
+        try (TimerCheckpointRing ring = TimerCheckpointRing.open(file)) {
+            int last = TimerCheckpointRing.SLOTS * 3 + 1;
+            assertEquals(new TimerCheckpointRing.State("task-" + last, START, START.plusSeconds(last),
+                    START.plusSeconds(last + 1)), ring.last());
+
+            ring.write(null, null, null, START.plusSeconds(100));
+            assertFalse(ring.last().isRunning());
+        }
+    }
+
+    @Test
+    void testTornWriteFallsBackToThePreviousState() throws IOException {
+        Path file = tempDir.resolve(TimerCheckpointRing.RING_FILE);
+        try (TimerCheckpointRing ring = TimerCheckpointRing.open(file)) {
+            ring.write("a", START, START, START.plusSeconds(5));
+            ring.write("a", START, START, START.plusSeconds(10));
+        }
+        // Second slot: 16 bytes header, 128 bytes per slot, last alive at offset 24
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(16 + 128 + 24);
+            raw.writeLong(START.plusSeconds(3600).toEpochMilli());
+        }
+        try (TimerCheckpointRing ring = TimerCheckpointRing.open(file)) {
+            assertEquals(START.plusSeconds(5), ring.last().lastAlive());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.chrono.task.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Clock that only moves when told to.
+ */
+final class ManualClock extends Clock {
+
+    private final ZoneId zone;
+    private volatile Instant now;
+
+    ManualClock(Instant now, ZoneId zone) {
+        this.now = now;
+        this.zone = zone;
+    }
+
+    void advance(Duration duration) {
+        now = now.plus(duration);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return new ManualClock(now, zone);
+    }
+
+    @Override
+    public Instant instant() {
+        return now;
+    }
+}
@@ -0,0 +1,71 @@
+package com.chrono.task.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchedulerServiceTest {
+
+    private SchedulerService scheduler;
+
+    @BeforeEach
+    void setUp() {
+        scheduler = new SchedulerService();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testPeriodicJobRunsOnVirtualThreadsAndCountsFailures() throws InterruptedException {
+        // The fourth run starts once the third one is counted
+        CountDownLatch runs = new CountDownLatch(4);
+        boolean[] virtual = { true };
+        scheduler.schedule("job", Duration.ZERO, Duration.ofMillis(10), () -> {
+            virtual[0] &= Thread.currentThread().isVirtual();
+            runs.countDown();
+            throw new IllegalStateException("boom");
+        });
+        assertTrue(runs.await(5, TimeUnit.SECONDS));
+        // Metrics carry over when a job is scheduled again
+        scheduler.scheduleOnce("job", Duration.ofDays(1), () -> {
+        });
+
+        assertTrue(virtual[0]);
+        SchedulerService.JobStats stats = scheduler.stats().get(0);
+        assertTrue(stats.runs() >= 3);
+        assertEquals(stats.runs(), stats.failures());
+        assertEquals("java.lang.IllegalStateException: boom", stats.lastError());
+        assertNotNull(stats.lastRun());
+    }
+
+    @Test
+    void testOneOffJobIsReplacedAndPausedJobResumes() throws InterruptedException {
+        AtomicInteger first = new AtomicInteger();
+        CountDownLatch second = new CountDownLatch(1);
+        scheduler.scheduleOnce("save", Duration.ofMillis(200), first::incrementAndGet);
+        assertTrue(scheduler.isPending("save"));
+        scheduler.scheduleOnce("save", Duration.ofMillis(50), second::countDown);
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        Thread.sleep(300);
+        assertEquals(0, first.get());
+        assertFalse(scheduler.isPending("save"));
+
+        CountDownLatch resumed = new CountDownLatch(1);
+        scheduler.scheduleOnce("later", Duration.ofMillis(50), resumed::countDown);
+        scheduler.pause("later");
+        assertFalse(resumed.await(200, TimeUnit.MILLISECONDS));
+        assertTrue(scheduler.stats().stream().anyMatch(job -> job.name().equals("later") && job.paused()));
+        scheduler.resume("later");
+        assertTrue(resumed.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,82 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.Task;
+import com.chrono.task.persistence.JsonStorageService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Manual benchmark of {@link TaskService#search(String)} over tasks with years of daily notes: time per query once the
+ * index is built. The tasks are loaded from a {@code data.json} like at startup, their older history deferred, and
+ * the histories the queries loaded are counted. Not run by the test suite.
+ * <p>
+ * Usage: {@code SearchBenchmark [tasks] [days]}
+ */
+public class SearchBenchmark {
+
+    private static final String[] WORDS = { "release", "review", "deploy", "meeting", "fix", "customer", "build",
+            "planning", "migration", "incident", "backlog", "design" };
+    private static final List<String> QUERIES = List.of("migr", "deploy fix", "zebra", "in", "customer-42");
+
+    public static void main(String[] args) throws IOException {
+        int taskCount = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+
+        Random random = new Random(42);
+        LocalDate today = LocalDate.now();
+        List<Task> generated = new ArrayList<>();
+        for (int i = 0; i < taskCount; i++) {
+            Task task = Task.builder()
+                    .description(sentence(random, 4) + " customer-" + i)
+                    .order(i * Task.ORDER_GAP)
+                    .markdownContent(sentence(random, 60))
+                    .build();
+            for (int d = 0; d < days; d += 1 + random.nextInt(5)) {
+                task.setTime(today.minusDays(d), Duration.ofMinutes(30));
+                task.setDailyNote(today.minusDays(d), sentence(random, 8));
+            }
+            generated.add(task);
+        }
+        Path dir = Files.createTempDirectory("search-benchmark");
+        String jsonFile = dir.resolve("data.json").toString();
+        new JsonStorageService(jsonFile).save(new DataStore(generated));
+
+        SchedulerService scheduler = new SchedulerService();
+        TaskService service = new TaskService(new JsonStorageService(jsonFile), scheduler);
+        service.init();
+
+        long start = System.nanoTime();
+        service.search("x");
+        System.out.printf("Index built in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+        for (String query : QUERIES) {
+            int rounds = 200;
+            int hits = 0;
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                hits = service.search(query).size();
+            }
+            System.out.printf("%-12s %6d hits, %8.3f ms per query%n", query, hits,
+                    (System.nanoTime() - start) / 1e6 / rounds);
+        }
+        long loaded = service.getTasks().stream().filter(Task::isHistoryLoaded).count();
+        System.out.printf("%d of %d histories loaded%n", loaded, taskCount);
+        service.shutdown();
+        scheduler.shutdown();
+    }
+
+    private static String sentence(Random random, int words) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            sentence.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sentence.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package com.chrono.task.service;
+
+import com.chrono.task.model.Task;
+import com.chrono.task.model.TaskStatus;
+import com.chrono.task.persistence.StorageService;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TaskEventBusTest {
+
+    @Test
+    void testServicePublishesTypedEvents() {
+        SchedulerService scheduler = new SchedulerService();
+        TaskService service = new TaskService(Mockito.mock(StorageService.class), scheduler);
+        List<String> seen = new ArrayList<>();
+        service.getEvents().subscribe(EnumSet.allOf(TaskEvent.class),
+                (event, task, date) -> seen.add(event + " " + task.getDescription() + (date == null ? "" : " day")));
+
+        Task task = service.createTask("A");
+        task.setStatus(TaskStatus.IN_PROGRESS);
+        task.addTime(LocalDate.now(), Duration.ofMinutes(1));
+        task.setDailyNote(LocalDate.now(), "note");
+        service.updateTaskDescription(task, "B");
+        service.getTasks().remove(task);
+        task.setMarkdownContent("Not listed any more");
+
+        assertEquals(List.of("CREATED A", "STATUS_CHANGED A", "TIME_ACCRUED A day", "TEXT_CHANGED A day",
+                "FIELD_CHANGED B", "REMOVED B"), seen);
+        assertNull(service.findTask(task.getId()), "The indexes follow the events");
+        service.shutdown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    void testBatchesGatherEventsUntilDelivered() {
+        TaskEventBus bus = new TaskEventBus();
+        List<Runnable> scheduled = new ArrayList<>();
+        List<TaskEvents> batches = new ArrayList<>();
+        bus.subscribe(EnumSet.of(TaskEvent.FIELD_CHANGED, TaskEvent.TIME_ACCRUED), Duration.ZERO, scheduled::add,
+                batches::add);
+        Task a = Task.builder().description("A").build();
+        Task b = Task.builder().description("B").build();
+
+        for (int i = 0; i < 100; i++) {
+            bus.publish(TaskEvent.TIME_ACCRUED, a, LocalDate.now());
+        }
+        bus.publish(TaskEvent.FIELD_CHANGED, b, null);
+        bus.publish(TaskEvent.STATUS_CHANGED, b, null);
+        assertEquals(1, scheduled.size(), "One delivery per batch");
+        scheduled.get(0).run();
+
+        TaskEvents batch = batches.get(0);
+        assertEquals(List.of(a, b), List.copyOf(batch.tasks()));
+        assertEquals(Set.of(TaskEvent.TIME_ACCRUED), batch.eventsOf(a));
+        assertTrue(batch.contains(b, TaskEvent.FIELD_CHANGED));
+        assertFalse(batch.contains(TaskEvent.STATUS_CHANGED), "Not subscribed to");
+
+        bus.publish(TaskEvent.FIELD_CHANGED, a, null);
+        assertEquals(2, scheduled.size(), "A new batch after a delivery");
+    }
+}
@@ -1,26 +1,54 @@
 package com.chrono.task.service;
 
+import com.chrono.task.model.DataStore;
+import com.chrono.task.model.DeferredJson;
 import com.chrono.task.model.Task;
 import com.chrono.task.model.TaskDailyWork;
+import com.chrono.task.model.TaskStatus;
 import java.time.LocalDate;
+import com.chrono.task.persistence.ArchiveStore;
+import com.chrono.task.persistence.MappedDurationStore;
 import com.chrono.task.persistence.StorageService;
+import com.chrono.task.persistence.TextStore;
+import com.chrono.task.persistence.WorkQueries;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mockito;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class TaskServiceTest {
 
     private StorageService storageMock;
+    private SchedulerService scheduler;
     private TaskService service;
 
     @BeforeEach
     void setup() {
         storageMock = Mockito.mock(StorageService.class);
-        service = new TaskService(storageMock);
+        scheduler = new SchedulerService();
+        service = new TaskService(storageMock, scheduler);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
     }
 
     @Test
@@ -39,11 +67,54 @@ class TaskServiceTest {
         // Swap
         service.updateOrder(List.of(t2, t1));
 
-        assertEquals(0, t2.getOrder());
-        assertEquals(1, t1.getOrder());
+        assertTrue(t2.getOrder() < t1.getOrder());
         assertEquals("B", service.getTasks().get(0).getDescription());
     }
 
+    @Test
+    void testMoveTaskRewritesOneKey() {
+        Task a = service.createTask("A");
+        Task b = service.createTask("B");
+        Task c = service.createTask("C");
+        List<Task> reordered = new ArrayList<>();
+        List<TaskEvent> membership = new ArrayList<>();
+        service.getEvents().subscribe(EnumSet.of(TaskEvent.MOVED), (event, task, date) -> reordered.add(task));
+        service.getEvents().subscribe(EnumSet.of(TaskEvent.CREATED, TaskEvent.REMOVED),
+                (event, task, date) -> membership.add(event));
+
+        service.moveTask(c.getId(), a.getId());
+        assertEquals(List.of(c, a, b), service.getTasks());
+        service.moveTask(c.getId(), null);
+        assertEquals(List.of(a, b, c), service.getTasks());
+        assertEquals(List.of(c, c), reordered);
+        assertEquals(List.of(), membership, "A moved task stays in the list");
+        assertSame(c, service.findTask(c.getId()));
+        c.setDescription("C2");
+        assertThrows(IllegalArgumentException.class, () -> service.createTask("C2"), "Still indexed");
+
+        // Moving back and forth between the same two tasks uses up the room between their keys
+        for (int i = 0; i < 20; i++) {
+            service.moveTask((i % 2 == 0 ? a : c).getId(), b.getId());
+        }
+        assertEquals(List.of(a, c, b), service.getTasks());
+        assertTrue(a.getOrder() < c.getOrder() && c.getOrder() < b.getOrder());
+        assertTrue(reordered.size() > 22, "Keys were spread again");
+    }
+
+    @Test
+    void testPositionIsInTheWholeList() {
+        Task a = service.createTask("Alpha");
+        Task b = service.createTask("Beta");
+        Task c = service.createTask("Gamma");
+        service.moveTask(c.getId(), a.getId());
+
+        // Whatever a filter shows, the label keeps the position in the whole list
+        assertEquals(List.of(b), service.filter("Beta"));
+        assertEquals(2, service.positionOf(b));
+        assertEquals(0, service.positionOf(c));
+        assertEquals(-1, service.positionOf(Task.builder().description("Elsewhere").build()));
+    }
+
     @Test
     void testFilter() {
         Task t1 = service.createTask("Buy Milk");
@@ -79,6 +150,47 @@ class TaskServiceTest {
         assertEquals(t2, service.filter("DOG-123").get(0));
     }
 
+    @Test
+    void testSearchReportsFieldsAndFollowsEdits() {
+        Task t1 = service.createTask("Release notes");
+        Task t2 = service.createTask("Review");
+        t2.setTags(List.of("release"));
+        t2.setDailyNote(LocalDate.now(), "Drafted the RELEASE plan");
+
+        List<SearchHit> hits = service.search("relea");
+        assertEquals(2, hits.size());
+        assertEquals(Set.of(SearchHit.Field.DESCRIPTION), hits.get(0).fields());
+        assertEquals(Set.of(SearchHit.Field.TAGS, SearchHit.Field.NOTES), hits.get(1).fields());
+        // Shorter than a gram, and grams in the wrong order
+        assertEquals(2, service.search("re").size());
+        assertEquals(0, service.search("notesrelease").size());
+
+        t1.setDescription("Ship it");
+        t2.setDailyNote(LocalDate.now(), "");
+        hits = service.search("release");
+        assertEquals(1, hits.size());
+        assertEquals(Set.of(SearchHit.Field.TAGS), hits.get(0).fields());
+        service.getTasks().remove(t2);
+        assertTrue(service.search("release").isEmpty());
+        assertEquals(t1, service.search("ship").get(0).task());
+    }
+
+    @Test
+    void testRefiningOnlyChecksThePreviousHits() {
+        Task t1 = service.createTask("Deploy backend");
+        Task t2 = service.createTask("Deploy frontend");
+        t2.setMarkdownContent("Then deploy backend docs");
+        List<SearchHit> hits = service.search("deploy");
+        assertEquals(2, hits.size());
+
+        List<SearchHit> refined = service.refine(hits, "deploy back", () -> false);
+        assertEquals(List.of(t1, t2), refined.stream().map(SearchHit::task).toList());
+        assertEquals(Set.of(SearchHit.Field.MARKDOWN), refined.get(1).fields());
+        assertEquals(Set.of(SearchHit.Field.DESCRIPTION), service.match(t1, "BACKEND").fields());
+        assertNull(service.match(t1, "frontend"));
+        assertTrue(service.search("deploy", service.getTasks(), () -> true).isEmpty(), "Cancelled");
+    }
+
     @Test
     void testReorderWithSelf() {
         service.createTask("Task 1");
@@ -124,6 +236,41 @@ class TaskServiceTest {
         assertDoesNotThrow(() -> service.updateTaskJiraUrl(t2, "http://jira.com/2"));
     }
 
+    @Test
+    void testJiraUrlsAreComparedNormalized() {
+        Task t1 = service.createTask("Task A");
+        service.updateTaskJiraUrl(t1, "https://acme.atlassian.net/browse/AB-1");
+        Task t2 = service.createTask("Task B");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updateTaskJiraUrl(t2, "http://ACME.atlassian.net/browse/AB-1/"));
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updateTaskJiraUrl(t2, "https://acme.atlassian.net/browse/AB-1?focusedCommentId=3"));
+        // Same key on another site, or another issue
+        assertDoesNotThrow(() -> service.updateTaskJiraUrl(t2, "https://other.atlassian.net/browse/AB-1"));
+        assertDoesNotThrow(() -> service.updateTaskJiraUrl(t2, "https://acme.atlassian.net/browse/AB-12"));
+        assertEquals("acme.atlassian.net/browse/AB-1",
+                TaskIndex.normalizeUrl(" HTTPS://Acme.atlassian.net/browse/AB-1//#comment "));
+    }
+
+    @Test
+    void testUniquenessFollowsEditsAndRemovals() {
+        Task t1 = service.createTask("Task A");
+        t1.setDescription("Task B");
+        t1.setJiraUrl("https://acme.atlassian.net/browse/AB-1");
+
+        assertDoesNotThrow(() -> service.createTask("Task A"));
+        assertThrows(IllegalArgumentException.class, () -> service.createTask("Task B"));
+        Task t2 = service.findTask(service.getTasks().get(1).getId());
+        assertThrows(IllegalArgumentException.class,
+                () -> service.updateTaskJiraUrl(t2, "https://acme.atlassian.net/browse/AB-1"));
+
+        service.getTasks().remove(t1);
+        assertNull(service.findTask(t1.getId()));
+        assertDoesNotThrow(() -> service.updateTaskDescription(t2, "Task B"));
+        assertDoesNotThrow(() -> service.updateTaskJiraUrl(t2, "https://acme.atlassian.net/browse/AB-1"));
+    }
+
     @Test
     void testSlackUrl() {
         Task t = service.createTask("Slack Task");
@@ -134,4 +281,413 @@ class TaskServiceTest {
         assertEquals(1, service.filter("archives/C12345").size());
         assertEquals(t, service.filter("archives/C12345").get(0));
     }
+
+    @Test
+    void testAutoSaveSkipsCleanState() throws Exception {
+        Task t = service.createTask("Task A");
+        service.saveIfDirty();
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        assertEquals(1, service.getSavesWritten());
+        Mockito.verify(storageMock, Mockito.times(1)).save(Mockito.any());
+
+        service.saveIfDirty();
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        assertEquals(1, service.getSavesWritten());
+        assertEquals(1, service.getSavesSkipped());
+
+        t.addTime(LocalDate.now(), Duration.ofSeconds(1));
+        assertTrue(t.isDirty());
+        service.saveIfDirty();
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        assertEquals(2, service.getSavesWritten());
+        assertFalse(t.isDirty());
+    }
+
+    @Test
+    void testFailedSaveKeepsTasksDirty() throws Exception {
+        Mockito.doThrow(new IOException("disk full")).when(storageMock).save(Mockito.any());
+        Task t = service.createTask("Task A");
+        t.addTime(LocalDate.now(), Duration.ofSeconds(1));
+
+        service.saveIfDirty();
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        assertEquals(0, service.getSavesWritten());
+        assertTrue(t.isDirty());
+
+        Mockito.doNothing().when(storageMock).save(Mockito.any());
+        service.saveIfDirty();
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        assertEquals(1, service.getSavesWritten());
+        assertFalse(t.isDirty());
+    }
+
+    @Test
+    void testSavesWriteASnapshotOfTheTasks() throws Exception {
+        List<DataStore> saved = new ArrayList<>();
+        Mockito.doAnswer(invocation -> saved.add(invocation.getArgument(0))).when(storageMock).save(Mockito.any());
+        Task t = service.createTask("Task A");
+        t.setTime(LocalDate.now(), Duration.ofMinutes(1));
+
+        service.saveIfDirty();
+        t.setTime(LocalDate.now(), Duration.ofMinutes(2));
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        Task written = saved.get(0).getTasks().get(0);
+        assertNotSame(t, written);
+        assertEquals(t.getId(), written.getId());
+        assertEquals(Duration.ofMinutes(1), written.getTimeForDate(LocalDate.now()));
+        assertTrue(t.isDirty(), "Changed after the snapshot");
+    }
+
+    @Test
+    void testUnsavedTimeIsRecoveredFromDurationStore(@TempDir Path dir)
+            throws Exception {
+        Task t = service.createTask("Task A");
+        LocalDate today = LocalDate.now();
+        t.setTime(today, Duration.ofMinutes(5));
+        try (MappedDurationStore store = MappedDurationStore.open(dir.resolve("durations.dat"))) {
+            // Accrued by the timer after the last save
+            store.put(t.getId(), today, Duration.ofMinutes(7));
+            assertEquals(1, service.useDurationStore(store));
+            assertEquals(Duration.ofMinutes(7), t.getTimeForDate(today));
+
+            service.saveSafely();
+            assertTrue(service.flush(5, TimeUnit.SECONDS));
+            assertTrue(store.sinceCheckpoint().isEmpty());
+        }
+    }
+
+    @Test
+    void testRangeQueriesWithoutIndexedStorage() throws Exception {
+        Task a = service.createTask("A");
+        a.setTags(List.of("x"));
+        LocalDate day = LocalDate.of(2024, 6, 10);
+        a.setTime(day, Duration.ofHours(1));
+        a.setTime(day.plusDays(3), Duration.ofHours(2));
+
+        assertEquals(List.of(new WorkQueries.DayWork(a.getId(), day, Duration.ofHours(1), "")),
+                service.workBetween(day, day.plusDays(1)));
+        assertEquals(Map.of("x", Duration.ofHours(3)),
+                service.totalsByTag(day, day.plusDays(3)));
+    }
+
+    @Test
+    void testRangeQueriesIncludeTheRunningTimer() throws Exception {
+        LocalDate day = LocalDate.of(2024, 6, 10);
+        ZoneId zone = ZoneId.of("Europe/Paris");
+        ManualClock clock = new ManualClock(day.atTime(9, 0).atZone(zone).toInstant(), zone);
+        TimerService timer = new TimerService(null, null, null, scheduler, clock);
+        try {
+            service.setBeforeSave(timer::checkpoint);
+            Task task = service.createTask("Running");
+            task.setTags(List.of("x"));
+            task.setTime(day, Duration.ofHours(1));
+            timer.setActiveTask(task);
+            clock.advance(Duration.ofMinutes(30));
+
+            assertEquals(List.of(new WorkQueries.DayWork(task.getId(), day, Duration.ofMinutes(90), "")),
+                    service.workBetween(day, day));
+            clock.advance(Duration.ofMinutes(30));
+            assertEquals(Map.of("x", Duration.ofHours(2)), service.totalsByTag(day, day));
+        } finally {
+            timer.shutdown();
+        }
+    }
+
+    @Test
+    void testDayTotalsOnlyReadTheTasksOfTheDay() throws Exception {
+        LocalDate day = LocalDate.of(2024, 6, 10);
+        Task loaded = Task.builder().description("Loaded").order(0).build();
+        loaded.setTime(day, Duration.ofHours(1));
+        Task deferred = Task.builder().description("Deferred").order(1).build();
+        deferred.setTime(day.plusDays(5), Duration.ofHours(4));
+        deferred.deferHistory(day, day.plusDays(5), Duration.ofHours(2).toNanos(), new DeferredJson<>() {
+            @Override
+            public Map<LocalDate, TaskDailyWork> get() {
+                return Map.of(day, new TaskDailyWork(Duration.ofHours(2), "older",
+                        TaskStatus.TODO, false));
+            }
+
+            @Override
+            public void writeTo(JsonGenerator gen) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        Mockito.when(storageMock.load()).thenReturn(new DataStore(List.of(loaded, deferred)));
+        service.init();
+
+        Task created = service.createTask("Created");
+        created.addTime(day, Duration.ofMinutes(30));
+        created.setDailyNote(day.plusDays(1), "planning");
+
+        assertEquals(Duration.ofMinutes(210), service.dayTotal(day));
+        assertEquals(List.of(loaded.getId(), deferred.getId(), created.getId()),
+                service.workBetween(day, day).stream().map(WorkQueries.DayWork::taskId).toList());
+        assertEquals("planning", service.workBetween(day.plusDays(1), day.plusDays(1)).get(0).note());
+
+        service.getTasks().remove(deferred);
+        loaded.setTaskHistory(Map.of(day.plusDays(2),
+                new TaskDailyWork(Duration.ofHours(3), null, TaskStatus.TODO, false)));
+        assertEquals(Duration.ofMinutes(30), service.dayTotal(day));
+        assertEquals(Duration.ofHours(3), service.dayTotal(day.plusDays(2)));
+        assertEquals(Duration.ZERO, service.dayTotal(day.plusDays(5)));
+    }
+
+    @Test
+    void testCompactionOnlyRevisitsChangedDays() {
+        LocalDate today = LocalDate.now();
+        Task task = Task.builder().description("A").build();
+        // Loaded with the history, not queued
+        task.setTime(today.minusDays(10), Duration.ofMinutes(1));
+        service.getTasks().add(task);
+        task.addTime(today.minusDays(3), Duration.ofMinutes(1));
+        task.setTime(today.minusDays(2), Duration.ofMinutes(3));
+        task.setTime(today.minusDays(1), Duration.ofMinutes(1));
+        task.setDailyNote(today.minusDays(1), "short but noted");
+        task.addTime(today, Duration.ofSeconds(10));
+
+        service.compactHistory();
+        assertEquals(List.of(today.minusDays(10), today.minusDays(2), today.minusDays(1), today),
+                List.copyOf(task.getTaskHistory().keySet()));
+        assertTrue(task.isDirty());
+
+        // Today stays queued until it is over, a changed noted day goes once notes no longer keep it
+        service.setHistoryRetention(Duration.ofMinutes(5), false);
+        task.setDailyNote(today.minusDays(1), "still short");
+        service.compactHistory();
+        assertEquals(List.of(today.minusDays(10), today.minusDays(2), today),
+                List.copyOf(task.getTaskHistory().keySet()));
+    }
+
+    @Test
+    void testFirstCompactionSweepsTheLoadedHistory() throws IOException {
+        LocalDate today = LocalDate.now();
+        LocalDate d1 = today.minusDays(4);
+        LocalDate d2 = today.minusDays(3);
+        LocalDate d3 = today.minusDays(2);
+        LocalDate d4 = today.minusDays(1);
+        Task task = Task.builder().description("A").build();
+        // Short duration, no note -> removed
+        task.setTime(d1, Duration.ofMinutes(1));
+        // Long duration, no note -> kept
+        task.setTime(d2, Duration.ofMinutes(3));
+        // Short duration, with note -> kept
+        task.setTime(d3, Duration.ofMinutes(1));
+        task.setDailyNote(d3, "My note");
+        // Exactly 2 minutes -> kept, strictly less than 2 is removed
+        task.setTime(d4, Duration.ofMinutes(2));
+        // Today is not over yet -> kept
+        task.setTime(today, Duration.ofMinutes(1));
+        // Queued before the restart, nothing is queued after loading
+        Mockito.when(storageMock.load()).thenReturn(new DataStore(List.of(task)));
+        service.init();
+
+        service.compactHistory();
+        assertEquals(List.of(d2, d3, d4, today), List.copyOf(task.getTaskHistory().keySet()));
+        assertTrue(task.isDirty());
+    }
+
+    @Test
+    void testDeferredHistoryIsCompactedOnceLoaded() throws IOException {
+        LocalDate today = LocalDate.now();
+        LocalDate old = today.minusDays(60);
+        Task task = Task.builder().description("A").build();
+        task.setTime(today.minusDays(1), Duration.ofMinutes(1));
+        task.deferHistory(old, today.minusDays(31), Duration.ofMinutes(1).toNanos(), new DeferredJson<>() {
+            @Override
+            public Map<LocalDate, TaskDailyWork> get() {
+                return Map.of(old, new TaskDailyWork(Duration.ofMinutes(1), null, TaskStatus.TODO, false));
+            }
+
+            @Override
+            public void writeTo(JsonGenerator gen) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        Mockito.when(storageMock.load()).thenReturn(new DataStore(List.of(task)));
+        service.init();
+
+        // The sweep leaves the deferred days deferred
+        service.compactHistory();
+        assertFalse(task.isHistoryLoaded());
+        assertTrue(task.getLoadedHistory().isEmpty());
+
+        assertEquals(List.of(old), List.copyOf(task.getTaskHistory().keySet()));
+        service.compactHistory();
+        assertTrue(task.getTaskHistory().isEmpty());
+    }
+
+    @Test
+    void testSearchIndexesDeferredHistoryWithoutLoadingIt() throws IOException {
+        LocalDate today = LocalDate.now();
+        LocalDate old = today.minusDays(60);
+        AtomicInteger reads = new AtomicInteger();
+        Task task = Task.builder().description("A").build();
+        task.setTime(today.minusDays(1), Duration.ofMinutes(1));
+        task.deferHistory(old, today.minusDays(31), Duration.ofMinutes(1).toNanos(), new DeferredJson<>() {
+            @Override
+            public Map<LocalDate, TaskDailyWork> get() {
+                reads.incrementAndGet();
+                return Map.of(old, new TaskDailyWork(Duration.ofMinutes(1), "Quarterly audit", TaskStatus.TODO, false));
+            }
+
+            @Override
+            public void writeTo(JsonGenerator gen) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        Mockito.when(storageMock.load()).thenReturn(new DataStore(List.of(task)));
+        service.init();
+
+        assertTrue(service.search("zzzqqq").isEmpty());
+        assertEquals(1, reads.get(), "The deferred history is read once to be indexed");
+        assertTrue(service.search("zzzqqq").isEmpty());
+        assertEquals(1, reads.get(), "A query ruled out by the index reads nothing");
+
+        List<SearchHit> hits = service.search("audit");
+        assertEquals(1, hits.size());
+        assertEquals(Set.of(SearchHit.Field.NOTES), hits.get(0).fields());
+        assertFalse(task.isHistoryLoaded());
+    }
+
+    @Test
+    void testArchiveDoneTasksAndOldHistory(@TempDir Path dir) throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate old = today.minusDays(400);
+        Task done = service.createTask("Done task");
+        done.setTime(old, Duration.ofHours(1));
+        done.setDailyNote(old, "shipped");
+        done.setStatus(TaskStatus.DONE);
+        Task active = service.createTask("Active task");
+        active.setTime(old, Duration.ofHours(2));
+        active.setTime(today, Duration.ofHours(3));
+
+        service.useArchive(ArchiveStore.open(dir.toFile()), 0);
+        assertEquals(1, service.archiveBefore(today.minusDays(180)));
+
+        assertEquals(List.of(active), service.getTasks());
+        assertFalse(active.getTaskHistory().containsKey(old));
+        // Saved without the archived days before archiving returns
+        assertFalse(active.isDirty());
+        assertEquals(Duration.ofHours(5), active.getTotalTime());
+        assertEquals(3, service.workBetween(old, today).size());
+
+        // A search reaches into the archive, and changing the task brings it back
+        Task found = service.filter("shipped").get(0);
+        assertEquals(done.getId(), found.getId());
+        found.setStatus(TaskStatus.IN_PROGRESS);
+        assertEquals(2, service.getTasks().size());
+        assertEquals(3, service.workBetween(old, today).size());
+
+        service.saveSafely();
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        assertTrue(ArchiveStore.open(dir.toFile()).archivedTasks().isEmpty());
+    }
+
+    @Test
+    void testArchivingOnlyReadsDeferredHistoryWithDaysToArchive(@TempDir Path dir) throws Exception {
+        LocalDate today = LocalDate.now();
+        LocalDate old = today.minusDays(60);
+        AtomicInteger reads = new AtomicInteger();
+        Task task = Task.builder().description("A").build();
+        task.setTime(today.minusDays(1), Duration.ofMinutes(30));
+        task.deferHistory(old, today.minusDays(31), Duration.ofHours(1).toNanos(), new DeferredJson<>() {
+            @Override
+            public Map<LocalDate, TaskDailyWork> get() {
+                reads.incrementAndGet();
+                return Map.of(old, new TaskDailyWork(Duration.ofHours(1), "", TaskStatus.TODO, false));
+            }
+
+            @Override
+            public void writeTo(JsonGenerator gen) {
+                throw new UnsupportedOperationException();
+            }
+        });
+        Mockito.when(storageMock.load()).thenReturn(new DataStore(List.of(task)));
+        service.init();
+        service.useArchive(ArchiveStore.open(dir.toFile()), 0);
+
+        assertEquals(0, service.archiveBefore(today.minusDays(90)));
+        assertEquals(0, reads.get());
+        assertFalse(task.isHistoryLoaded());
+
+        assertEquals(0, service.archiveBefore(today.minusDays(45)));
+        assertEquals(List.of(today.minusDays(1)), List.copyOf(task.getTaskHistory().keySet()));
+        assertEquals(Duration.ofMinutes(90), task.getTotalTime());
+    }
+
+    @Test
+    void testEditsDoNotWaitForTheTextStore(@TempDir Path dir) throws Exception {
+        TextStore store = Mockito.spy(TextStore.open(dir.toFile()));
+        service.useTextStore(store);
+        Task task = service.createTask("A");
+        task.setMarkdownContent("Some text");
+
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            writing.countDown();
+            release.await();
+            return invocation.callRealMethod();
+        }).when(store).write(Mockito.anyMap());
+        Thread saver = new Thread(service::saveSafely);
+        saver.start();
+        try {
+            assertTrue(writing.await(5, TimeUnit.SECONDS));
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> task.setDescription("B"));
+        } finally {
+            release.countDown();
+            saver.join();
+        }
+        assertEquals("Some text", store.markdown(task.getId()));
+    }
+
+    @Test
+    void testTextsMoveToTheTextStore(@TempDir Path dir) throws Exception {
+        LocalDate today = LocalDate.now();
+        Task withNotes = service.createTask("Release");
+        withNotes.setMarkdownContent("Steps to publish the artifacts");
+        withNotes.setDailyNote(today, "Waiting for the staging repository");
+        service.createTask("Other");
+
+        TextStore store = TextStore.open(dir.toFile());
+        service.useTextStore(store);
+        assertTrue(withNotes.areTextsReleased());
+        assertNull(withNotes.getStoredMarkdownContent());
+        assertEquals("Waiting for the staging repository", withNotes.getDailyNote(today));
+
+        // Only the texts the index cannot rule out are read
+        TextStore reopened = TextStore.open(dir.toFile());
+        service.useTextStore(reopened);
+        assertEquals(List.of(withNotes), service.filter("staging"));
+        assertEquals(List.of(), service.filter("production"));
+
+        // An edit holds the texts until the next save writes them back
+        withNotes.setMarkdownContent("Steps to publish to production");
+        assertFalse(withNotes.areTextsReleased());
+        assertEquals(List.of(withNotes), service.filter("production"));
+        service.saveSafely();
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        assertTrue(withNotes.areTextsReleased());
+        assertEquals(Set.of(withNotes.getId()), TextStore.open(dir.toFile()).candidates("production"));
+    }
+
+    @Test
+    void testTextsMoveBackOutOfTheTextStore(@TempDir Path dir) throws Exception {
+        LocalDate today = LocalDate.now();
+        Task withNotes = service.createTask("Release");
+        withNotes.setMarkdownContent("Steps to publish the artifacts");
+        withNotes.setDailyNote(today, "Waiting for the staging repository");
+        service.useTextStore(TextStore.open(dir.toFile()));
+        assertTrue(service.flush(5, TimeUnit.SECONDS));
+        assertNull(withNotes.getStoredMarkdownContent());
+
+        TextStore store = TextStore.open(dir.toFile());
+        service.leaveTextStore(store);
+        assertFalse(withNotes.areTextsReleased());
+        assertEquals("Steps to publish the artifacts", withNotes.getStoredMarkdownContent());
+        assertEquals("Waiting for the staging repository", withNotes.getTaskHistory().get(today).getStoredNote());
+        assertFalse(withNotes.isDirty(), "Saved with its texts");
+        assertFalse(store.contains(withNotes.getId()));
+        assertFalse(TextStore.open(dir.toFile()).contains(withNotes.getId()));
+    }
 }
@@ -1,17 +1,44 @@
 package com.chrono.task.service;
 
 import com.chrono.task.model.Task;
+import com.chrono.task.persistence.TimerCheckpointRing;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class TimerServiceTest {
 
+    private static final ZoneId ZONE = ZoneId.of("Europe/Paris");
+    private static final LocalDate TODAY = LocalDate.of(2024, 5, 6);
+
+    private ManualClock clock;
+    private SchedulerService scheduler;
     private TimerService timerService;
 
     @BeforeEach
     public void setup() {
-        timerService = new TimerService();
+        clock = new ManualClock(TODAY.atTime(9, 0).atZone(ZONE).toInstant(), ZONE);
+        scheduler = new SchedulerService();
+        timerService = new TimerService(null, null, null, scheduler, clock);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        timerService.shutdown();
+        scheduler.shutdown();
     }
 
     @Test
@@ -38,4 +65,87 @@ public class TimerServiceTest {
         timerService.setActiveTask(task2);
         assertFalse(timerService.isPaused(), "Switching task should reset pause state");
     }
+
+    @Test
+    public void testRunningSessionOnlyReachesTheTaskOnCheckpointAndStop() {
+        Task task = new Task();
+        timerService.setActiveTask(task);
+        clock.advance(Duration.ofMinutes(5));
+        assertEquals(Duration.ZERO, task.getTotalTime(), "Nothing accrued while running");
+        assertEquals(Duration.ofMinutes(5), timerService.liveTotal(task));
+
+        timerService.checkpoint();
+        assertEquals(Duration.ofMinutes(5), task.getTotalTime());
+
+        clock.advance(Duration.ofMinutes(2));
+        assertEquals(Duration.ofMinutes(7), timerService.liveDuration(task, TODAY, TODAY));
+        timerService.pause();
+        assertEquals(Duration.ofMinutes(7), task.getTotalTime());
+        assertEquals(task.getTotalTime(), timerService.liveTotal(task), "Nothing left to accrue once paused");
+        assertEquals(task.getTotalTime(), timerService.liveDayTotal(task::getTimeForDate, TODAY));
+    }
+
+    @Test
+    public void testRunningSessionIsSplitAtMidnight() {
+        Task task = new Task();
+        clock.advance(Duration.ofHours(14));
+        timerService.setActiveTask(task);
+        clock.advance(Duration.ofHours(2));
+
+        assertEquals(Duration.ofHours(1), timerService.liveDayTotal(d -> Duration.ZERO, TODAY.plusDays(1)));
+        timerService.checkpoint();
+        assertEquals(Duration.ofHours(1), task.getTimeForDate(TODAY));
+        assertEquals(Duration.ofHours(1), task.getTimeForDate(TODAY.plusDays(1)));
+    }
+
+    @Test
+    public void testCrashedSessionIsRecovered(@TempDir Path dir) throws Exception {
+        Task task = new Task();
+        Instant start = clock.instant().minusSeconds(600);
+        try (TimerCheckpointRing ring = TimerCheckpointRing.open(dir.resolve("timer.ring"))) {
+            // Accrued up to 2 minutes in, last seen running 5 minutes in
+            ring.write(task.getId(), start, start.plusSeconds(120), start.plusSeconds(300));
+
+            TimerService recovering = new TimerService(null, null, ring, scheduler, clock);
+            try {
+                assertEquals(Duration.ofMinutes(3), recovering.recover(id -> id.equals(task.getId()) ? task : null));
+                assertEquals(Duration.ofMinutes(3), task.getTotalTime());
+                assertFalse(ring.last().isRunning());
+                assertEquals(Duration.ZERO, recovering.recover(id -> task), "Recovered only once");
+            } finally {
+                recovering.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testDaysAreSplitAtLocalMidnightAcrossDst() {
+        LocalDate dstDay = LocalDate.of(2024, 3, 31);
+        Map<LocalDate, Duration> days = new LinkedHashMap<>();
+        TimerService.forEachDay(dstDay.minusDays(1).atTime(22, 0).atZone(ZONE).toInstant(),
+                dstDay.plusDays(1).atTime(1, 0).atZone(ZONE).toInstant(), ZONE, days::put);
+
+        assertEquals(Map.of(dstDay.minusDays(1), Duration.ofHours(2),
+                dstDay, Duration.ofHours(23),
+                dstDay.plusDays(1), Duration.ofHours(1)), days);
+    }
+
+    @Test
+    public void testLongSleepIsCutOutOfTheSession() {
+        Task task = new Task();
+        List<TimerService.SleepGap> gaps = new ArrayList<>();
+        timerService.setSleepLimit(Duration.ofMinutes(5));
+        timerService.setOnSleepGap(gaps::add);
+        timerService.setActiveTask(task);
+
+        // The wall clock moved on by 2 minutes more than the monotonic clock: counted
+        timerService.noteAlive(clock.instant().plusSeconds(120), System.nanoTime());
+        assertTrue(gaps.isEmpty());
+        // Then by 2 hours more: cut out
+        Instant woken = clock.instant().plusSeconds(120 + 7200);
+        timerService.noteAlive(woken, System.nanoTime());
+        assertEquals(1, gaps.size());
+        assertTrue(gaps.get(0).duration().compareTo(Duration.ofMinutes(119)) > 0);
+        assertTrue(task.getTotalTime().compareTo(Duration.ofMinutes(3)) < 0);
+    }
 }